@@ -0,0 +1,455 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-running process, which keeps a certificate directory open and executes commands on behalf of
+ * clients connecting to a Unix domain socket, so that clients do not need to open the store themselves.
+ * <p>
+ * A client sends the number of its command line arguments followed by the arguments, each encoded using
+ * {@link DataOutputStream#writeUTF(String)}. The daemon then sends frames, each starting with a type byte:
+ * <ul>
+ *     <li>{@value #STDOUT}, {@value #STDERR}: a length and as many bytes to write to standard output or error</li>
+ *     <li>{@value #STDIN}: a maximum length. The client answers with a length of up to as many bytes read from its
+ *     standard input followed by the bytes, or -1 at the end of its input</li>
+ *     <li>{@value #EXIT}: the exit code of the command, which ends the connection</li>
+ * </ul>
+ * While executing a command, {@link System#out}, {@link System#err} and {@link System#in} of the executing thread
+ * are redirected to the client. {@link PGPCertDCli#exit(int)} aborts the command instead of exiting the daemon.
+ */
+public final class Daemon implements Closeable {
+
+    /**
+     * Name of the directory inside the base directory of the certificate store, which holds the socket.
+     * Names starting with an underscore are not used by the store itself.
+     */
+    public static final String DIRECTORY_NAME = "_pgpainless_daemon";
+
+    /**
+     * Name of the socket inside the {@link #DIRECTORY_NAME daemon directory}.
+     */
+    public static final String SOCKET_NAME = "socket";
+
+    /**
+     * Commands, which are forwarded to a running daemon.
+     */
+    public static final Set<String> COMMANDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("get", "find", "insert", "list", "export")));
+
+    /**
+     * Exit code reported for commands, which are not executed by the daemon.
+     */
+    public static final int EXIT_CODE_UNSUPPORTED_COMMAND = 64;
+
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte STDIN = 'I';
+    static final byte EXIT = 'X';
+
+    // Arguments beyond this count are considered a protocol violation
+    private static final int MAX_ARGUMENTS = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Time to wait for running commands when shutting down
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Daemon.class);
+    private static final ThreadLocal<Session> SESSION = new ThreadLocal<>();
+    private static boolean redirected = false;
+
+    private final File socket;
+    private final ServerSocketChannel server;
+    private final Set<Thread> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    /**
+     * Bind a daemon to the given socket.
+     * A stale socket of a daemon, which is no longer running, is replaced.
+     * The directory containing the socket is restricted to the owner before binding, since the socket is
+     * created with the permissions allowed by the umask and could be connected to before they are narrowed.
+     *
+     * @param socket socket file
+     * @throws IOException if another daemon is listening on the socket, or the socket cannot be bound
+     */
+    public Daemon(File socket) throws IOException {
+        this.socket = socket;
+        createOwnerOnlyDirectory(socket.getAbsoluteFile().getParentFile().toPath());
+        if (socket.exists()) {
+            if (isListening(socket)) {
+                throw new IOException("Another daemon is already listening on " + socket.getAbsolutePath());
+            }
+            Files.deleteIfExists(socket.toPath());
+        }
+        this.server = UnixDomainSockets.bind(socket);
+        try {
+            // Only the owner may use the store through the daemon
+            Files.setPosixFilePermissions(socket.toPath(), PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+        }
+    }
+
+    private static void createOwnerOnlyDirectory(Path directory) throws IOException {
+        try {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            // The directory might already exist with broader permissions
+            Files.setPosixFilePermissions(directory, OWNER_ONLY);
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+            Files.createDirectories(directory);
+        }
+    }
+
+    private static boolean isListening(File socket) {
+        try (SocketChannel ignored = UnixDomainSockets.connect(socket)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the socket of the daemon serving the store in the given base directory.
+     *
+     * @param baseDirectory base directory of the store
+     * @return socket file
+     */
+    public static File socket(File baseDirectory) {
+        return new File(new File(baseDirectory, DIRECTORY_NAME), SOCKET_NAME);
+    }
+
+    /**
+     * Accept clients and execute their commands until the daemon is {@link #close() closed}.
+     * Each client is served by its own thread. After closing, commands which are still executing are
+     * given a few seconds to finish.
+     *
+     * @throws IOException if clients cannot be accepted
+     */
+    public void serve() throws IOException {
+        installRedirections();
+        try {
+            while (!closed) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                Thread thread = new Thread(() -> session(client), "cert-d-daemon-session");
+                thread.setDaemon(true);
+                sessions.add(thread);
+                thread.start();
+            }
+        } finally {
+            awaitSessions();
+        }
+    }
+
+    /**
+     * Stop accepting clients and remove the socket.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            server.close();
+        } finally {
+            Files.deleteIfExists(socket.toPath());
+        }
+    }
+
+    /**
+     * Return the standard output of the client, whose command is executed by the current thread, or null if
+     * the current thread does not execute a command on behalf of a client.
+     *
+     * @return standard output of the client or null
+     */
+    static OutputStream clientOutput() {
+        Session session = SESSION.get();
+        return session != null ? session.stdout : null;
+    }
+
+    /**
+     * Return true, if the current thread executes a command on behalf of a client.
+     *
+     * @return true if serving a client
+     */
+    static boolean isServingClient() {
+        return SESSION.get() != null;
+    }
+
+    private void awaitSessions() {
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        for (Thread thread : sessions) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void session(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            int argumentCount = in.readInt();
+            if (argumentCount < 0 || argumentCount > MAX_ARGUMENTS) {
+                throw new IOException("Bad argument count " + argumentCount);
+            }
+            String[] arguments = new String[argumentCount];
+            for (int i = 0; i < argumentCount; i++) {
+                arguments[i] = in.readUTF();
+            }
+
+            Session session = new Session(in, out);
+            int exitCode;
+            SESSION.set(session);
+            try {
+                exitCode = execute(arguments, session);
+                session.stdout.flush();
+                session.stderr.flush();
+            } finally {
+                SESSION.remove();
+            }
+            synchronized (out) {
+                out.writeByte(EXIT);
+                out.writeInt(exitCode);
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Client disconnected.", e);
+        } finally {
+            sessions.remove(Thread.currentThread());
+        }
+    }
+
+    private static int execute(String[] arguments, Session session) {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(session.stdout, StandardCharsets.UTF_8), true);
+        PrintWriter err = new PrintWriter(new OutputStreamWriter(session.stderr, StandardCharsets.UTF_8), true);
+        CommandLine commandLine = new CommandLine(new PGPCertDCli());
+        return commandLine
+                .setOut(out)
+                .setErr(err)
+                .setExecutionStrategy(parseResult -> {
+                    if (!parseResult.hasSubcommand() ||
+                            !COMMANDS.contains(parseResult.subcommand().commandSpec().name())) {
+                        err.println("Command is not supported by the daemon.");
+                        return EXIT_CODE_UNSUPPORTED_COMMAND;
+                    }
+                    return new CommandLine.RunLast().execute(parseResult);
+                })
+                .setExecutionExceptionHandler((exception, command, parseResult) -> {
+                    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+                        if (cause instanceof CommandExit) {
+                            return ((CommandExit) cause).exitCode;
+                        }
+                    }
+                    throw exception;
+                })
+                .execute(arguments);
+    }
+
+    /**
+     * Redirect the standard streams of threads serving a client to the client.
+     * Other threads keep using the original streams.
+     */
+    private static synchronized void installRedirections() {
+        if (redirected) {
+            return;
+        }
+        redirected = true;
+        System.setOut(new PrintStream(new RedirectingOutputStream(System.out, true), true));
+        System.setErr(new PrintStream(new RedirectingOutputStream(System.err, false), true));
+        InputStream stdin = System.in;
+        System.setIn(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Session session = SESSION.get();
+                return session != null ? session.stdin.read(b, off, len) : stdin.read(b, off, len);
+            }
+        });
+    }
+
+    /**
+     * Thrown by {@link PGPCertDCli#exit(int)} to abort a command executed on behalf of a client.
+     */
+    static final class CommandExit extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int exitCode;
+
+        CommandExit(int exitCode) {
+            super("Exit code " + exitCode, null, false, false);
+            this.exitCode = exitCode;
+        }
+    }
+
+    /**
+     * Writes to the standard output or error of the client served by the current thread, if any.
+     */
+    private static final class RedirectingOutputStream extends OutputStream {
+        private final OutputStream fallback;
+        private final boolean stdout;
+
+        private RedirectingOutputStream(OutputStream fallback, boolean stdout) {
+            this.fallback = fallback;
+            this.stdout = stdout;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+
+        private OutputStream target() {
+            Session session = SESSION.get();
+            if (session == null) {
+                return fallback;
+            }
+            return stdout ? session.stdout : session.stderr;
+        }
+    }
+
+    /**
+     * Standard streams of a client.
+     */
+    private static final class Session {
+        private final OutputStream stdout;
+        private final OutputStream stderr;
+        private final InputStream stdin;
+
+        private Session(DataInputStream in, DataOutputStream out) {
+            this.stdout = new BufferedOutputStream(new FrameOutputStream(out, STDOUT), BUFFER_SIZE);
+            this.stderr = new BufferedOutputStream(new FrameOutputStream(out, STDERR), BUFFER_SIZE);
+            this.stdin = new InputStream() {
+                private boolean eof = false;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (eof) {
+                        return -1;
+                    }
+                    if (len == 0) {
+                        return 0;
+                    }
+                    // Output written so far should reach the client before it blocks on its input
+                    stdout.flush();
+                    stderr.flush();
+                    synchronized (out) {
+                        out.writeByte(STDIN);
+                        out.writeInt(len);
+                        out.flush();
+                    }
+                    int read = in.readInt();
+                    if (read < 0) {
+                        eof = true;
+                        return -1;
+                    }
+                    if (read > len) {
+                        throw new IOException("Client sent more input than requested.");
+                    }
+                    in.readFully(b, off, read);
+                    return read;
+                }
+            };
+        }
+    }
+
+    /**
+     * Writes each chunk of data as a frame of the given type.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        private FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * Forwards a command to a running {@link Daemon} and relays its standard streams.
+ */
+final class DaemonClient {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DaemonClient() {
+
+    }
+
+    /**
+     * Connect to the daemon listening on the given socket.
+     *
+     * @param socket socket file
+     * @return connected channel or null, if no daemon is listening
+     */
+    static SocketChannel connect(File socket) {
+        if (!UnixDomainSockets.isSupported() || !socket.exists()) {
+            return null;
+        }
+        try {
+            return UnixDomainSockets.connect(socket);
+        } catch (IOException e) {
+            // Stale socket
+            return null;
+        }
+    }
+
+    /**
+     * Execute a command through the daemon.
+     *
+     * @param channel channel connected to the daemon
+     * @param arguments command line arguments
+     * @param stdin standard input
+     * @param stdout standard output
+     * @param stderr standard error
+     * @return exit code of the command
+     * @throws IOException if the connection to the daemon breaks down
+     */
+    static int forward(SocketChannel channel, List<String> arguments,
+                       InputStream stdin, OutputStream stdout, OutputStream stderr)
+            throws IOException {
+        try (SocketChannel ignored = channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(arguments.size());
+            for (String argument : arguments) {
+                out.writeUTF(argument);
+            }
+            out.flush();
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case Daemon.STDOUT:
+                    case Daemon.STDERR:
+                        int length = in.readInt();
+                        OutputStream target = type == Daemon.STDOUT ? stdout : stderr;
+                        while (length > 0) {
+                            int chunk = Math.min(length, buffer.length);
+                            in.readFully(buffer, 0, chunk);
+                            target.write(buffer, 0, chunk);
+                            length -= chunk;
+                        }
+                        break;
+                    case Daemon.STDIN:
+                        // The daemon waits for input, so everything it wrote before should be visible
+                        stdout.flush();
+                        stderr.flush();
+                        int read = stdin.read(buffer, 0, Math.min(in.readInt(), buffer.length));
+                        out.writeInt(read);
+                        if (read > 0) {
+                            out.write(buffer, 0, read);
+                        }
+                        out.flush();
+                        break;
+                    case Daemon.EXIT:
+                        stdout.flush();
+                        stderr.flush();
+                        return in.readInt();
+                    default:
+                        throw new IOException("Unexpected frame type " + type);
+                }
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@
 package pgp.cert_d.cli;
 
 import org.pgpainless.certificate_store.PGPainlessCertD;
+import org.pgpainless.certificate_store.StoreMetrics;
 import pgp.cert_d.BaseDirectoryProvider;
 import pgp.cert_d.cli.commands.Export;
 import pgp.cert_d.cli.commands.Find;
@@ -12,13 +13,22 @@ import pgp.cert_d.cli.commands.Get;
 import pgp.cert_d.cli.commands.Insert;
 import pgp.cert_d.cli.commands.Import;
 import pgp.cert_d.cli.commands.List;
+import pgp.cert_d.cli.commands.Reindex;
+import pgp.cert_d.cli.commands.Serve;
 import pgp.cert_d.cli.commands.Setup;
-import pgp.cert_d.jdbc.sqlite.DatabaseSubkeyLookupFactory;
 import pgp.certificate_store.exception.NotAStoreException;
 import picocli.CommandLine;
 
 import java.io.File;
-import java.sql.SQLException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 @CommandLine.Command(
         name = "certificate-store",
@@ -31,7 +41,9 @@ import java.sql.SQLException;
                 Get.class,
                 Setup.class,
                 List.class,
-                Find.class
+                Find.class,
+                Reindex.class,
+                Serve.class
         }
 )
 public class PGPCertDCli {
@@ -41,34 +53,130 @@ public class PGPCertDCli {
     File baseDirectory;
 
     static PGPainlessCertD certificateDirectory;
+    private static File storeDirectory;
+    // true, if the certificate directory was opened by the CLI and not injected
+    private static boolean ownsCertificateDirectory;
 
     // https://www.cyberciti.biz/faq/linux-bash-exit-status-set-exit-statusin-bash/
     public static final int EXIT_CODE_NOT_A_STORE = 30;
 
     private int executionStrategy(CommandLine.ParseResult parseResult) {
+        if (baseDirectory == null) {
+            baseDirectory = BaseDirectoryProvider.getDefaultBaseDir();
+        }
+        if (certificateDirectory == null && parseResult.hasSubcommand() &&
+                Daemon.COMMANDS.contains(parseResult.subcommand().commandSpec().name())) {
+            SocketChannel daemon = DaemonClient.connect(Daemon.socket(baseDirectory));
+            if (daemon != null) {
+                return forward(daemon, parseResult);
+            }
+        }
         try {
             initStore();
-        } catch (NotAStoreException | SQLException e) {
+        } catch (NotAStoreException | IOException e) {
             return EXIT_CODE_NOT_A_STORE;
         }
-        return new CommandLine.RunLast().execute(parseResult);
+        try {
+            return new CommandLine.RunLast().execute(parseResult);
+        } finally {
+            closeStore();
+        }
     }
 
-    private void initStore() throws NotAStoreException, SQLException {
+    private void initStore() throws NotAStoreException, IOException {
         if (certificateDirectory != null) {
             return;
         }
 
-        if (baseDirectory == null) {
-            baseDirectory = BaseDirectoryProvider.getDefaultBaseDir();
+        PGPCertDCli.storeDirectory = baseDirectory;
+        PGPCertDCli.certificateDirectory = PGPainlessCertD.fileBasedWithLazySubkeyIndex(
+                baseDirectory, null, StoreMetrics.NOOP);
+        ownsCertificateDirectory = true;
+    }
+
+    private static int forward(SocketChannel daemon, CommandLine.ParseResult parseResult) {
+        try {
+            return DaemonClient.forward(daemon, resolveFileOptions(parseResult), System.in, System.out, System.err);
+        } catch (IOException e) {
+            // CHECKSTYLE:OFF
+            System.err.println("Lost connection to the daemon: " + e.getMessage());
+            // CHECKSTYLE:ON
+            return -1;
+        }
+    }
+
+    /**
+     * Return the original arguments, with the values of file options resolved against the working directory of
+     * this process.
+     * The daemon would otherwise resolve relative paths against its own working directory.
+     *
+     * @param parseResult parsed arguments
+     * @return arguments to forward
+     */
+    static java.util.List<String> resolveFileOptions(CommandLine.ParseResult parseResult) {
+        Set<String> fileOptions = new HashSet<>();
+        for (CommandLine.ParseResult result = parseResult; result != null; result = result.subcommand()) {
+            for (CommandLine.Model.OptionSpec option : result.commandSpec().options()) {
+                if (File.class.equals(option.type())) {
+                    fileOptions.addAll(Arrays.asList(option.names()));
+                }
+            }
+        }
+
+        java.util.List<String> arguments = new ArrayList<>(parseResult.originalArgs());
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (argument.equals("--")) {
+                // Only positional parameters follow
+                break;
+            }
+            if (fileOptions.contains(argument)) {
+                if (i + 1 < arguments.size()) {
+                    arguments.set(i + 1, new File(arguments.get(i + 1)).getAbsolutePath());
+                }
+                i++;
+                continue;
+            }
+            int separator = argument.indexOf('=');
+            if (separator > 0 && fileOptions.contains(argument.substring(0, separator))) {
+                arguments.set(i, argument.substring(0, separator + 1) +
+                        new File(argument.substring(separator + 1)).getAbsolutePath());
+            } else if (!argument.startsWith("--") && argument.length() > 2 &&
+                    fileOptions.contains(argument.substring(0, 2))) {
+                // Short option with attached value, e.g. -ofile
+                arguments.set(i, argument.substring(0, 2) + new File(argument.substring(2)).getAbsolutePath());
+            }
         }
+        return arguments;
+    }
 
-        PGPCertDCli.certificateDirectory = PGPainlessCertD.fileBased(baseDirectory, new DatabaseSubkeyLookupFactory());
+    private static void closeStore() {
+        if (!ownsCertificateDirectory) {
+            return;
+        }
+        ownsCertificateDirectory = false;
+        try {
+            certificateDirectory.close();
+        } catch (IOException e) {
+            // Uncommitted index entries are recovered on the next start
+        }
+        certificateDirectory = null;
     }
 
     public static void main(String[] args) {
+        // Commands forwarded to a daemon report their exit code instead of exiting themselves
+        System.exit(execute(args));
+    }
+
+    /**
+     * Execute the command line interface with the given arguments.
+     *
+     * @param args arguments
+     * @return exit code
+     */
+    static int execute(String... args) {
         PGPCertDCli cli = new PGPCertDCli();
-        new CommandLine(cli)
+        return new CommandLine(cli)
                 .setExecutionStrategy(parserResult -> cli.executionStrategy(parserResult))
                 .execute(args);
     }
@@ -76,4 +184,39 @@ public class PGPCertDCli {
     public static PGPainlessCertD getCertificateDirectory() {
         return certificateDirectory;
     }
+
+    /**
+     * Return the base directory of the certificate directory opened by the CLI.
+     *
+     * @return base directory or null
+     */
+    public static File getBaseDirectory() {
+        return storeDirectory;
+    }
+
+    /**
+     * Return a stream writing to standard output, which bypasses the synchronization of {@link System#out}.
+     * For commands executed by a {@link Daemon}, this is the standard output of the client.
+     * Closing the stream does not close standard output.
+     *
+     * @return standard output
+     */
+    public static OutputStream standardOutput() {
+        OutputStream clientOutput = Daemon.clientOutput();
+        return clientOutput != null ? clientOutput : new FileOutputStream(FileDescriptor.out);
+    }
+
+    /**
+     * Terminate the current command with the given exit code.
+     * Commands executed by a {@link Daemon} are aborted and their exit code is reported to the client,
+     * otherwise the JVM exits.
+     *
+     * @param exitCode exit code
+     */
+    public static void exit(int exitCode) {
+        if (Daemon.isServingClient()) {
+            throw new Daemon.CommandExit(exitCode);
+        }
+        System.exit(exitCode);
+    }
 }
@@ -0,0 +1,88 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Training run for the AppCDS archive of the command line interface.
+ * Executes all subcommands once against a fresh store, so that the classes they load are recorded when the
+ * JVM is started with {@code -XX:ArchiveClassesAtExit}.
+ * The archive is created by the {@code appCds} task of the Gradle build.
+ * <p>
+ * The training run is executed from the same jar as the command line interface, since an archive can only be
+ * used with the class path it was created with.
+ */
+public final class StartupTraining {
+
+    private StartupTraining() {
+
+    }
+
+    /**
+     * Execute the training run.
+     *
+     * @param args base directory of a store, which MUST NOT exist yet, and a file to export certificates to
+     * @throws Exception if a command fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: StartupTraining STORE EXPORT_FILE");
+        }
+        File store = new File(args[0]);
+        if (store.exists()) {
+            throw new IllegalArgumentException("Training store " + store.getAbsolutePath() + " already exists.");
+        }
+        String base = store.getAbsolutePath();
+        String exportFile = new File(args[1]).getAbsolutePath();
+
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Startup Training <training@pgpainless.org>")
+                .toCertificate();
+        byte[] encoded = cert.getEncoded();
+        String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+
+        PrintStream stdout = System.out;
+        InputStream stdin = System.in;
+        // Output of the commands is not of interest
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            run(null, "--store", base, "setup");
+            run(null, "--store", base, "help", "get");
+            run(encoded, "--store", base, "insert");
+            run(encoded, "--store", base, "import", "--jobs", "2");
+            run(null, "--store", base, "get", fingerprint);
+            run(null, "--store", base, "get", "--armor", "--print-tag", fingerprint);
+            run(null, "--store", base, "find", fingerprint);
+            run(null, "--store", base, "list");
+            run(null, "--store", base, "list", "--validate");
+            run(null, "--store", base, "export", "--armor", "--output", exportFile);
+            run(null, "--store", base, "reindex", "--verify");
+            run(null, "--store", base, "reindex");
+        } finally {
+            System.setOut(stdout);
+            System.setIn(stdin);
+        }
+    }
+
+    private static void run(byte[] input, String... args) {
+        System.setIn(new ByteArrayInputStream(input != null ? input : new byte[0]));
+        int exitCode = PGPCertDCli.execute(args);
+        if (exitCode != 0) {
+            throw new IllegalStateException("Training command " + Arrays.toString(args) +
+                    " failed with exit code " + exitCode);
+        }
+    }
+}
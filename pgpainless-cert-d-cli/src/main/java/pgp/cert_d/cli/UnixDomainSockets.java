@@ -0,0 +1,118 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Access to Unix domain socket channels.
+ * Unix domain sockets are supported by {@link java.nio.channels} since Java 16, while this module targets
+ * Java 11, so the API is looked up reflectively. On older runtimes, {@link #isSupported()} returns false.
+ */
+final class UnixDomainSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_OF;
+    private static final Method OPEN_SERVER;
+    private static final Method OPEN_CLIENT;
+
+    static {
+        ProtocolFamily family = null;
+        Method addressOf = null;
+        Method openServer = null;
+        Method openClient = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            openServer = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openClient = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            // Runtime older than Java 16
+            family = null;
+        }
+        UNIX = family;
+        ADDRESS_OF = addressOf;
+        OPEN_SERVER = openServer;
+        OPEN_CLIENT = openClient;
+    }
+
+    private UnixDomainSockets() {
+
+    }
+
+    /**
+     * Return true, if the runtime supports Unix domain socket channels.
+     *
+     * @return true if supported
+     */
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * Create a server socket channel listening on a Unix domain socket at the given path.
+     *
+     * @param socket socket file, which MUST NOT exist
+     * @return server socket channel
+     * @throws IOException if the socket cannot be bound or Unix domain sockets are not supported
+     */
+    static ServerSocketChannel bind(File socket) throws IOException {
+        ServerSocketChannel channel = (ServerSocketChannel) invoke(OPEN_SERVER, UNIX);
+        try {
+            channel.bind(address(socket));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Connect to the Unix domain socket at the given path.
+     *
+     * @param socket socket file
+     * @return connected socket channel
+     * @throws IOException if nobody listens on the socket or Unix domain sockets are not supported
+     */
+    static SocketChannel connect(File socket) throws IOException {
+        SocketChannel channel = (SocketChannel) invoke(OPEN_CLIENT, UNIX);
+        try {
+            channel.connect(address(socket));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static SocketAddress address(File socket) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, socket.toPath());
+    }
+
+    private static Object invoke(Method method, Object argument) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unix domain sockets require Java 16 or newer.");
+        }
+        try {
+            return method.invoke(null, argument);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -5,17 +5,21 @@
 package pgp.cert_d.cli.commands;
 
 import org.bouncycastle.bcpg.ArmoredOutputStream;
-import org.bouncycastle.util.io.Streams;
+import org.pgpainless.certificate_store.ExportResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pgp.cert_d.cli.PGPCertDCli;
-import pgp.certificate_store.certificate.Certificate;
 import picocli.CommandLine;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Iterator;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @CommandLine.Command(name = "export",
         resourceBundle = "msg_export")
@@ -23,31 +27,88 @@ public class Export implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Export.class);
 
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
     @CommandLine.Option(names = {"-a", "--armor"})
     boolean armor = false;
 
+    @CommandLine.Option(names = "--unordered")
+    boolean unordered = false;
+
+    @CommandLine.Option(names = {"-j", "--jobs"},
+            paramLabel = "N")
+    int jobs = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"-o", "--output"},
+            paramLabel = "FILE")
+    File output;
+
+    @CommandLine.Parameters(
+            paramLabel = "FINGERPRINT",
+            index = "0..*",
+            arity = "0..*"
+    )
+    List<String> fingerprints = new ArrayList<>();
+
     @Override
     public void run() {
-        Iterator<Certificate> certificates = PGPCertDCli.getCertificateDirectory()
-                .items();
-        OutputStream out = armor ? new ArmoredOutputStream(System.out) : System.out;
-        while (certificates.hasNext()) {
-            try {
-                Certificate certificate = certificates.next();
-                InputStream inputStream = certificate.getInputStream();
-                Streams.pipeAll(inputStream, out);
-                inputStream.close();
-            } catch (IOException e) {
-                LOGGER.error("IO Error", e);
-                System.exit(-1);
+        ExportResult result;
+        try (OutputStream sink = openOutput()) {
+            OutputStream out = armor ? new ArmoredOutputStream(sink) : sink;
+            if (fingerprints.isEmpty()) {
+                result = PGPCertDCli.getCertificateDirectory().export(out, !unordered, jobs);
+            } else {
+                List<String> lowercase = new ArrayList<>();
+                for (String fingerprint : fingerprints) {
+                    lowercase.add(fingerprint.toLowerCase(Locale.ROOT));
+                }
+                result = PGPCertDCli.getCertificateDirectory().export(lowercase, out, !unordered, jobs);
             }
-        }
-        if (armor) {
-            try {
+            if (armor) {
+                // Writes the armor trailer and flushes the sink
                 out.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
+        } catch (IOException e) {
+            LOGGER.error("IO Error", e);
+            PGPCertDCli.exit(-1);
+            return;
+        } catch (InterruptedException e) {
+            LOGGER.error("Thread interrupted while exporting certificates.", e);
+            PGPCertDCli.exit(1);
+            return;
+        }
+
+        for (String fingerprint : result.getMissing()) {
+            LOGGER.error("Certificate " + fingerprint + " not found.");
         }
+        for (Map.Entry<String, Exception> failure : result.getFailed().entrySet()) {
+            LOGGER.error("Cannot read certificate " + failure.getKey(), failure.getValue());
+        }
+        LOGGER.debug(result.toString());
+        if (!result.getFailed().isEmpty()) {
+            PGPCertDCli.exit(-1);
+        }
+        if (!result.getMissing().isEmpty()) {
+            PGPCertDCli.exit(Get.EXIT_CODE_NO_SUCH_ELEMENT);
+        }
+    }
+
+    /**
+     * Open the output file, or standard output, for large buffered writes.
+     * Standard output is written bypassing the synchronized {@link System#out}, see
+     * {@link PGPCertDCli#standardOutput()}.
+     * Closing the returned stream flushes it, but does not close standard output.
+     */
+    private OutputStream openOutput() throws IOException {
+        if (output != null) {
+            return new BufferedOutputStream(Files.newOutputStream(output.toPath()), OUTPUT_BUFFER_SIZE);
+        }
+        System.out.flush();
+        return new BufferedOutputStream(PGPCertDCli.standardOutput(), OUTPUT_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
     }
 }
@@ -4,6 +4,7 @@
 
 package pgp.cert_d.cli.commands;
 
+import org.pgpainless.certificate_store.PGPainlessCertD;
 import org.pgpainless.key.OpenPgpFingerprint;
 import pgp.cert_d.cli.PGPCertDCli;
 import picocli.CommandLine;
@@ -43,8 +44,10 @@ public class Find implements Runnable {
         }
 
         try {
-            Set<String> fingerprints = PGPCertDCli.getCertificateDirectory()
-                    .getCertificateFingerprintsForSubkeyId(subkeyId);
+            PGPainlessCertD directory = PGPCertDCli.getCertificateDirectory();
+            // A long-running daemon keeps its index open, while other processes might have changed the store
+            directory.catchUpSubkeyIndex();
+            Set<String> fingerprints = directory.getCertificateFingerprintsForSubkeyId(subkeyId);
             for (String fingerprint : fingerprints) {
                 // CHECKSTYLE:OFF
                 System.out.println(fingerprint);
@@ -7,6 +7,8 @@ package pgp.cert_d.cli.commands;
 import org.bouncycastle.openpgp.api.OpenPGPCertificate;
 import org.bouncycastle.util.io.Streams;
 import org.pgpainless.PGPainless;
+import org.pgpainless.certificate_store.BatchLookupResult;
+import org.pgpainless.certificate_store.ConditionalGetResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pgp.cert_d.SpecialNames;
@@ -17,6 +19,9 @@ import pgp.certificate_store.exception.BadNameException;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 @CommandLine.Command(name = "get",
@@ -27,19 +32,46 @@ public class Get implements Runnable {
 
     // https://www.cyberciti.biz/faq/linux-bash-exit-status-set-exit-statusin-bash/
     public static final int EXIT_CODE_NO_SUCH_ELEMENT = 2;
+    public static final int EXIT_CODE_UNCHANGED = 3;
     public static final int EXIT_CODE_IO_ERROR = 5;
 
     @CommandLine.Option(names = {"-a", "--armor"})
     boolean armor = false;
 
+    @CommandLine.Option(names = {"-j", "--jobs"},
+            paramLabel = "N")
+    int jobs = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = "--if-changed",
+            paramLabel = "TAG")
+    Long ifChanged;
+
+    @CommandLine.Option(names = "--print-tag")
+    boolean printTag = false;
+
     @CommandLine.Parameters(
             paramLabel = "IDENTIFIER",
-            arity = "1"
+            index = "0..*",
+            arity = "1..*"
     )
-    String identifier;
+    List<String> identifiers = new ArrayList<>();
 
     @Override
     public void run() {
+        if (ifChanged != null || printTag) {
+            if (identifiers.size() != 1 || SpecialNames.lookupSpecialName(identifiers.get(0)) != null) {
+                LOGGER.error("--if-changed and --print-tag require a single fingerprint.");
+                PGPCertDCli.exit(-1);
+            }
+            getIfChanged(identifiers.get(0).toLowerCase());
+        } else if (identifiers.size() == 1) {
+            getSingle(identifiers.get(0));
+        } else {
+            getBatch();
+        }
+    }
+
+    private void getSingle(String identifier) {
         try {
             KeyMaterial record;
             if (SpecialNames.lookupSpecialName(identifier) != null) {
@@ -51,27 +83,138 @@ public class Get implements Runnable {
                 return;
             }
 
-            if (armor) {
-                OpenPGPCertificate certOrKey = PGPainless.getInstance().readKey().parseCertificateOrKey(record.getInputStream());
-                // CHECKSTYLE:OFF
-                System.out.println(certOrKey.toAsciiArmoredString());
-                // CHECKSTYLE:ON
-            } else {
-                Streams.pipeAll(record.getInputStream(), System.out);
-            }
+            write(record);
 
         } catch (NoSuchElementException e) {
             LOGGER.debug("Certificate not found.", e);
-            System.exit(EXIT_CODE_NO_SUCH_ELEMENT);
+            PGPCertDCli.exit(EXIT_CODE_NO_SUCH_ELEMENT);
+        } catch (IOException e) {
+            LOGGER.error("IO Error", e);
+            PGPCertDCli.exit(EXIT_CODE_IO_ERROR);
+        } catch (BadDataException e) {
+            LOGGER.error("Certificate file contains bad data.", e);
+            PGPCertDCli.exit(-1);
+        } catch (BadNameException e) {
+            LOGGER.error("Certificate fingerprint mismatch.", e);
+            PGPCertDCli.exit(-1);
+        }
+    }
+
+    /**
+     * Output the certificate only if its tag differs from the one given via {@code --if-changed}.
+     * Only the file attributes are consulted if the certificate did not change.
+     * In that case, nothing is written and the command exits with {@link #EXIT_CODE_UNCHANGED}.
+     * With {@code --print-tag}, the current tag is written instead of the certificate.
+     */
+    private void getIfChanged(String fingerprint) {
+        try {
+            ConditionalGetResult result = PGPCertDCli.getCertificateDirectory().getIfChanged(fingerprint, ifChanged);
+            switch (result.getStatus()) {
+                case MISSING:
+                    LOGGER.debug("Certificate not found.");
+                    PGPCertDCli.exit(EXIT_CODE_NO_SUCH_ELEMENT);
+                    break;
+                case UNCHANGED:
+                    LOGGER.debug("Certificate unchanged.");
+                    if (printTag) {
+                        // CHECKSTYLE:OFF
+                        System.out.println(result.getTag());
+                        // CHECKSTYLE:ON
+                    }
+                    PGPCertDCli.exit(EXIT_CODE_UNCHANGED);
+                    break;
+                default:
+                    if (printTag) {
+                        // CHECKSTYLE:OFF
+                        System.out.println(result.getTag());
+                        // CHECKSTYLE:ON
+                    } else {
+                        write(result.getCertificate());
+                    }
+            }
         } catch (IOException e) {
             LOGGER.error("IO Error", e);
-            System.exit(EXIT_CODE_IO_ERROR);
+            PGPCertDCli.exit(EXIT_CODE_IO_ERROR);
         } catch (BadDataException e) {
             LOGGER.error("Certificate file contains bad data.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         } catch (BadNameException e) {
             LOGGER.error("Certificate fingerprint mismatch.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
+        }
+    }
+
+    /**
+     * Look up all fingerprints in a single batch and output the found records in the order of the arguments.
+     * Special names are resolved one by one.
+     * If any identifier cannot be found, the command exits with {@link #EXIT_CODE_NO_SUCH_ELEMENT} after
+     * writing all found records.
+     */
+    private void getBatch() {
+        List<String> fingerprints = new ArrayList<>();
+        for (String identifier : identifiers) {
+            if (SpecialNames.lookupSpecialName(identifier) == null) {
+                fingerprints.add(identifier.toLowerCase());
+            }
+        }
+
+        try {
+            BatchLookupResult result = PGPCertDCli.getCertificateDirectory().getByFingerprints(fingerprints, jobs);
+            for (Map.Entry<String, Exception> failure : result.getFailed().entrySet()) {
+                LOGGER.error("Cannot read certificate " + failure.getKey(), failure.getValue());
+            }
+
+            boolean failed = !result.getFailed().isEmpty();
+            boolean missing = false;
+            for (String identifier : identifiers) {
+                KeyMaterial record;
+                if (SpecialNames.lookupSpecialName(identifier) != null) {
+                    try {
+                        record = PGPCertDCli.getCertificateDirectory().getBySpecialName(identifier);
+                    } catch (NoSuchElementException e) {
+                        record = null;
+                    } catch (BadDataException | BadNameException e) {
+                        LOGGER.error("Cannot read " + identifier, e);
+                        failed = true;
+                        continue;
+                    }
+                } else {
+                    record = result.get(identifier.toLowerCase());
+                    if (result.getFailed().containsKey(identifier.toLowerCase())) {
+                        continue;
+                    }
+                }
+                if (record == null) {
+                    LOGGER.debug("Certificate " + identifier + " not found.");
+                    missing = true;
+                    continue;
+                }
+                write(record);
+            }
+
+            if (failed) {
+                PGPCertDCli.exit(-1);
+            }
+            if (missing) {
+                PGPCertDCli.exit(EXIT_CODE_NO_SUCH_ELEMENT);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Thread interrupted while reading certificates.", e);
+            PGPCertDCli.exit(1);
+        } catch (IOException e) {
+            LOGGER.error("IO Error", e);
+            PGPCertDCli.exit(EXIT_CODE_IO_ERROR);
+        }
+    }
+
+    private void write(KeyMaterial record) throws IOException {
+        if (armor) {
+            OpenPGPCertificate certOrKey = PGPainless.getInstance().readKey().parseCertificateOrKey(record.getInputStream());
+            // CHECKSTYLE:OFF
+            System.out.println(certOrKey.toAsciiArmoredString());
+            // CHECKSTYLE:ON
+        } else {
+            Streams.pipeAll(record.getInputStream(), System.out);
         }
     }
 }
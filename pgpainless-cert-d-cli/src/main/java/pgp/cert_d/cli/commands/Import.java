@@ -4,18 +4,20 @@
 
 package pgp.cert_d.cli.commands;
 
-import org.bouncycastle.openpgp.api.OpenPGPCertificate;
-import org.pgpainless.PGPainless;
+import org.pgpainless.certificate_store.BatchInsertListener;
+import org.pgpainless.certificate_store.BatchInsertResult;
+import org.pgpainless.certificate_store.KeyMaterialSplitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.pgpainless.certificate_store.MergeCallbacks;
 import pgp.cert_d.cli.PGPCertDCli;
 import pgp.certificate_store.certificate.Certificate;
-import pgp.certificate_store.exception.BadDataException;
 import picocli.CommandLine;
 
 import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 
 @CommandLine.Command(name = "import",
         resourceBundle = "msg_import")
@@ -23,28 +25,56 @@ public class Import implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Import.class);
 
+    @CommandLine.Option(names = {"-j", "--jobs"},
+            paramLabel = "N")
+    int jobs = 1;
+
     @Override
     public void run() {
+        KeyMaterialSplitter certsOrKeys = new KeyMaterialSplitter(System.in);
         try {
-            java.util.List<OpenPGPCertificate> certsOrKeys = PGPainless.getInstance().readKey().parseKeysOrCertificates(System.in);
-            for (OpenPGPCertificate toInsert : certsOrKeys) {
-                try {
-                    Certificate inserted = PGPCertDCli.getCertificateDirectory().insert(
-                            new ByteArrayInputStream(toInsert.getEncoded()),
-                            MergeCallbacks.mergeWithExisting());
-                    LOGGER.info(inserted.getFingerprint());
-                } catch (BadDataException e) {
-                    LOGGER.error("Certificate " + toInsert.getKeyIdentifier() + " contains bad data.", e);
-                } catch (IOException e) {
-                    LOGGER.error("IO error importing certificate " + toInsert.getKeyIdentifier(), e);
-                } catch (InterruptedException e) {
-                    LOGGER.error("Thread interrupted while importing certificate " + toInsert.getKeyIdentifier(), e);
-                    System.exit(1);
-                }
+            BatchInsertResult result = PGPCertDCli.getCertificateDirectory().insertAll(
+                    asInputStreams(certsOrKeys),
+                    MergeCallbacks.mergeWithExisting(new MergeResultPrinter()),
+                    jobs,
+                    new LoggingListener());
+            if (certsOrKeys.getSkippedCount() != 0) {
+                LOGGER.warn("Skipped " + certsOrKeys.getSkippedCount() + " oversized items.");
+            }
+            LOGGER.info(result.toString());
+        } catch (UncheckedIOException e) {
+            LOGGER.error("IO-Error.", e.getCause());
+            PGPCertDCli.exit(1);
+        } catch (InterruptedException e) {
+            LOGGER.error("Thread interrupted while importing certificates.", e);
+            PGPCertDCli.exit(1);
+        }
+    }
+
+    private static Iterator<InputStream> asInputStreams(Iterator<byte[]> encodings) {
+        return new Iterator<InputStream>() {
+            @Override
+            public boolean hasNext() {
+                return encodings.hasNext();
+            }
+
+            @Override
+            public InputStream next() {
+                return new ByteArrayInputStream(encodings.next());
             }
-        } catch (IOException e) {
-            LOGGER.error("IO-Error.", e);
-            System.exit(1);
+        };
+    }
+
+    private static class LoggingListener implements BatchInsertListener {
+
+        @Override
+        public void onInserted(long index, Certificate inserted) {
+            LOGGER.info(inserted.getFingerprint());
+        }
+
+        @Override
+        public void onFailure(long index, Exception error) {
+            LOGGER.error("Cannot import item #" + index + ".", error);
         }
     }
 }
@@ -24,19 +24,19 @@ public class Insert implements Runnable {
     public void run() {
         try {
             Certificate certificate = PGPCertDCli.getCertificateDirectory()
-                    .insert(System.in, MergeCallbacks.mergeWithExisting());
+                    .insert(System.in, MergeCallbacks.mergeWithExisting(new MergeResultPrinter()));
             // CHECKSTYLE:OFF
             System.out.println(certificate.getFingerprint());
             // CHECKSTYLE:ON
         } catch (IOException e) {
             LOGGER.error("IO-Error.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         } catch (InterruptedException e) {
             LOGGER.error("Thread interrupted.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         } catch (BadDataException e) {
             LOGGER.error("Certificate contains bad data.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         }
     }
 }
@@ -4,10 +4,16 @@
 
 package pgp.cert_d.cli.commands;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pgp.cert_d.cli.PGPCertDCli;
-import pgp.certificate_store.certificate.Certificate;
 import picocli.CommandLine;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 @CommandLine.Command(name = "list",
@@ -15,15 +21,25 @@ import java.util.Iterator;
 )
 public class List implements Runnable {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(List.class);
+
+    @CommandLine.Option(names = "--validate")
+    boolean validate = false;
+
     @Override
     public void run() {
-        Iterator<Certificate> certificates = PGPCertDCli.getCertificateDirectory()
-                .items();
-        while (certificates.hasNext()) {
-            Certificate certificate = certificates.next();
-            // CHECKSTYLE:OFF
-            System.out.println(certificate.getFingerprint());
-            // CHECKSTYLE:ON
+        Iterator<String> fingerprints = PGPCertDCli.getCertificateDirectory()
+                .fingerprints(validate);
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            while (fingerprints.hasNext()) {
+                out.write(fingerprints.next());
+                out.write(System.lineSeparator());
+            }
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.error("IO Error", e);
+            PGPCertDCli.exit(-1);
         }
     }
 }
@@ -0,0 +1,25 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli.commands;
+
+import org.pgpainless.certificate_store.MergeListener;
+import org.pgpainless.certificate_store.MergeResult;
+
+/**
+ * {@link MergeListener} which prints changed certificates to stdout.
+ */
+class MergeResultPrinter implements MergeListener {
+
+    @Override
+    public void onMerged(MergeResult result) {
+        if (!result.isChanged()) {
+            return;
+        }
+        // In this case it is okay to print to stdout, since we are a CLI app
+        // CHECKSTYLE:OFF
+        System.out.println(result);
+        // CHECKSTYLE:ON
+    }
+}
@@ -0,0 +1,46 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli.commands;
+
+import org.pgpainless.certificate_store.ReindexResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pgp.cert_d.cli.PGPCertDCli;
+import picocli.CommandLine;
+
+@CommandLine.Command(name = "reindex",
+        resourceBundle = "msg_reindex")
+public class Reindex implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reindex.class);
+
+    @CommandLine.Option(names = {"-j", "--jobs"},
+            paramLabel = "N")
+    int jobs = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = "--verify")
+    boolean verify;
+
+    @Override
+    public void run() {
+        try {
+            ReindexResult result = verify ?
+                    PGPCertDCli.getCertificateDirectory().verifySubkeyLookup(jobs) :
+                    PGPCertDCli.getCertificateDirectory().reindex(jobs);
+            // CHECKSTYLE:OFF
+            for (ReindexResult.Entry entry : result.getMissing()) {
+                System.out.println("missing " + entry);
+            }
+            for (ReindexResult.Entry entry : result.getStale()) {
+                System.out.println("stale " + entry);
+            }
+            // CHECKSTYLE:ON
+            LOGGER.info(result.toString());
+        } catch (InterruptedException e) {
+            LOGGER.error("Thread interrupted while reindexing certificates.", e);
+            PGPCertDCli.exit(1);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli.commands;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pgp.cert_d.cli.Daemon;
+import pgp.cert_d.cli.PGPCertDCli;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+
+@CommandLine.Command(name = "serve",
+        resourceBundle = "msg_serve")
+public class Serve implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Serve.class);
+
+    // Time to wait for the store to be closed when the process is terminated
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    @Override
+    public void run() {
+        File socket = Daemon.socket(PGPCertDCli.getBaseDirectory());
+        Daemon daemon;
+        try {
+            daemon = new Daemon(socket);
+        } catch (IOException e) {
+            LOGGER.error("Cannot listen on " + socket.getAbsolutePath(), e);
+            PGPCertDCli.exit(-1);
+            return;
+        }
+
+        // On termination, stop accepting clients and wait until the store was closed
+        Thread serving = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            try {
+                daemon.close();
+                serving.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (IOException | InterruptedException e) {
+                // Exiting anyway
+            }
+        }, "cert-d-daemon-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        LOGGER.info("Serving " + PGPCertDCli.getBaseDirectory().getAbsolutePath() +
+                " on " + socket.getAbsolutePath());
+        try {
+            daemon.serve();
+        } catch (IOException e) {
+            LOGGER.error("Cannot accept clients.", e);
+        } finally {
+            try {
+                daemon.close();
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IOException | IllegalStateException e) {
+                // Shutting down
+            }
+        }
+    }
+}
@@ -70,10 +70,10 @@ public class Setup implements Runnable {
             throw new RuntimeException(e);
         } catch (IOException e) {
             LOGGER.error("IO error.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         } catch (InterruptedException e) {
             LOGGER.error("Thread interrupted.", e);
-            System.exit(-1);
+            PGPCertDCli.exit(-1);
         }
     }
 
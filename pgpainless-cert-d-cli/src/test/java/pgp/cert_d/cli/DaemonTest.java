@@ -0,0 +1,147 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.cli;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.certificate_store.PGPainlessCertD;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import picocli.CommandLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class DaemonTest {
+
+    private File socket;
+    private Daemon daemon;
+    private Thread serving;
+
+    @BeforeEach
+    public void startDaemon() throws IOException {
+        assumeTrue(UnixDomainSockets.isSupported(), "Unix domain sockets require Java 16");
+        InstantiateCLI.setInMemoryStore();
+        File directory = Files.createTempDirectory("pgp.cert.d-daemon-").toFile();
+        directory.deleteOnExit();
+        socket = Daemon.socket(directory);
+        daemon = new Daemon(socket);
+        serving = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.start();
+    }
+
+    @AfterEach
+    public void stopDaemon() throws IOException, InterruptedException {
+        if (daemon != null) {
+            daemon.close();
+            serving.join();
+        }
+        InstantiateCLI.resetStore();
+    }
+
+    @Test
+    public void forwardInsertAndGet() throws IOException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+
+        ByteArrayOutputStream inserted = new ByteArrayOutputStream();
+        assertEquals(0, forward(new ByteArrayInputStream(cert.getEncoded()), inserted, "insert"));
+        assertEquals(fingerprint, inserted.toString(StandardCharsets.UTF_8.name()).trim());
+
+        ByteArrayOutputStream got = new ByteArrayOutputStream();
+        assertEquals(0, forward(new ByteArrayInputStream(new byte[0]), got, "get", fingerprint));
+        assertArrayEquals(cert.getEncoded(), got.toByteArray());
+
+        ByteArrayOutputStream missing = new ByteArrayOutputStream();
+        assertEquals(2, forward(new ByteArrayInputStream(new byte[0]), missing,
+                "get", "eb85bb5fa33a75e15e944e63f231550c4f47e38e"));
+    }
+
+    @Test
+    public void rejectUnsupportedCommands() throws IOException {
+        assertEquals(Daemon.EXIT_CODE_UNSUPPORTED_COMMAND,
+                forward(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), "setup"));
+    }
+
+    @Test
+    public void forwardedCommandsReportTheirExitCode() {
+        File baseDirectory = socket.getParentFile().getParentFile();
+        // Without a store of its own, the CLI forwards to the daemon
+        PGPainlessCertD store = PGPCertDCli.getCertificateDirectory();
+        InstantiateCLI.resetStore();
+        int exitCode;
+        try {
+            exitCode = InstantiateCLI.execute("--store", baseDirectory.getAbsolutePath(),
+                    "get", "--print-tag", "eb85bb5fa33a75e15e944e63f231550c4f47e38e",
+                    "d1a66e1a23b182c9980f788cfbfcc82a015e7330");
+        } finally {
+            PGPCertDCli.certificateDirectory = store;
+        }
+        assertEquals(-1, exitCode);
+    }
+
+    @Test
+    public void closingRemovesSocket() throws IOException, InterruptedException {
+        assertNotNull(DaemonClient.connect(socket));
+        daemon.close();
+        serving.join();
+        assertFalse(socket.exists());
+        assertNull(DaemonClient.connect(socket));
+    }
+
+    @Test
+    public void socketDirectoryIsOwnerOnly() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        assertEquals(PosixFilePermissions.fromString("rwx------"),
+                Files.getPosixFilePermissions(socket.getParentFile().toPath()));
+    }
+
+    @Test
+    public void fileOptionsAreResolvedByTheClient() {
+        CommandLine.ParseResult parseResult = new CommandLine(new PGPCertDCli())
+                .setOverwrittenOptionsAllowed(true)
+                .parseArgs("export", "--output", "certs.pgp", "-o=a.pgp", "-ob.pgp", "--armor");
+        String workingDirectory = new File("").getAbsolutePath();
+        assertEquals(Arrays.asList("export",
+                        "--output", new File(workingDirectory, "certs.pgp").getPath(),
+                        "-o=" + new File(workingDirectory, "a.pgp").getPath(),
+                        "-o" + new File(workingDirectory, "b.pgp").getPath(),
+                        "--armor"),
+                PGPCertDCli.resolveFileOptions(parseResult));
+    }
+
+    private int forward(InputStream stdin, ByteArrayOutputStream stdout, String... arguments) throws IOException {
+        SocketChannel channel = DaemonClient.connect(socket);
+        assertNotNull(channel);
+        return DaemonClient.forward(channel, Arrays.asList(arguments), stdin, stdout, new ByteArrayOutputStream());
+    }
+}
@@ -15,4 +15,8 @@ public class InstantiateCLI {
     public static void setInMemoryStore() {
         PGPCertDCli.certificateDirectory = PGPainlessCertD.inMemory();
     }
+
+    public static int execute(String... args) {
+        return PGPCertDCli.execute(args);
+    }
 }
@@ -55,7 +55,7 @@ public class SetupTest {
             throws BadDataException, IOException {
         assertThrows(NoSuchElementException.class, () -> store.getTrustRoot());
 
-        PGPCertDCli.main(new String[] {"setup"});
+        assertEquals(0, InstantiateCLI.execute("setup"));
         KeyMaterial trustRoot = store.getTrustRoot();
         assertNotNull(trustRoot);
         assertInstanceOf(Key.class, trustRoot);
@@ -70,7 +70,7 @@ public class SetupTest {
             throws BadDataException, IOException {
         assertThrows(NoSuchElementException.class, () -> store.getTrustRoot());
 
-        PGPCertDCli.main(new String[] {"setup", "--with-password", "sw0rdf1sh"});
+        assertEquals(0, InstantiateCLI.execute("setup", "--with-password", "sw0rdf1sh"));
         KeyMaterial trustRoot = store.getTrustRoot();
         assertNotNull(trustRoot);
         assertInstanceOf(Key.class, trustRoot);
@@ -98,7 +98,7 @@ public class SetupTest {
 
         InputStream originalStdin = System.in;
         System.setIn(trustRootIn);
-        PGPCertDCli.main(new String[] {"setup", "--import-from-stdin"});
+        assertEquals(0, InstantiateCLI.execute("setup", "--import-from-stdin"));
         System.setIn(originalStdin);
 
         KeyMaterial importedTrustRoot = store.getTrustRoot();
@@ -110,13 +110,13 @@ public class SetupTest {
             throws BadDataException, IOException {
         assertThrows(NoSuchElementException.class, () -> store.getTrustRoot());
 
-        PGPCertDCli.main(new String[] {"setup"});
+        assertEquals(0, InstantiateCLI.execute("setup"));
         KeyMaterial trustRoot = store.getTrustRoot();
         assertNotNull(trustRoot);
         String fingerprint = trustRoot.getFingerprint();
 
         // Override trust-root by calling setup again
-        PGPCertDCli.main(new String[] {"setup"});
+        assertEquals(0, InstantiateCLI.execute("setup"));
         trustRoot = store.getTrustRoot();
         assertNotNull(trustRoot);
 
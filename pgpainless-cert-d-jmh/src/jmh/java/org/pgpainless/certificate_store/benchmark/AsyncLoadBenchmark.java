@@ -0,0 +1,117 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgpainless.certificate_store.AsyncPGPainlessCertD;
+import org.pgpainless.certificate_store.KeyMaterialReader;
+import org.pgpainless.certificate_store.MergeCallbacks;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load benchmark of the {@link AsyncPGPainlessCertD} facade on a file based store, as used by a server handling
+ * many concurrent requests.
+ * Each invocation submits a burst of concurrent requests, 80% lookups by fingerprint, 10% lookups by subkey-id
+ * and 10% inserts of certificates which are already part of the store, and waits for all of them.
+ * Requests are executed on a cached pool of platform threads or, on Java 21 and newer, on virtual threads.
+ * The virtual thread executor fails on older runtimes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncLoadBenchmark {
+
+    @Param({"10000"})
+    public int storeSize;
+
+    @Param({"100", "1000", "10000"})
+    public int concurrentRequests;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    private ExecutorService executorService;
+    private AsyncPGPainlessCertD async;
+    private List<byte[]> certificates;
+    private String[] fingerprints;
+    private long[] subkeyIds;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException, NotAStoreException, BadDataException {
+        switch (executor) {
+            case "platform":
+                executorService = Executors.newCachedThreadPool();
+                break;
+            case "virtual":
+                executorService = AsyncPGPainlessCertD.newVirtualThreadPerTaskExecutor();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown executor " + executor);
+        }
+        async = new AsyncPGPainlessCertD(Fixtures.fileBasedStore(storeSize), executorService);
+
+        certificates = Fixtures.certificates(storeSize);
+        KeyMaterialReader reader = new KeyMaterialReader();
+        fingerprints = new String[certificates.size()];
+        subkeyIds = new long[certificates.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            Certificate certificate = reader.read(new ByteArrayInputStream(certificates.get(i)), null).asCertificate();
+            fingerprints[i] = certificate.getFingerprint();
+            subkeyIds[i] = certificate.getSubkeyIds().get(certificate.getSubkeyIds().size() - 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+        async.getDirectory().close();
+    }
+
+    @Benchmark
+    public void mixedLoad() throws ExecutionException, InterruptedException {
+        CompletableFuture<?>[] requests = new CompletableFuture[concurrentRequests];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < requests.length; i++) {
+            int certificate = random.nextInt(fingerprints.length);
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                requests[i] = async.insert(new ByteArrayInputStream(certificates.get(certificate)),
+                        MergeCallbacks.mergeWithExisting());
+            } else if (kind == 1) {
+                requests[i] = async.find(subkeyIds[certificate]);
+            } else {
+                requests[i] = async.get(fingerprints[certificate]);
+            }
+        }
+        CompletableFuture.allOf(requests).get();
+    }
+}
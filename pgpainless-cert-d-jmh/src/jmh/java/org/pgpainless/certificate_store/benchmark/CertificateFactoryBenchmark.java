@@ -0,0 +1,57 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.certificate_store.CertificateFactory;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link CertificateFactory#certificateFromOpenPGPCertificate(OpenPGPCertificate, Long)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CertificateFactoryBenchmark {
+
+    @Param({"v4", "v6"})
+    public String keyVersion;
+
+    private byte[] encoding;
+
+    @Setup
+    public void setup() throws IOException {
+        encoding = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.valueOf(keyVersion))
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate()
+                .getEncoded();
+    }
+
+    @Benchmark
+    public Certificate certificateFromOpenPGPCertificate() throws IOException {
+        // Parse a fresh instance each time, since OpenPGPCertificate caches signature verification results
+        OpenPGPCertificate certificate = PGPainless.getInstance().readKey().parseCertificate(encoding);
+        return CertificateFactory.certificateFromOpenPGPCertificate(certificate, null);
+    }
+}
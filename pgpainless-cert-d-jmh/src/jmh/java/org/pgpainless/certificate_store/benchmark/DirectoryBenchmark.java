@@ -0,0 +1,91 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pgpainless.certificate_store.KeyMaterialReader;
+import org.pgpainless.certificate_store.PGPainlessCertD;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for reading certificates from in-memory and file based {@link PGPainlessCertD PGPainlessCertDs}
+ * of different sizes.
+ * Fixture stores are generated on first use, which can take a long time for the larger sizes.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DirectoryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int storeSize;
+
+    @Param({"inMemory", "fileBased"})
+    public String backend;
+
+    private PGPainlessCertD directory;
+    private String[] fingerprints;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException, NotAStoreException, BadDataException {
+        switch (backend) {
+            case "inMemory":
+                directory = Fixtures.inMemoryStore(storeSize);
+                break;
+            case "fileBased":
+                directory = Fixtures.fileBasedStore(storeSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend " + backend);
+        }
+
+        List<byte[]> certificates = Fixtures.certificates(storeSize);
+        KeyMaterialReader reader = new KeyMaterialReader();
+        fingerprints = new String[certificates.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = reader.read(new ByteArrayInputStream(certificates.get(i)), null).getFingerprint();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Certificate getByFingerprint() throws IOException, BadNameException, BadDataException {
+        String fingerprint = fingerprints[ThreadLocalRandom.current().nextInt(fingerprints.length)];
+        return directory.getByFingerprint(fingerprint);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void items(Blackhole blackhole) {
+        Iterator<Certificate> items = directory.items();
+        while (items.hasNext()) {
+            blackhole.consume(items.next());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.api.OpenPGPKey;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.KeyFlag;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.certificate_store.KeyMaterialSplitter;
+import org.pgpainless.certificate_store.MergeCallbacks;
+import org.pgpainless.certificate_store.PGPainlessCertD;
+import org.pgpainless.key.generation.KeyRingBuilder;
+import org.pgpainless.key.generation.KeySpec;
+import org.pgpainless.key.generation.type.KeyType;
+import org.pgpainless.key.generation.type.eddsa_legacy.EdDSALegacyCurve;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookupFactory;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Generated benchmark fixtures.
+ * Generating keys is expensive, so fixtures are cached in the directory given by the system property
+ * {@code pgpainless.jmh.fixtures} and reused by later benchmark runs and forks.
+ */
+final class Fixtures {
+
+    private static final File FIXTURE_DIR = new File(
+            System.getProperty("pgpainless.jmh.fixtures", "build/jmh-fixtures"));
+    private static final File CERTIFICATES = new File(FIXTURE_DIR, "certificates.pgp");
+
+    private Fixtures() {
+
+    }
+
+    /**
+     * Return the binary encodings of {@code count} distinct certificates.
+     * Missing certificates are generated and appended to the fixture file.
+     *
+     * @param count number of certificates
+     * @return encodings
+     * @throws IOException if the fixture file cannot be read or written
+     */
+    static synchronized List<byte[]> certificates(int count) throws IOException {
+        List<byte[]> certificates = new ArrayList<>(count);
+        if (CERTIFICATES.exists()) {
+            try (KeyMaterialSplitter splitter = new KeyMaterialSplitter(
+                    new BufferedInputStream(new FileInputStream(CERTIFICATES)))) {
+                while (certificates.size() < count && splitter.hasNext()) {
+                    certificates.add(splitter.next());
+                }
+            }
+        }
+
+        if (certificates.size() < count) {
+            mkdirs(FIXTURE_DIR);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(CERTIFICATES, true))) {
+                while (certificates.size() < count) {
+                    byte[] certificate = generateCertificate(certificates.size());
+                    out.write(certificate);
+                    certificates.add(certificate);
+                }
+            }
+        }
+        return certificates;
+    }
+
+    /**
+     * Return a file based {@link PGPainlessCertD} containing the first {@code count} fixture certificates.
+     * The directory is populated only once and reused afterwards.
+     *
+     * @param count number of certificates
+     * @return certificate directory
+     * @throws IOException if the directory cannot be populated
+     * @throws InterruptedException if interrupted while populating the directory
+     * @throws NotAStoreException if the directory cannot be used as a certificate store
+     */
+    static synchronized PGPainlessCertD fileBasedStore(int count)
+            throws IOException, InterruptedException, NotAStoreException {
+        File baseDirectory = new File(FIXTURE_DIR, "store-" + count);
+        File complete = new File(FIXTURE_DIR, "store-" + count + ".complete");
+        mkdirs(baseDirectory);
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new InMemorySubkeyLookupFactory());
+        if (!complete.exists()) {
+            insertAll(directory, certificates(count));
+            if (!complete.createNewFile()) {
+                throw new IOException("Cannot create " + complete.getAbsolutePath());
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * Return an in-memory {@link PGPainlessCertD} containing the first {@code count} fixture certificates.
+     *
+     * @param count number of certificates
+     * @return certificate directory
+     * @throws IOException if the fixtures cannot be read
+     * @throws InterruptedException if interrupted while populating the directory
+     */
+    static PGPainlessCertD inMemoryStore(int count) throws IOException, InterruptedException {
+        PGPainlessCertD directory = PGPainlessCertD.inMemory();
+        insertAll(directory, certificates(count));
+        return directory;
+    }
+
+    /**
+     * Generate a key with the given number of user-ids.
+     *
+     * @param userIds number of user-ids
+     * @return key
+     */
+    static OpenPGPKey generateKey(int userIds) {
+        KeyRingBuilder builder = keyBuilder();
+        for (int i = 0; i < userIds; i++) {
+            builder.addUserId("User " + i + " <user" + i + "@pgpainless.org>");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the binary encoding of the certificate of the given key, stripped down to its first
+     * {@code userIds} user-ids.
+     *
+     * @param key key
+     * @param userIds number of user-ids to keep
+     * @return encoding
+     * @throws IOException if the certificate cannot be encoded
+     */
+    static byte[] withUserIds(OpenPGPKey key, int userIds) throws IOException {
+        PGPPublicKeyRing certificate = key.toCertificate().getPGPPublicKeyRing();
+        PGPPublicKey primaryKey = certificate.getPublicKey();
+        List<String> allUserIds = new ArrayList<>();
+        Iterator<String> iterator = primaryKey.getUserIDs();
+        while (iterator.hasNext()) {
+            allUserIds.add(iterator.next());
+        }
+        for (String userId : allUserIds.subList(userIds, allUserIds.size())) {
+            primaryKey = PGPPublicKey.removeCertification(primaryKey, userId);
+        }
+        return PGPPublicKeyRing.insertPublicKey(certificate, primaryKey).getEncoded();
+    }
+
+    private static KeyRingBuilder keyBuilder() {
+        // A single Ed25519 primary key keeps generating large fixture sets affordable
+        return PGPainless.getInstance().buildKey(OpenPGPKeyVersion.v4)
+                .setPrimaryKey(KeySpec.getBuilder(
+                        KeyType.EDDSA_LEGACY(EdDSALegacyCurve._Ed25519), KeyFlag.CERTIFY_OTHER, KeyFlag.SIGN_DATA));
+    }
+
+    private static byte[] generateCertificate(int index) throws IOException {
+        OpenPGPKey key = keyBuilder()
+                .addUserId("Fixture " + index + " <fixture" + index + "@pgpainless.org>")
+                .build();
+        return key.toCertificate().getEncoded();
+    }
+
+    private static void insertAll(PGPainlessCertD directory, List<byte[]> certificates)
+            throws InterruptedException {
+        Iterator<byte[]> encodings = certificates.iterator();
+        Iterator<InputStream> items = new Iterator<InputStream>() {
+            @Override
+            public boolean hasNext() {
+                return encodings.hasNext();
+            }
+
+            @Override
+            public InputStream next() {
+                return new ByteArrayInputStream(encodings.next());
+            }
+        };
+        directory.insertAll(items, MergeCallbacks.overrideExisting(), Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void mkdirs(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.certificate_store.KeyMaterialReader;
+import org.pgpainless.certificate_store.SubkeyIdExtraction;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link KeyMaterialReader#read(java.io.InputStream, Long)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyMaterialReaderBenchmark {
+
+    @Param({"v4", "v6"})
+    public String keyVersion;
+
+    @Param({"ALL_KEYS", "VALID_KEYS"})
+    public String extraction;
+
+    private KeyMaterialReader reader;
+    private byte[] certificate;
+    private byte[] armoredCertificate;
+
+    @Setup
+    public void setup() throws IOException {
+        OpenPGPKeyVersion version = OpenPGPKeyVersion.valueOf(keyVersion);
+        reader = new KeyMaterialReader(SubkeyIdExtraction.valueOf(extraction));
+        certificate = PGPainless.getInstance().generateKey(version)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate()
+                .getEncoded();
+        armoredCertificate = PGPainless.getInstance().readKey().parseCertificate(certificate)
+                .toAsciiArmoredString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public KeyMaterial readBinary() throws IOException, BadDataException {
+        return reader.read(new ByteArrayInputStream(certificate), null);
+    }
+
+    @Benchmark
+    public KeyMaterial readArmored() throws IOException, BadDataException {
+        return reader.read(new ByteArrayInputStream(armoredCertificate), null);
+    }
+
+    @Benchmark
+    public List<Long> readAndEvaluateSubkeyIds() throws IOException, BadDataException {
+        Certificate read = (Certificate) reader.read(new ByteArrayInputStream(certificate), null);
+        return read.getSubkeyIds();
+    }
+}
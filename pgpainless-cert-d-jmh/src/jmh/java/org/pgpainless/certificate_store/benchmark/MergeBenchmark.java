@@ -0,0 +1,78 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.bouncycastle.openpgp.api.OpenPGPKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgpainless.certificate_store.KeyMaterialReader;
+import org.pgpainless.certificate_store.MergeCallbacks;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link MergeCallbacks#mergeWithExisting()}.
+ * The existing certificate carries a single user-id. The update is either the same certificate ({@code noop}),
+ * carries one additional user-id ({@code smallDelta}) or fifty additional user-ids ({@code largeDelta}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MergeBenchmark {
+
+    private static final int LARGE_DELTA = 50;
+
+    @Param({"noop", "smallDelta", "largeDelta"})
+    public String delta;
+
+    private final KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting();
+    private KeyMaterial existing;
+    private KeyMaterial update;
+
+    @Setup
+    public void setup() throws IOException, BadDataException {
+        OpenPGPKey key = Fixtures.generateKey(1 + LARGE_DELTA);
+        existing = read(Fixtures.withUserIds(key, 1));
+        switch (delta) {
+            case "noop":
+                update = read(Fixtures.withUserIds(key, 1));
+                break;
+            case "smallDelta":
+                update = read(Fixtures.withUserIds(key, 2));
+                break;
+            case "largeDelta":
+                update = read(Fixtures.withUserIds(key, 1 + LARGE_DELTA));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown delta " + delta);
+        }
+    }
+
+    @Benchmark
+    public KeyMaterial merge() throws IOException {
+        return merger.merge(update, existing);
+    }
+
+    private static KeyMaterial read(byte[] encoding) throws IOException, BadDataException {
+        return new KeyMaterialReader().read(new ByteArrayInputStream(encoding), null);
+    }
+}
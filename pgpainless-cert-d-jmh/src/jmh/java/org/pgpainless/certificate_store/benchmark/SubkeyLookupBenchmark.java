@@ -0,0 +1,95 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store.benchmark;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgpainless.certificate_store.PrimitiveSubkeyLookup;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for subkey-id lookups.
+ * Lookups do not depend on the certificates themselves, so the lookup is populated with random
+ * fingerprints and subkey-ids, three per certificate.
+ * The boxed {@link InMemorySubkeyLookup} is compared to the {@link PrimitiveSubkeyLookup} on and off the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SubkeyLookupBenchmark {
+
+    private static final int SUBKEYS_PER_CERTIFICATE = 3;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int storeSize;
+
+    @Param({"boxed", "primitive", "offHeap"})
+    public String implementation;
+
+    private SubkeyLookup lookup;
+    private long[] subkeyIds;
+
+    @Setup
+    public void setup() throws IOException {
+        lookup = createLookup();
+        subkeyIds = new long[storeSize * SUBKEYS_PER_CERTIFICATE];
+        Random random = new Random(storeSize);
+        byte[] fingerprint = new byte[20];
+        for (int i = 0; i < storeSize; i++) {
+            random.nextBytes(fingerprint);
+            Long[] ids = new Long[SUBKEYS_PER_CERTIFICATE];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = random.nextLong();
+                subkeyIds[i * SUBKEYS_PER_CERTIFICATE + j] = ids[j];
+            }
+            lookup.storeCertificateSubkeyIds(Hex.toHexString(fingerprint), Arrays.asList(ids));
+        }
+    }
+
+    private SubkeyLookup createLookup() {
+        switch (implementation) {
+            case "boxed":
+                return new InMemorySubkeyLookup();
+            case "primitive":
+                return new PrimitiveSubkeyLookup(storeSize * SUBKEYS_PER_CERTIFICATE, false);
+            case "offHeap":
+                return new PrimitiveSubkeyLookup(storeSize * SUBKEYS_PER_CERTIFICATE, true);
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+
+    @Benchmark
+    public Set<String> lookupKnownSubkeyId() throws IOException {
+        return lookup.getCertificateFingerprintsForSubkeyId(
+                subkeyIds[ThreadLocalRandom.current().nextInt(subkeyIds.length)]);
+    }
+
+    @Benchmark
+    public Set<String> lookupUnknownSubkeyId() throws IOException {
+        return lookup.getCertificateFingerprintsForSubkeyId(ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -0,0 +1,290 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts certificates into a {@link PGPainlessCertD} asynchronously.
+ * Submitted certificates are parsed and merged with the existing certificate by a pool of worker threads.
+ * Merged certificates are handed to a single writer thread, which commits them to the directory one after
+ * another. If the certificate was changed between merging and committing, e.g. by another insert of the same
+ * certificate, the writer merges the update again.
+ * The writer hands the parsed certificate to the directory, so it is not parsed again. Certificates, which the
+ * merge did not change, are not written at all, as long as their tag shows that they are still unchanged.
+ * <p>
+ * The number of pending inserts is bounded. Once the bound is reached, {@link #submit(InputStream,
+ * KeyMaterialMerger) submit()} blocks until an insert completed, while {@link #trySubmit(InputStream,
+ * KeyMaterialMerger) trySubmit()} gives up immediately. Submitting threads therefore slow down to the
+ * rate at which certificates can be written, instead of queuing an unbounded amount of data.
+ * <p>
+ * Inserts of different submissions complete in no particular order.
+ * Backends, which do not assign tags to certificates, cannot tell whether a certificate changed after it was
+ * merged, so the writer merges every update again.
+ */
+public final class AsyncInserter implements Closeable {
+
+    private static final Request CLOSE = new Request(null, null, null);
+
+    private final PGPainlessCertD directory;
+    private final KeyMaterialReader reader;
+    private final int capacity;
+    private final Semaphore permits;
+    private final BlockingQueue<Request> submitted = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Request> merged = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    AsyncInserter(PGPainlessCertD directory, KeyMaterialReader reader, int capacity, int parallelism) {
+        if (capacity < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Capacity and parallelism MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.reader = reader;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        for (int i = 0; i < parallelism; i++) {
+            Thread worker = new Thread(this::merge, "cert-d-async-insert-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        this.writer = new Thread(this::write, "cert-d-async-insert-writer");
+        writer.setDaemon(true);
+        workers.forEach(Thread::start);
+        writer.start();
+    }
+
+    /**
+     * Submit a certificate for insertion.
+     * The input stream is read by the calling thread. If the maximum number of pending inserts is reached,
+     * the calling thread blocks until an insert completed.
+     * The returned future completes with the merged certificate once it was written, or exceptionally if the
+     * certificate cannot be parsed, merged or written.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @return future merged certificate
+     * @throws IOException if the input stream cannot be read or the inserter is closed
+     * @throws InterruptedException if the calling thread gets interrupted while waiting
+     */
+    public CompletableFuture<Certificate> submit(InputStream data, KeyMaterialMerger merge)
+            throws IOException, InterruptedException {
+        byte[] bytes = Streams.readAll(data);
+        checkOpen();
+        permits.acquire();
+        return enqueue(bytes, merge);
+    }
+
+    /**
+     * Submit a certificate for insertion, unless the maximum number of pending inserts is reached.
+     * The input stream is only read if the certificate is accepted.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @return future merged certificate, or null if the certificate was not accepted
+     * @throws IOException if the input stream cannot be read or the inserter is closed
+     */
+    public CompletableFuture<Certificate> trySubmit(InputStream data, KeyMaterialMerger merge) throws IOException {
+        checkOpen();
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Streams.readAll(data);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return enqueue(bytes, merge);
+    }
+
+    /**
+     * Submit a certificate for insertion, waiting up to the given time if the maximum number of pending
+     * inserts is reached.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return future merged certificate, or null if the certificate was not accepted in time
+     * @throws IOException if the input stream cannot be read or the inserter is closed
+     * @throws InterruptedException if the calling thread gets interrupted while waiting
+     */
+    public CompletableFuture<Certificate> trySubmit(InputStream data, KeyMaterialMerger merge,
+                                                    long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        byte[] bytes = Streams.readAll(data);
+        checkOpen();
+        if (!permits.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return enqueue(bytes, merge);
+    }
+
+    /**
+     * Return the number of submitted inserts, which have not completed yet.
+     *
+     * @return number of pending inserts
+     */
+    public int getPendingCount() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * Complete all pending inserts and stop the worker and writer threads.
+     * Submissions after closing fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (int i = 0; i < workers.size(); i++) {
+            submitted.add(CLOSE);
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            merged.add(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Async inserter is closed.");
+        }
+    }
+
+    private CompletableFuture<Certificate> enqueue(byte[] bytes, KeyMaterialMerger merge) throws IOException {
+        Request request = new Request(bytes, merge, new CompletableFuture<>());
+        request.result.whenComplete((certificate, error) -> permits.release());
+        submitted.add(request);
+        if (closed && submitted.remove(request)) {
+            // The workers might already be gone
+            IOException error = new IOException("Async inserter is closed.");
+            request.result.completeExceptionally(error);
+            throw error;
+        }
+        return request.result;
+    }
+
+    private void merge() {
+        while (true) {
+            Request request;
+            try {
+                request = submitted.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request == CLOSE) {
+                return;
+            }
+            try {
+                request.update = reader.read(new ByteArrayInputStream(request.bytes), null);
+                request.existing = readExisting(request.update.getFingerprint());
+                request.merged = request.merge.merge(request.update, request.existing);
+                merged.add(request);
+            } catch (Throwable e) {
+                // Complete the future whatever happens, otherwise its permit would never be released
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Certificate readExisting(String fingerprint) throws BadDataException, BadNameException, IOException {
+        try {
+            return directory.getByFingerprint(fingerprint);
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private void write() {
+        while (true) {
+            Request request;
+            try {
+                request = merged.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request == CLOSE) {
+                return;
+            }
+            try {
+                request.result.complete(write(request));
+            } catch (Throwable e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Certificate write(Request request)
+            throws BadDataException, BadNameException, IOException, InterruptedException {
+        if (request.merged == request.existing && request.existing != null) {
+            Long tag = request.existing.getTag();
+            if (tag != null && tag.equals(directory.getTag(request.existing.getFingerprint()))) {
+                // Nothing to write, and the certificate read by the worker is still current
+                return request.existing;
+            }
+        }
+        // The directory takes the update parsed by the worker instead of parsing the data again
+        return directory.insert(new ParsedKeyMaterialStream(request.bytes, request.update, reader),
+                (data, existing) -> commit(request, existing));
+    }
+
+    /**
+     * Return the certificate to be written, given the current certificate in the directory.
+     * The result of the worker is used, if the certificate was not changed since the worker read it.
+     */
+    private static KeyMaterial commit(Request request, KeyMaterial existing) throws IOException {
+        boolean unchanged = existing == null
+                ? request.existing == null
+                : request.existing != null && existing.getTag() != null
+                        && existing.getTag().equals(request.existing.getTag());
+        if (!unchanged) {
+            return request.merge.merge(request.update, existing);
+        }
+        // Backends recognize unchanged certificates by identity
+        return request.merged == request.existing ? existing : request.merged;
+    }
+
+    private static final class Request {
+        private final byte[] bytes;
+        private final KeyMaterialMerger merge;
+        private final CompletableFuture<Certificate> result;
+        // Set by the worker
+        private KeyMaterial update;
+        private Certificate existing;
+        private KeyMaterial merged;
+
+        private Request(byte[] bytes, KeyMaterialMerger merge, CompletableFuture<Certificate> result) {
+            this.bytes = bytes;
+            this.merge = merge;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous facade of a {@link PGPainlessCertD}, which executes lookups and inserts on an {@link Executor}
+ * and reports their outcome via {@link CompletableFuture CompletableFutures}.
+ * Failures complete the returned future exceptionally with the exception thrown by the directory.
+ * <p>
+ * Operations of the directory block on file I/O and on locks. On Java 21 and newer, {@link #withVirtualThreads}
+ * executes each operation on its own virtual thread, so that blocked operations do not occupy platform threads.
+ * The directory only uses {@link java.util.concurrent.locks.Lock Locks} around file I/O, so virtual threads
+ * waiting for I/O or locks are unmounted from their carrier thread.
+ */
+public final class AsyncPGPainlessCertD implements Closeable {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method method;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            // Runtime older than Java 21
+            method = null;
+        }
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = method;
+    }
+
+    private final PGPainlessCertD directory;
+    private final Executor executor;
+    // Executor created by this facade, which is shut down on close
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Create a facade executing operations on the given executor.
+     * Closing the facade neither shuts down the executor, nor closes the directory.
+     *
+     * @param directory certificate directory
+     * @param executor executor
+     */
+    public AsyncPGPainlessCertD(PGPainlessCertD directory, Executor executor) {
+        this(directory, executor, null);
+    }
+
+    private AsyncPGPainlessCertD(PGPainlessCertD directory, Executor executor, ExecutorService ownedExecutor) {
+        this.directory = directory;
+        this.executor = executor;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    /**
+     * Create a facade executing each operation on a new virtual thread.
+     * Closing the facade waits for running operations to finish, but does not close the directory.
+     *
+     * @param directory certificate directory
+     * @return facade
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public static AsyncPGPainlessCertD withVirtualThreads(PGPainlessCertD directory) {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return new AsyncPGPainlessCertD(directory, executor, executor);
+    }
+
+    /**
+     * Return true, if the runtime supports virtual threads.
+     *
+     * @return true if supported
+     */
+    public static boolean supportsVirtualThreads() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor which starts a new virtual thread for each task.
+     * Virtual threads are available since Java 21, while this module targets Java 11, so the executor is
+     * created reflectively.
+     *
+     * @return executor
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!supportsVirtualThreads()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (InvocationTargetException e) {
+            // Preview API of Java 19 and 20
+            throw new UnsupportedOperationException("Virtual threads are not enabled.", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    /**
+     * Return the directory this facade operates on.
+     *
+     * @return certificate directory
+     */
+    public PGPainlessCertD getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Look up the certificate with the given fingerprint.
+     * If there is no such certificate, the future completes exceptionally with a
+     * {@link java.util.NoSuchElementException}.
+     *
+     * @param fingerprint fingerprint
+     * @return future certificate
+     */
+    public CompletableFuture<Certificate> get(String fingerprint) {
+        return submit(() -> directory.getByFingerprint(fingerprint));
+    }
+
+    /**
+     * Insert a certificate, merging it with an existing certificate using the given merge callback.
+     * The input stream is read by the executing thread, so it MUST NOT be closed before the future completes.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @return future merged certificate
+     */
+    public CompletableFuture<Certificate> insert(InputStream data, KeyMaterialMerger merge) {
+        return submit(() -> directory.insert(data, merge));
+    }
+
+    /**
+     * Find the fingerprints of all certificates containing a (sub-)key with the given key-id.
+     *
+     * @param subkeyId key-id
+     * @return future fingerprints
+     */
+    public CompletableFuture<Set<String>> find(long subkeyId) {
+        return submit(() -> directory.getCertificateFingerprintsForSubkeyId(subkeyId));
+    }
+
+    /**
+     * Shut down the executor, if it was created by this facade, and wait for running operations to finish.
+     * Operations submitted afterwards complete exceptionally with a {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor == null) {
+            return;
+        }
+        ownedExecutor.shutdown();
+        try {
+            ownedExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(operation.call());
+                } catch (Throwable e) {
+                    // Errors are reported as well, otherwise the future would never complete
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
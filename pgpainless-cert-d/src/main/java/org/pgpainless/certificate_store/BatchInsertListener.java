@@ -0,0 +1,37 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+
+/**
+ * Callback which gets notified about the outcome of the individual items of a batch insert operation.
+ * Methods may be called concurrently from different worker threads.
+ */
+public interface BatchInsertListener {
+
+    BatchInsertListener NONE = new BatchInsertListener() {
+    };
+
+    /**
+     * Called after an item was inserted into the store.
+     *
+     * @param index index of the item in the input
+     * @param inserted inserted certificate
+     */
+    default void onInserted(long index, Certificate inserted) {
+
+    }
+
+    /**
+     * Called if an item could not be inserted.
+     *
+     * @param index index of the item in the input
+     * @param error cause
+     */
+    default void onFailure(long index, Exception error) {
+
+    }
+}
@@ -0,0 +1,68 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a batch insert operation.
+ */
+public final class BatchInsertResult {
+
+    private final long inserted;
+    private final long failed;
+    private final long durationNanos;
+
+    BatchInsertResult(long inserted, long failed, long durationNanos) {
+        this.inserted = inserted;
+        this.failed = failed;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Return the number of successfully inserted items.
+     *
+     * @return number of inserted items
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Return the number of items which could not be inserted.
+     *
+     * @return number of failed items
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Return the total duration of the batch insert operation in milliseconds.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    /**
+     * Return the throughput of the operation in processed items per second.
+     *
+     * @return items per second
+     */
+    public double getItemsPerSecond() {
+        if (durationNanos == 0) {
+            return 0;
+        }
+        return (inserted + failed) / (durationNanos / 1_000_000_000d);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Inserted %d items (%d failed) in %d ms (%.1f items/s)",
+                inserted, failed, getDurationMillis(), getItemsPerSecond());
+    }
+}
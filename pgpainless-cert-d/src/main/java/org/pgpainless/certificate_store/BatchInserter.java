@@ -0,0 +1,214 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipeline which inserts a large number of certificates into a {@link PGPainlessCertD}.
+ * Items are read on the calling thread, parsed by a pool of worker threads and then handed to a set of
+ * insert lanes in input order.
+ * All items with the same fingerprint end up in the same lane, so that merges of the same certificate
+ * never run concurrently and are applied in input order.
+ */
+final class BatchInserter {
+
+    // Number of items per worker that may be in flight at any time
+    private static final int QUEUE_DEPTH_PER_WORKER = 64;
+    private static final Item END = new Item(-1);
+
+    private final PGPainlessCertD directory;
+    private final KeyMaterialMerger merge;
+    private final int parallelism;
+    private final BatchInsertListener listener;
+    private final KeyMaterialReader reader;
+
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    BatchInserter(PGPainlessCertD directory,
+                  KeyMaterialReader reader,
+                  KeyMaterialMerger merge,
+                  int parallelism,
+                  BatchInsertListener listener) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.reader = reader;
+        this.merge = merge;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    BatchInsertResult insertAll(Iterator<? extends InputStream> items) throws InterruptedException {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(parallelism * QUEUE_DEPTH_PER_WORKER);
+        BlockingQueue<Item> parsed = new LinkedBlockingQueue<>();
+
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, threadFactory("cert-d-batch-parse-"));
+        ExecutorService[] lanes = new ExecutorService[parallelism];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(threadFactory("cert-d-batch-insert-"));
+        }
+        Thread dispatcher = new Thread(() -> dispatch(parsed, lanes, inFlight), "cert-d-batch-dispatch");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        try {
+            long index = 0;
+            while (items.hasNext()) {
+                inFlight.acquire();
+                long itemIndex = index++;
+                byte[] bytes;
+                try (InputStream item = items.next()) {
+                    bytes = Streams.readAll(item);
+                } catch (IOException e) {
+                    fail(itemIndex, e);
+                    inFlight.release();
+                    continue;
+                }
+                Item item = new Item(itemIndex);
+                item.parsing = parsers.submit(() -> parse(item, bytes));
+                parsed.put(item);
+            }
+        } finally {
+            parsed.put(END);
+            dispatcher.join();
+            parsers.shutdown();
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+            for (ExecutorService lane : lanes) {
+                lane.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        return new BatchInsertResult(inserted.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    private void parse(Item item, byte[] bytes) {
+        try {
+            // The parsed key material is handed to the backend, so the lane does not parse the item again
+            KeyMaterial keyMaterial = reader.read(new ByteArrayInputStream(bytes), null);
+            item.parsed = new ParsedKeyMaterialStream(bytes, keyMaterial, reader);
+        } catch (Throwable e) {
+            item.error = asException(e);
+        }
+    }
+
+    /**
+     * Hand parsed items to their lanes in input order.
+     * Every item either reaches its lane, which releases its permit, or fails here and releases its permit,
+     * whatever goes wrong. Otherwise, {@link #insertAll(Iterator)} would wait for permits forever.
+     */
+    private void dispatch(BlockingQueue<Item> parsed, ExecutorService[] lanes, Semaphore inFlight) {
+        boolean interrupted = false;
+        while (true) {
+            Item item;
+            try {
+                item = parsed.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            if (item == END) {
+                break;
+            }
+            boolean dispatched = false;
+            try {
+                item.parsing.get();
+                if (item.error != null) {
+                    fail(item.index, item.error);
+                } else {
+                    ExecutorService lane = lanes[Math.floorMod(
+                            item.parsed.getKeyMaterial().getFingerprint().hashCode(), lanes.length)];
+                    lane.execute(() -> insert(item, inFlight));
+                    dispatched = true;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                fail(item.index, e);
+            } catch (Throwable e) {
+                fail(item.index, asException(e));
+            } finally {
+                if (!dispatched) {
+                    inFlight.release();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void insert(Item item, Semaphore inFlight) {
+        try {
+            Certificate certificate = directory.insert(item.parsed, merge);
+            inserted.incrementAndGet();
+            listener.onInserted(item.index, certificate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(item.index, e);
+        } catch (Throwable e) {
+            fail(item.index, asException(e));
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void fail(long index, Exception e) {
+        failed.incrementAndGet();
+        try {
+            listener.onFailure(index, e);
+        } catch (RuntimeException listenerFailure) {
+            // The item failed regardless, the listener must not stop the pipeline
+        }
+    }
+
+    private static Exception asException(Throwable e) {
+        return e instanceof Exception ? (Exception) e : new ExecutionException(e);
+    }
+
+    static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Item {
+        private final long index;
+        // Set by the parser, visible to the dispatcher once parsing completed
+        private Future<?> parsing;
+        private ParsedKeyMaterialStream parsed;
+        private Exception error;
+
+        private Item(long index) {
+            this.index = index;
+        }
+    }
+}
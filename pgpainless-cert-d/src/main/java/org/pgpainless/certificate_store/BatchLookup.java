@@ -0,0 +1,148 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Looks up a batch of certificates by their fingerprints.
+ * Fingerprints are grouped by their two character prefix, which names the subdirectory of the certificate
+ * in the standard directory layout, so that each group is read by a single worker thread.
+ * Groups are read concurrently by up to a given number of workers, which run on a shared thread pool unless
+ * an executor is supplied.
+ */
+final class BatchLookup {
+
+    // Marker for fingerprints without certificate
+    private static final Object MISSING = new Object();
+
+    // Idle threads terminate after a minute, so batch lookups do not keep threads around
+    private static final ExecutorService SHARED_WORKERS = Executors.newCachedThreadPool(
+            BatchInserter.threadFactory("cert-d-lookup-"));
+
+    private final PGPCertificateDirectory directory;
+    private final int parallelism;
+    private final Executor executor;
+
+    BatchLookup(PGPCertificateDirectory directory, int parallelism) {
+        this(directory, parallelism, SHARED_WORKERS);
+    }
+
+    BatchLookup(PGPCertificateDirectory directory, int parallelism, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    /**
+     * Look up the certificates with the given fingerprints.
+     *
+     * @param fingerprints fingerprints
+     * @return result
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    BatchLookupResult lookup(Collection<String> fingerprints) throws InterruptedException {
+        long start = System.nanoTime();
+        // Deduplicate after normalizing, so that differently cased duplicates are only read once
+        LinkedHashSet<String> normalized = new LinkedHashSet<>();
+        for (String fingerprint : fingerprints) {
+            normalized.add(fingerprint.toLowerCase(Locale.ROOT));
+        }
+        List<String> requested = new ArrayList<>(normalized);
+        Object[] outcomes = new Object[requested.size()];
+
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requested.size(); i++) {
+            groups.computeIfAbsent(prefix(requested.get(i)), p -> new ArrayList<>()).add(i);
+        }
+
+        int workerCount = Math.min(parallelism, groups.size());
+        Queue<List<Integer>> pending = new ConcurrentLinkedQueue<>(groups.values());
+        if (workerCount <= 1) {
+            drain(requested, pending, outcomes);
+        } else {
+            CountDownLatch done = new CountDownLatch(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                Runnable worker = () -> {
+                    try {
+                        drain(requested, pending, outcomes);
+                    } finally {
+                        done.countDown();
+                    }
+                };
+                try {
+                    executor.execute(worker);
+                } catch (RejectedExecutionException e) {
+                    // The executor is saturated or shut down, so the calling thread has to help out
+                    worker.run();
+                }
+            }
+            done.await();
+        }
+
+        Map<String, Certificate> certificates = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        Map<String, Exception> failed = new LinkedHashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            Object outcome = outcomes[i];
+            if (outcome instanceof Certificate) {
+                certificates.put(requested.get(i), (Certificate) outcome);
+            } else if (outcome instanceof Exception) {
+                failed.put(requested.get(i), (Exception) outcome);
+            } else {
+                missing.add(requested.get(i));
+            }
+        }
+        return new BatchLookupResult(certificates, missing, failed, System.nanoTime() - start);
+    }
+
+    private void drain(List<String> requested, Queue<List<Integer>> pending, Object[] outcomes) {
+        List<Integer> group;
+        while ((group = pending.poll()) != null) {
+            for (int index : group) {
+                outcomes[index] = read(requested.get(index));
+            }
+        }
+    }
+
+    private Object read(String fingerprint) {
+        try {
+            Certificate certificate = directory.getByFingerprint(fingerprint);
+            return certificate != null ? certificate : MISSING;
+        } catch (NoSuchElementException e) {
+            return MISSING;
+        } catch (BadNameException | BadDataException | IOException | RuntimeException e) {
+            // Any failure is reported for this fingerprint only, instead of failing the whole batch
+            return e;
+        }
+    }
+
+    private static String prefix(String fingerprint) {
+        return fingerprint.length() < 2 ? "" : fingerprint.substring(0, 2);
+    }
+}
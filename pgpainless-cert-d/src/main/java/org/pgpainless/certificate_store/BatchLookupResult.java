@@ -0,0 +1,101 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of looking up a batch of certificates by their fingerprints.
+ * Every requested fingerprint ends up in exactly one of {@link #getCertificates()}, {@link #getMissing()}
+ * or {@link #getFailed()}.
+ */
+public final class BatchLookupResult {
+
+    private final Map<String, Certificate> certificates;
+    private final List<String> missing;
+    private final Map<String, Exception> failed;
+    private final long durationNanos;
+
+    BatchLookupResult(Map<String, Certificate> certificates,
+                      List<String> missing,
+                      Map<String, Exception> failed,
+                      long durationNanos) {
+        this.certificates = Collections.unmodifiableMap(certificates);
+        this.missing = Collections.unmodifiableList(missing);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Return the found certificates, keyed by the lowercase requested fingerprint, in request order.
+     *
+     * @return found certificates
+     */
+    public Map<String, Certificate> getCertificates() {
+        return certificates;
+    }
+
+    /**
+     * Return the found certificate with the given requested fingerprint, or null if it was not found.
+     * The fingerprint is matched case-insensitively.
+     *
+     * @param fingerprint requested fingerprint
+     * @return certificate or null
+     */
+    public Certificate get(String fingerprint) {
+        return certificates.get(fingerprint.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Return the lowercase requested fingerprints for which there is no certificate in the store, in request order.
+     *
+     * @return missing fingerprints
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Return the lowercase requested fingerprints which could not be read, along with the cause, in request order.
+     * Causes are {@link pgp.certificate_store.exception.BadNameException BadNameExceptions} for malformed
+     * fingerprints, {@link pgp.certificate_store.exception.BadDataException BadDataExceptions} for broken
+     * certificate files, or {@link java.io.IOException IOExceptions}.
+     *
+     * @return failed fingerprints
+     */
+    public Map<String, Exception> getFailed() {
+        return failed;
+    }
+
+    /**
+     * Return true, if all requested certificates were found.
+     *
+     * @return true if complete
+     */
+    public boolean isComplete() {
+        return missing.isEmpty() && failed.isEmpty();
+    }
+
+    /**
+     * Return the total duration of the lookup in milliseconds.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Found %d certificates (%d missing, %d failed) in %d ms",
+                certificates.size(), missing.size(), failed.size(), getDurationMillis());
+    }
+}
@@ -0,0 +1,56 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} which serves certificates from a {@link CertificateCache}
+ * as long as the tag of the certificate in the underlying backend did not change.
+ */
+public class CachingBackend extends ForwardingBackend {
+
+    private final CertificateCache cache;
+
+    public CachingBackend(PGPCertificateDirectory.Backend delegate, CertificateCache cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    public CertificateCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint)
+            throws BadNameException, IOException, BadDataException {
+        Long tag = getDelegate().getTagForFingerprint(fingerprint);
+        Certificate cached = cache.get(fingerprint, tag);
+        if (cached != null) {
+            return cached;
+        }
+
+        Certificate certificate = getDelegate().readByFingerprint(fingerprint);
+        if (certificate != null) {
+            cache.put(certificate);
+        }
+        return certificate;
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        Certificate inserted = getDelegate().doInsert(data, merge);
+        cache.invalidate(inserted.getFingerprint());
+        return inserted;
+    }
+}
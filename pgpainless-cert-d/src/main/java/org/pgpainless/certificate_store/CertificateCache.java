@@ -0,0 +1,201 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least-recently-used cache of parsed {@link Certificate Certificates}.
+ * Entries are keyed by fingerprint and tag, so a cached certificate is only returned as long as the
+ * backend reports the same tag for the fingerprint.
+ * The size of the cache is bounded by the sum of the encoded lengths of the cached certificates.
+ */
+public class CertificateCache {
+
+    private final long maximumWeight;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache which holds certificates with a total encoded length of at most
+     * {@code maximumWeight} bytes.
+     *
+     * @param maximumWeight maximum number of bytes
+     */
+    public CertificateCache(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight MUST NOT be negative.");
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Return the cached certificate with the given fingerprint, if its tag matches the given tag.
+     * If the cached certificate has a different tag, it is outdated and gets removed from the cache.
+     *
+     * @param fingerprint fingerprint
+     * @param tag current tag of the certificate in the backend
+     * @return cached certificate or null
+     */
+    public synchronized Certificate get(String fingerprint, Long tag) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (tag == null || !tag.equals(entry.tag)) {
+            remove(fingerprint);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.certificate;
+    }
+
+    /**
+     * Add a certificate to the cache.
+     * Certificates without tag cannot be revalidated and are therefore not cached.
+     * Least recently used entries are evicted until the cache fits into its maximum weight again.
+     *
+     * @param certificate certificate
+     */
+    public synchronized void put(Certificate certificate) {
+        Long tag = certificate.getTag();
+        if (tag == null) {
+            return;
+        }
+        long certificateWeight = weigh(certificate);
+        remove(certificate.getFingerprint());
+        if (certificateWeight > maximumWeight) {
+            return;
+        }
+
+        entries.put(certificate.getFingerprint(), new Entry(certificate, tag, certificateWeight));
+        weight += certificateWeight;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (weight > maximumWeight && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove the certificate with the given fingerprint from the cache.
+     *
+     * @param fingerprint fingerprint
+     */
+    public synchronized void invalidate(String fingerprint) {
+        remove(fingerprint);
+    }
+
+    /**
+     * Remove all certificates from the cache.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void remove(String fingerprint) {
+        Entry removed = entries.remove(fingerprint);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Return the number of cached certificates.
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the summed encoded length of all cached certificates.
+     *
+     * @return weight in bytes
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Return the number of lookups which were served from the cache.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of lookups which could not be served from the cache.
+     * This includes lookups of outdated entries.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of entries which were evicted to make room for other entries.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Return the length of the encoding of the given key material.
+     *
+     * @param keyMaterial key or certificate
+     * @return length in bytes
+     */
+    static long weigh(KeyMaterial keyMaterial) {
+        if (keyMaterial instanceof LazyCertificate) {
+            return ((LazyCertificate) keyMaterial).getLength();
+        }
+        // Key material is backed by a byte array, so available() reports the full encoded length
+        try {
+            return keyMaterial.getInputStream().available();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Entry {
+        private final Certificate certificate;
+        private final Long tag;
+        private final long weight;
+
+        private Entry(Certificate certificate, Long tag, long weight) {
+            this.certificate = certificate;
+            this.tag = tag;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.util.Set;
+
+/**
+ * Callback which gets notified about batches of changed certificates by a {@link CertificateWatcher}.
+ * Methods are called from the thread of the watcher, one call at a time.
+ */
+public interface CertificateChangeListener {
+
+    /**
+     * Called with the fingerprints of all certificates, which were added, changed or deleted since the
+     * last call.
+     * Use {@link PGPainlessCertD#getIfChanged(String, Long)} to fetch the current version of a certificate.
+     *
+     * @param fingerprints fingerprints of changed certificates
+     */
+    void onChanged(Set<String> fingerprints);
+
+    /**
+     * Called if the watcher cannot observe the directory, e.g. because it cannot be listed.
+     * The watcher keeps running.
+     *
+     * @param error cause
+     */
+    default void onFailure(Exception error) {
+
+    }
+}
@@ -5,20 +5,31 @@
 package org.pgpainless.certificate_store;
 
 import org.bouncycastle.bcpg.PacketFormat;
+import org.bouncycastle.bcpg.PacketTags;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
 import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.bouncycastle.util.encoders.Hex;
+import org.pgpainless.PGPainless;
 import org.pgpainless.key.OpenPgpFingerprint;
 import pgp.certificate_store.certificate.Certificate;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class CertificateFactory {
 
+    // Upper bound for the length of a single packet of a certificate
+    private static final int MAX_PACKET_LENGTH = 1024 * 1024;
+
     /**
      * Create a {@link Certificate} from the given {@link PGPPublicKeyRing} and tag.
      *
@@ -45,6 +56,7 @@ public class CertificateFactory {
 
     /**
      * Create a {@link Certificate} from the given {@link OpenPGPCertificate} and tag.
+     * The subkey-ids of the certificate include all (sub-)keys, regardless of their validity.
      *
      * @param openPGPCertificate OpenPGPCertificate
      * @param tag tag
@@ -53,12 +65,174 @@ public class CertificateFactory {
      */
     public static Certificate certificateFromOpenPGPCertificate(OpenPGPCertificate openPGPCertificate, Long tag)
             throws IOException {
+        return certificateFromOpenPGPCertificate(openPGPCertificate, tag, SubkeyIdExtraction.ALL_KEYS);
+    }
+
+    /**
+     * Create a {@link Certificate} from the given {@link OpenPGPCertificate} and tag.
+     *
+     * @param openPGPCertificate OpenPGPCertificate
+     * @param tag tag
+     * @param extraction which (sub-)keys to include in the subkey-ids of the certificate
+     * @return certificate
+     * @throws IOException if the certificate cannot be encoded
+     */
+    public static Certificate certificateFromOpenPGPCertificate(OpenPGPCertificate openPGPCertificate,
+                                                                Long tag,
+                                                                SubkeyIdExtraction extraction)
+            throws IOException {
         byte[] bytes = openPGPCertificate.getEncoded(PacketFormat.ROUNDTRIP);
         String fingerprint = OpenPgpFingerprint.of(openPGPCertificate).getFingerprint().toLowerCase();
-        List<Long> subkeyIds = openPGPCertificate.getValidKeys()
+        List<Long> subkeyIds = subkeyIds(openPGPCertificate, extraction);
+        return new Certificate(bytes, fingerprint, subkeyIds, tag);
+    }
+
+    /**
+     * Return the subkey-ids of the given certificate.
+     *
+     * @param openPGPCertificate certificate
+     * @param extraction which (sub-)keys to include
+     * @return subkey-ids
+     */
+    public static List<Long> subkeyIds(OpenPGPCertificate openPGPCertificate, SubkeyIdExtraction extraction) {
+        if (extraction == SubkeyIdExtraction.VALID_KEYS) {
+            return validSubkeyIds(openPGPCertificate);
+        }
+        // Key-ids are computed while parsing, listing all keys does not evaluate any signatures
+        return openPGPCertificate.getKeys()
                 .stream()
                 .map(it -> it.getKeyIdentifier().getKeyId())
                 .collect(Collectors.toList());
-        return new Certificate(bytes, fingerprint, subkeyIds, tag);
+    }
+
+    /**
+     * Return the subkey-ids of the given binary encoded certificate.
+     * Using {@link SubkeyIdExtraction#ALL_KEYS}, the key-ids are computed by
+     * {@link #scanKeyIds(byte[]) scanning the packets} of the certificate without parsing it.
+     *
+     * @param encoding binary encoding of a certificate
+     * @param extraction which (sub-)keys to include
+     * @return subkey-ids
+     * @throws IOException if the certificate cannot be parsed
+     */
+    public static List<Long> subkeyIds(byte[] encoding, SubkeyIdExtraction extraction) throws IOException {
+        if (extraction == SubkeyIdExtraction.ALL_KEYS) {
+            try {
+                long[] keyIds = scanKeyIds(encoding);
+                List<Long> subkeyIds = new ArrayList<>(keyIds.length);
+                for (long keyId : keyIds) {
+                    subkeyIds.add(keyId);
+                }
+                return subkeyIds;
+            } catch (IOException e) {
+                // Unusual packet framing or key version, let the certificate parser deal with it
+            }
+        }
+        return subkeyIds(PGPainless.getInstance().readKey().parseCertificate(encoding), extraction);
+    }
+
+    static List<Long> validSubkeyIds(OpenPGPCertificate openPGPCertificate) {
+        return openPGPCertificate.getValidKeys()
+                .stream()
+                .map(it -> it.getKeyIdentifier().getKeyId())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Determine the key-ids of the primary key and all subkeys of a binary encoded certificate by scanning
+     * its packets and hashing the public key packets, without parsing or verifying any signatures.
+     * In contrast to {@link #validSubkeyIds(OpenPGPCertificate)}, expired, revoked or unbound subkeys are included.
+     *
+     * @param encoding binary encoding of a certificate
+     * @return key-ids in order of appearance
+     * @throws IOException if the packet framing is malformed or the certificate contains unsupported key versions
+     */
+    static long[] scanKeyIds(byte[] encoding) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(encoding);
+        long[] keyIds = new long[4];
+        int count = 0;
+        RawPacket packet;
+        while ((packet = RawPacket.read(in, MAX_PACKET_LENGTH)) != null) {
+            if (packet.getTag() != PacketTags.PUBLIC_KEY && packet.getTag() != PacketTags.PUBLIC_SUBKEY) {
+                continue;
+            }
+            if (count == keyIds.length) {
+                keyIds = Arrays.copyOf(keyIds, count * 2);
+            }
+            keyIds[count++] = keyId(packet);
+        }
+        if (count == 0) {
+            throw new IOException("Encoding does not contain any public key packets.");
+        }
+        return Arrays.copyOf(keyIds, count);
+    }
+
+    /**
+     * Determine the fingerprint of a certificate by hashing its leading public key packet, without parsing
+     * the rest of the certificate. Only the first packet is read from the input stream.
+     *
+     * @param in input stream containing a binary encoded certificate
+     * @return lowercase hex encoded fingerprint
+     * @throws IOException if the first packet is not a public key packet of a supported version
+     */
+    static String scanFingerprint(InputStream in) throws IOException {
+        RawPacket packet = RawPacket.read(in, MAX_PACKET_LENGTH);
+        if (packet == null || packet.getTag() != PacketTags.PUBLIC_KEY) {
+            throw new IOException("Encoding does not start with a public key packet.");
+        }
+        return Hex.toHexString(fingerprint(packet));
+    }
+
+    private static long keyId(RawPacket packet) throws IOException {
+        byte[] fingerprint = fingerprint(packet);
+        // The key-id of a v4 key are the low 64 bits of the fingerprint, those of v5 and v6 keys the high 64 bits
+        return toLong(fingerprint, fingerprint.length == 20 ? 12 : 0);
+    }
+
+    private static byte[] fingerprint(RawPacket packet) throws IOException {
+        byte[] encoding = packet.getEncoding();
+        int offset = packet.getBodyOffset();
+        int length = packet.getBodyLength();
+        if (length == 0) {
+            throw new IOException("Empty public key packet.");
+        }
+        int version = encoding[offset];
+        try {
+            switch (version) {
+                case 4: {
+                    // Fingerprint is SHA-1 over 0x99, two octet length and the packet body
+                    MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+                    sha1.update((byte) 0x99);
+                    sha1.update((byte) (length >> 8));
+                    sha1.update((byte) length);
+                    sha1.update(encoding, offset, length);
+                    return sha1.digest();
+                }
+                case 5:
+                case 6: {
+                    // Fingerprint is SHA-256 over 0x9A (v5) or 0x9B (v6), four octet length and the packet body
+                    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                    sha256.update((byte) (version == 5 ? 0x9A : 0x9B));
+                    sha256.update((byte) (length >> 24));
+                    sha256.update((byte) (length >> 16));
+                    sha256.update((byte) (length >> 8));
+                    sha256.update((byte) length);
+                    sha256.update(encoding, offset, length);
+                    return sha256.digest();
+                }
+                default:
+                    throw new IOException("Unsupported public key version " + version);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-1 and SHA-256 are mandatory for every Java platform.", e);
+        }
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
     }
 }
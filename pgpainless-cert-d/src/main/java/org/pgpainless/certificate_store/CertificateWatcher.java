@@ -0,0 +1,334 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a {@link PGPainlessCertD} for added, changed and deleted certificates and reports their fingerprints
+ * to a {@link CertificateChangeListener} in batches.
+ * <p>
+ * If the store is file based, the watcher registers the base directory and all of its two character
+ * subdirectories with a {@link WatchService}, which is backed by inotify on Linux.
+ * Events are debounced: a batch is delivered once no further event arrived for the debounce interval, but
+ * at the latest after ten debounce intervals, so a constant stream of updates cannot starve the listener.
+ * Before delivery, the tag of each reported certificate is compared with the last known tag, so touching a
+ * file without changing it, or writing temporary files, does not produce notifications.
+ * <p>
+ * If the store is not file based, or the platform does not offer a {@link WatchService}, the watcher falls
+ * back to periodically comparing the tags of all certificates with the last known tags.
+ * Tags are determined from file attributes or indexes, so no certificate is read while scanning.
+ */
+public final class CertificateWatcher implements Closeable {
+
+    /**
+     * How changes are detected.
+     */
+    public enum Mode {
+        /**
+         * Changes are reported by the file system via a {@link WatchService}.
+         */
+        WATCH_SERVICE,
+        /**
+         * Changes are detected by periodically comparing the tags of all certificates.
+         */
+        SCAN
+    }
+
+    // A batch is delivered at the latest after this many debounce intervals
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    private final PGPainlessCertD directory;
+    private final File baseDirectory;
+    private final CertificateChangeListener listener;
+    private final long debounceNanos;
+    private final long pollIntervalMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    // Last known tags, only accessed by the watcher thread after construction
+    private final Map<String, Long> tags;
+    private final Set<String> candidates = new LinkedHashSet<>();
+    private boolean rescan = false;
+    private volatile boolean closed = false;
+
+    CertificateWatcher(PGPainlessCertD directory,
+                       File baseDirectory,
+                       boolean useWatchService,
+                       CertificateChangeListener listener,
+                       long debounceMillis,
+                       long pollIntervalMillis)
+            throws IOException {
+        if (debounceMillis < 0 || pollIntervalMillis < 1) {
+            throw new IllegalArgumentException(
+                    "Debounce interval MUST NOT be negative and poll interval MUST be positive.");
+        }
+        this.directory = directory;
+        this.baseDirectory = baseDirectory;
+        this.listener = listener;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.watchService = baseDirectory != null && useWatchService ? openWatchService(baseDirectory) : null;
+        try {
+            this.tags = scan();
+        } catch (IOException | RuntimeException e) {
+            if (watchService != null) {
+                watchService.close();
+            }
+            throw e;
+        }
+
+        this.thread = new Thread(watchService != null ? this::watch : this::poll, "cert-d-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Return how changes are detected.
+     *
+     * @return mode
+     */
+    public Mode getMode() {
+        return watchService != null ? Mode.WATCH_SERVICE : Mode.SCAN;
+    }
+
+    /**
+     * Stop watching.
+     * Pending changes, which have not been delivered yet, are dropped.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (watchService != null) {
+            watchService.close();
+        }
+        thread.interrupt();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static WatchService openWatchService(File baseDirectory) {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+        try {
+            // Register the base directory first, so that no new subdirectory is missed
+            baseDirectory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            File[] prefixDirectories = baseDirectory.listFiles(File::isDirectory);
+            if (prefixDirectories != null) {
+                for (File prefixDirectory : prefixDirectories) {
+                    if (DirectoryLayout.isPrefix(prefixDirectory.getName())) {
+                        register(watchService, prefixDirectory.toPath());
+                    }
+                }
+            }
+            return watchService;
+        } catch (IOException | UnsupportedOperationException e) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Falling back to scanning anyway
+            }
+            return null;
+        }
+    }
+
+    private static void register(WatchService watchService, Path prefixDirectory) throws IOException {
+        prefixDirectory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watch() {
+        long firstEvent = 0;
+        long lastEvent = 0;
+        while (!closed) {
+            try {
+                WatchKey key;
+                if (candidates.isEmpty() && !rescan) {
+                    key = watchService.take();
+                } else {
+                    long deadline = Math.min(lastEvent + debounceNanos,
+                            firstEvent + MAX_DELAY_FACTOR * debounceNanos);
+                    key = watchService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+
+                while (key != null) {
+                    boolean wasPending = !candidates.isEmpty() || rescan;
+                    handle(key);
+                    if (!wasPending && (!candidates.isEmpty() || rescan)) {
+                        firstEvent = System.nanoTime();
+                    }
+                    lastEvent = System.nanoTime();
+                    key = watchService.poll();
+                }
+
+                long now = System.nanoTime();
+                if ((!candidates.isEmpty() || rescan) &&
+                        (now - lastEvent >= debounceNanos || now - firstEvent >= MAX_DELAY_FACTOR * debounceNanos)) {
+                    deliver(rescan ? diff(scan()) : verifyCandidates());
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                rescan = false;
+                candidates.clear();
+                fail(e);
+            }
+        }
+    }
+
+    private void handle(WatchKey key) throws IOException {
+        Path watched = (Path) key.watchable();
+        boolean isBaseDirectory = watched.equals(baseDirectory.toPath());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (isBaseDirectory) {
+                if (DirectoryLayout.isPrefix(name) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    Path prefixDirectory = watched.resolve(name);
+                    if (prefixDirectory.toFile().isDirectory()) {
+                        register(watchService, prefixDirectory);
+                        // Files might have been created before the directory was registered
+                        String[] names = prefixDirectory.toFile().list();
+                        if (names != null) {
+                            for (String fileName : names) {
+                                addCandidate(name + fileName);
+                            }
+                        }
+                    }
+                }
+            } else {
+                addCandidate(watched.getFileName().toString() + name);
+            }
+        }
+        key.reset();
+    }
+
+    private void addCandidate(String fingerprint) {
+        if (DirectoryLayout.isFingerprint(fingerprint)) {
+            candidates.add(fingerprint);
+        }
+    }
+
+    private void poll() {
+        while (!closed) {
+            try {
+                Thread.sleep(pollIntervalMillis);
+                deliver(diff(scan()));
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private Set<String> verifyCandidates() throws IOException {
+        Set<String> changed = new LinkedHashSet<>();
+        for (String fingerprint : candidates) {
+            Long tag;
+            try {
+                tag = directory.getTag(fingerprint);
+            } catch (BadNameException e) {
+                continue;
+            }
+            Long known = tag == null ? tags.remove(fingerprint) : tags.put(fingerprint, tag);
+            if (!Objects.equals(tag, known)) {
+                changed.add(fingerprint);
+            }
+        }
+        candidates.clear();
+        return changed;
+    }
+
+    private Map<String, Long> scan() throws IOException {
+        Iterator<String> fingerprints = directory.fingerprints();
+        Map<String, Long> current = new HashMap<>();
+        while (fingerprints.hasNext()) {
+            String fingerprint = fingerprints.next();
+            try {
+                Long tag = directory.getTag(fingerprint);
+                if (tag != null) {
+                    current.put(fingerprint, tag);
+                }
+            } catch (BadNameException e) {
+                // Not a certificate
+            }
+        }
+        return current;
+    }
+
+    private Set<String> diff(Map<String, Long> current) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(tags.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String fingerprint : tags.keySet()) {
+            if (!current.containsKey(fingerprint)) {
+                changed.add(fingerprint);
+            }
+        }
+        tags.clear();
+        tags.putAll(current);
+        rescan = false;
+        candidates.clear();
+        return changed;
+    }
+
+    private void deliver(Set<String> changed) {
+        if (changed.isEmpty() || closed) {
+            return;
+        }
+        try {
+            listener.onChanged(Collections.unmodifiableSet(changed));
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Exception error) {
+        try {
+            listener.onFailure(error);
+        } catch (RuntimeException ignored) {
+            // Nothing left to report to
+        }
+    }
+}
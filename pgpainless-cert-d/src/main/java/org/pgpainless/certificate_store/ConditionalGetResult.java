@@ -0,0 +1,99 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+
+/**
+ * Result of a conditional lookup of a certificate by its fingerprint and a previously known tag.
+ *
+ * @see PGPainlessCertD#getIfChanged(String, Long)
+ */
+public final class ConditionalGetResult {
+
+    /**
+     * Outcome of a conditional lookup.
+     */
+    public enum Status {
+        /**
+         * The certificate did not change since the known tag. It was neither opened nor read.
+         */
+        UNCHANGED,
+        /**
+         * The certificate changed since the known tag, or no tag was known. The certificate was read.
+         */
+        CHANGED,
+        /**
+         * There is no certificate with the given fingerprint.
+         */
+        MISSING
+    }
+
+    private static final ConditionalGetResult MISSING = new ConditionalGetResult(Status.MISSING, null, null);
+
+    private final Status status;
+    private final Certificate certificate;
+    private final Long tag;
+
+    private ConditionalGetResult(Status status, Certificate certificate, Long tag) {
+        this.status = status;
+        this.certificate = certificate;
+        this.tag = tag;
+    }
+
+    static ConditionalGetResult unchanged(Long tag) {
+        return new ConditionalGetResult(Status.UNCHANGED, null, tag);
+    }
+
+    static ConditionalGetResult changed(Certificate certificate, Long tag) {
+        return new ConditionalGetResult(Status.CHANGED, certificate, tag);
+    }
+
+    static ConditionalGetResult missing() {
+        return MISSING;
+    }
+
+    /**
+     * Return the outcome of the lookup.
+     *
+     * @return status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Return true, if the certificate changed since the known tag.
+     *
+     * @return true if changed
+     */
+    public boolean isChanged() {
+        return status == Status.CHANGED;
+    }
+
+    /**
+     * Return the certificate, if it {@link Status#CHANGED changed}, otherwise null.
+     *
+     * @return certificate or null
+     */
+    public Certificate getCertificate() {
+        return certificate;
+    }
+
+    /**
+     * Return the current tag of the certificate, which can be passed to the next conditional lookup.
+     * Null, if the certificate is {@link Status#MISSING missing}.
+     *
+     * @return current tag or null
+     */
+    public Long getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return status + (tag == null ? "" : " " + tag);
+    }
+}
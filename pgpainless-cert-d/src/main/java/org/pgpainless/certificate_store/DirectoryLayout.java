@@ -0,0 +1,191 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Knowledge about the file layout of a Shared PGP Certificate Directory.
+ * Certificates are stored in files named after the fingerprint, where the first two hex characters of the
+ * fingerprint form the name of a subdirectory, e.g. <pre>eb/85bb5fa33a75e15e944e63f231550c4f47e38e</pre>.
+ */
+final class DirectoryLayout {
+
+    private static final int V4_FINGERPRINT_LENGTH = 40;
+    private static final int V6_FINGERPRINT_LENGTH = 64;
+
+    private DirectoryLayout() {
+
+    }
+
+    /**
+     * Iterate over the fingerprints of all certificates in the given base directory by listing the directory
+     * structure only, without opening any certificate files.
+     * Subdirectories are listed lazily, one at a time.
+     *
+     * @param baseDirectory base directory of the store
+     * @return iterator over lowercase hex encoded fingerprints
+     */
+    static Iterator<String> fingerprints(File baseDirectory) {
+        File[] prefixDirectories = baseDirectory.listFiles(
+                file -> file.isDirectory() && isPrefix(file.getName()));
+        if (prefixDirectories == null) {
+            prefixDirectories = new File[0];
+        }
+        Arrays.sort(prefixDirectories);
+        Deque<File> pendingDirectories = new ArrayDeque<>(Arrays.asList(prefixDirectories));
+
+        return new Iterator<String>() {
+            private final Deque<String> buffer = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                while (buffer.isEmpty() && !pendingDirectories.isEmpty()) {
+                    list(pendingDirectories.removeFirst());
+                }
+                return !buffer.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return buffer.removeFirst();
+            }
+
+            private void list(File prefixDirectory) {
+                String prefix = prefixDirectory.getName();
+                String[] names = prefixDirectory.list();
+                if (names == null) {
+                    return;
+                }
+                Arrays.sort(names);
+                for (String name : names) {
+                    String fingerprint = prefix + name;
+                    if (isFingerprint(fingerprint)) {
+                        buffer.add(fingerprint);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Iterate over the fingerprints of all certificates in the given base directory, whose files actually
+     * contain a certificate with a matching fingerprint.
+     * Only the leading public key packet of each file is read and hashed, the certificate is not parsed.
+     *
+     * @param baseDirectory base directory of the store
+     * @return iterator over lowercase hex encoded fingerprints of valid certificate files
+     */
+    static Iterator<String> validatedFingerprints(File baseDirectory) {
+        Iterator<String> fingerprints = fingerprints(baseDirectory);
+        return new Iterator<String>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && fingerprints.hasNext()) {
+                    String fingerprint = fingerprints.next();
+                    if (matches(certificateFile(baseDirectory, fingerprint), fingerprint)) {
+                        next = fingerprint;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String fingerprint = next;
+                next = null;
+                return fingerprint;
+            }
+        };
+    }
+
+    private static boolean matches(File file, String fingerprint) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return fingerprint.equals(CertificateFactory.scanFingerprint(in));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the file of the certificate with the given fingerprint.
+     *
+     * @param baseDirectory base directory of the store
+     * @param fingerprint lowercase hex encoded fingerprint
+     * @return certificate file
+     */
+    static File certificateFile(File baseDirectory, String fingerprint) {
+        return new File(new File(baseDirectory, fingerprint.substring(0, 2)), fingerprint.substring(2));
+    }
+
+    /**
+     * Return the base directory of the given backend, if it, or one of the backends it forwards to,
+     * is a {@link FileBasedCertificateDirectoryBackend}.
+     *
+     * @param backend backend
+     * @return base directory or null
+     */
+    static File baseDirectory(PGPCertificateDirectory.Backend backend) {
+        PGPCertificateDirectory.Backend innermost = ForwardingBackend.unwrap(backend);
+        if (innermost instanceof FileBasedCertificateDirectoryBackend) {
+            return ((FileBasedCertificateDirectoryBackend) innermost).getBaseDirectory();
+        }
+        return null;
+    }
+
+    /**
+     * Return true, if the given string is a lowercase hex encoded v4 or v6 fingerprint.
+     *
+     * @param name string
+     * @return true if fingerprint
+     */
+    static boolean isFingerprint(String name) {
+        return (name.length() == V4_FINGERPRINT_LENGTH || name.length() == V6_FINGERPRINT_LENGTH)
+                && isHex(name, name.length());
+    }
+
+    /**
+     * Return true, if the given string is the name of a subdirectory, i.e. two lowercase hex characters.
+     *
+     * @param name string
+     * @return true if subdirectory name
+     */
+    static boolean isPrefix(String name) {
+        return isHex(name, 2);
+    }
+
+    private static boolean isHex(String name, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link PGPCertificateDirectory.LockingMechanism} which locks a lock file using an exclusive {@link FileLock}.
+ * Since file locks are held on behalf of the whole JVM, threads of the same process are additionally
+ * serialized using a semaphore. The lock is not reentrant.
+ */
+public class DirectoryLock implements PGPCertificateDirectory.LockingMechanism {
+
+    private final File lockFile;
+    private final Semaphore semaphore = new Semaphore(1);
+
+    private volatile FileChannel channel;
+    private volatile FileLock fileLock;
+
+    public DirectoryLock(File lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    @Override
+    public void lockDirectory() throws IOException, InterruptedException {
+        semaphore.acquire();
+        try {
+            FileChannel lockChannel = openChannel();
+            try {
+                fileLock = lockChannel.lock();
+                channel = lockChannel;
+            } catch (IOException | RuntimeException e) {
+                lockChannel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryLockDirectory() throws IOException {
+        if (!semaphore.tryAcquire()) {
+            return false;
+        }
+        try {
+            FileChannel lockChannel = openChannel();
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                lockChannel.close();
+                throw e;
+            }
+            if (lock == null) {
+                // Locked by another process
+                lockChannel.close();
+                semaphore.release();
+                return false;
+            }
+            fileLock = lock;
+            channel = lockChannel;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isLocked() {
+        return semaphore.availablePermits() == 0;
+    }
+
+    @Override
+    public void releaseDirectory() throws IOException {
+        if (fileLock == null) {
+            return;
+        }
+        try {
+            fileLock.release();
+            channel.close();
+        } finally {
+            fileLock = null;
+            channel = null;
+            semaphore.release();
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,30 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+/**
+ * When certificate files written by a group commit are synced to the storage device.
+ * Inserts only return after their batch was written and synced according to this policy.
+ */
+public enum Durability {
+
+    /**
+     * Sync each certificate file, and its directory, right after it was written.
+     * This is as durable as it gets, but costs one sync per written certificate.
+     */
+    PER_OPERATION,
+
+    /**
+     * Write all certificate files of a batch first and sync them, along with their directories, once the whole
+     * batch was written, so the storage device can flush them together.
+     */
+    PER_BATCH,
+
+    /**
+     * Never sync, leaving it to the operating system when written certificates reach the storage device.
+     * Certificates inserted shortly before a crash or power loss might get lost.
+     */
+    NONE
+}
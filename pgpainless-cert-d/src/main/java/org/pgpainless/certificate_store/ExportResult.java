@@ -0,0 +1,83 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of an export operation.
+ */
+public final class ExportResult {
+
+    private final long exported;
+    private final long bytes;
+    private final List<String> missing;
+    private final Map<String, Exception> failed;
+    private final long durationNanos;
+
+    ExportResult(long exported, long bytes, List<String> missing, Map<String, Exception> failed,
+                 long durationNanos) {
+        this.exported = exported;
+        this.bytes = bytes;
+        this.missing = Collections.unmodifiableList(missing);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Return the number of exported certificates.
+     *
+     * @return number of exported certificates
+     */
+    public long getExported() {
+        return exported;
+    }
+
+    /**
+     * Return the number of written bytes, not counting any ASCII armor.
+     *
+     * @return number of bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Return the requested fingerprints for which there is no certificate in the store.
+     * Always empty, if all certificates were exported.
+     *
+     * @return missing fingerprints
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Return the fingerprints of certificates which could not be read, along with the cause.
+     *
+     * @return failed fingerprints
+     */
+    public Map<String, Exception> getFailed() {
+        return failed;
+    }
+
+    /**
+     * Return the total duration of the export in milliseconds.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exported %d certificates (%d bytes, %d missing, %d failed) in %d ms",
+                exported, bytes, missing.size(), failed.size(), getDurationMillis());
+    }
+}
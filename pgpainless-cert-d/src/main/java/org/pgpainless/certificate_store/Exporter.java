@@ -0,0 +1,196 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Writes the certificates of a {@link PGPainlessCertD} to an {@link OutputStream}.
+ * Certificates are read concurrently by a pool of worker threads into a bounded buffer, while a dedicated
+ * writer thread writes them either in the order of the input, or in the order in which they were read.
+ * The calling thread only enumerates the certificates to export.
+ */
+final class Exporter {
+
+    // Number of certificates per worker that may be buffered at any time
+    private static final int QUEUE_DEPTH_PER_WORKER = 64;
+    private static final Future<Item> END = CompletableFuture.completedFuture(null);
+
+    private final PGPainlessCertD directory;
+    private final boolean ordered;
+    private final int parallelism;
+
+    // Only accessed by the writer thread while exporting
+    private long exported = 0;
+    private long bytes = 0;
+    private final List<String> missing = new ArrayList<>();
+    private final Map<String, Exception> failed = new LinkedHashMap<>();
+    private volatile IOException writeError;
+
+    Exporter(PGPainlessCertD directory, boolean ordered, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.ordered = ordered;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Export the certificates with the given fingerprints.
+     *
+     * @param fingerprints fingerprints
+     * @param out output stream
+     * @return summary
+     * @throws IOException if the output stream cannot be written to
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    ExportResult exportFingerprints(Iterator<String> fingerprints, OutputStream out)
+            throws IOException, InterruptedException {
+        return export(fingerprints, this::read, out);
+    }
+
+    /**
+     * Export the given certificates.
+     *
+     * @param certificates certificates
+     * @param out output stream
+     * @return summary
+     * @throws IOException if the output stream cannot be written to
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    ExportResult exportCertificates(Iterator<Certificate> certificates, OutputStream out)
+            throws IOException, InterruptedException {
+        return export(certificates, this::read, out);
+    }
+
+    private <T> ExportResult export(Iterator<T> sources, Function<T, Item> read, OutputStream out)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Semaphore buffered = new Semaphore(parallelism * QUEUE_DEPTH_PER_WORKER);
+        BlockingQueue<Future<Item>> queue = new LinkedBlockingQueue<>();
+
+        ExecutorService readers = Executors.newFixedThreadPool(parallelism,
+                BatchInserter.threadFactory("cert-d-export-read-"));
+        Thread writer = new Thread(() -> write(queue, buffered, out), "cert-d-export-write");
+        writer.setDaemon(true);
+        writer.start();
+
+        try {
+            while (writeError == null && sources.hasNext()) {
+                T source = sources.next();
+                buffered.acquire();
+                if (ordered) {
+                    queue.put(readers.submit(() -> read.apply(source)));
+                } else {
+                    readers.execute(() -> queue.add(CompletableFuture.completedFuture(read.apply(source))));
+                }
+            }
+        } finally {
+            readers.shutdown();
+            readers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            queue.put(END);
+            writer.join();
+        }
+
+        if (writeError != null) {
+            throw writeError;
+        }
+        out.flush();
+        return new ExportResult(exported, bytes, missing, failed, System.nanoTime() - start);
+    }
+
+    private void write(BlockingQueue<Future<Item>> queue, Semaphore buffered, OutputStream out) {
+        try {
+            Future<Item> next;
+            while ((next = queue.take()) != END) {
+                Item item = next.get();
+                try {
+                    if (item.missing) {
+                        missing.add(item.fingerprint);
+                    } else if (item.error != null) {
+                        failed.put(item.fingerprint, item.error);
+                    } else if (writeError == null) {
+                        out.write(item.bytes);
+                        exported++;
+                        bytes += item.bytes.length;
+                    }
+                } catch (IOException e) {
+                    writeError = e;
+                } finally {
+                    buffered.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // read() does not throw
+            throw new AssertionError(e);
+        }
+    }
+
+    private Item read(String fingerprint) {
+        try {
+            Certificate certificate = directory.getByFingerprint(fingerprint);
+            if (certificate == null) {
+                return Item.missing(fingerprint);
+            }
+            return read(certificate);
+        } catch (NoSuchElementException e) {
+            return Item.missing(fingerprint);
+        } catch (BadNameException | BadDataException | IOException | RuntimeException e) {
+            return new Item(fingerprint, null, e, false);
+        }
+    }
+
+    private Item read(Certificate certificate) {
+        try (InputStream in = certificate.getInputStream()) {
+            return new Item(certificate.getFingerprint(), Streams.readAll(in), null, false);
+        } catch (IOException | RuntimeException e) {
+            return new Item(certificate.getFingerprint(), null, e, false);
+        }
+    }
+
+    private static final class Item {
+        private final String fingerprint;
+        private final byte[] bytes;
+        private final Exception error;
+        private final boolean missing;
+
+        private Item(String fingerprint, byte[] bytes, Exception error, boolean missing) {
+            this.fingerprint = fingerprint;
+            this.bytes = bytes;
+            this.error = error;
+            this.missing = missing;
+        }
+
+        private static Item missing(String fingerprint) {
+            return new Item(fingerprint, null, null, true);
+        }
+    }
+}
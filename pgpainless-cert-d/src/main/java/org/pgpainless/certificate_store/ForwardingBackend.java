@@ -0,0 +1,98 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} which forwards all calls to a delegate backend.
+ * Subclasses override the methods they want to decorate.
+ */
+public abstract class ForwardingBackend implements PGPCertificateDirectory.Backend {
+
+    private final PGPCertificateDirectory.Backend delegate;
+
+    protected ForwardingBackend(PGPCertificateDirectory.Backend delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Return the backend this backend forwards to.
+     *
+     * @return delegate backend
+     */
+    public PGPCertificateDirectory.Backend getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Return the innermost backend, which the given backend forwards to, or the given backend itself,
+     * if it does not forward.
+     *
+     * @param backend backend
+     * @return innermost backend
+     */
+    static PGPCertificateDirectory.Backend unwrap(PGPCertificateDirectory.Backend backend) {
+        while (backend instanceof ForwardingBackend) {
+            backend = ((ForwardingBackend) backend).getDelegate();
+        }
+        return backend;
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return delegate.getLock();
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint)
+            throws BadNameException, IOException, BadDataException {
+        return delegate.readByFingerprint(fingerprint);
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName)
+            throws BadNameException, IOException, BadDataException {
+        return delegate.readBySpecialName(specialName);
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        return delegate.readItems();
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        return delegate.doInsertTrustRoot(data, merge);
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        return delegate.doInsert(data, merge);
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException, BadNameException {
+        return delegate.doInsertWithSpecialName(specialName, data, merge);
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint)
+            throws BadNameException, IOException {
+        return delegate.getTagForFingerprint(fingerprint);
+    }
+}
@@ -0,0 +1,287 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Commits concurrent inserts into a {@link PGPainlessCertD} in batches.
+ * Inserting threads parse their certificates and enqueue them. A single committer thread takes all queued
+ * inserts at once, acquires the write lock of the directory once for the whole batch, merges all updates
+ * to the same certificate in memory, writes each changed certificate once and syncs the written files
+ * according to the {@link Durability} policy. Inserting threads wait until their batch was committed.
+ * <p>
+ * While the committer is busy with a batch, further inserts accumulate in the queue, so the batch size
+ * adapts to the load without delaying inserts if there is no contention.
+ */
+final class GroupCommitter implements Closeable {
+
+    private static final Request CLOSE = new Request(null, null, null, null);
+
+    private final PGPainlessCertD directory;
+    private final PGPCertificateDirectory.Backend backend;
+    private final KeyMaterialReader reader;
+    private final File baseDirectory;
+    private final Durability durability;
+    private final int maxBatchSize;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    GroupCommitter(PGPainlessCertD directory,
+                   PGPCertificateDirectory.Backend backend,
+                   KeyMaterialReader reader,
+                   Durability durability,
+                   int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.backend = backend;
+        this.reader = reader;
+        this.baseDirectory = DirectoryLayout.baseDirectory(backend);
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.thread = new Thread(this::run, "cert-d-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Insert a certificate and wait until the batch containing it was committed.
+     * If the batch contains further updates to the same certificate, the returned certificate reflects
+     * all of them.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @return merged certificate
+     * @throws IOException if the certificate cannot be read, merged or written
+     * @throws BadDataException if the data does not contain a certificate
+     * @throws InterruptedException if the calling thread gets interrupted while waiting for the commit
+     */
+    Certificate insert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException {
+        ParsedKeyMaterialStream parsed = ParsedKeyMaterialStream.parse(data, reader);
+        Request request = new Request(parsed, parsed.getKeyMaterial(), merge, new CompletableFuture<>());
+
+        if (closed) {
+            throw new IOException("Group commit is closed.");
+        }
+        queue.put(request);
+        if (closed && queue.remove(request)) {
+            throw new IOException("Group commit is closed.");
+        }
+
+        try {
+            return request.result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof BadDataException) {
+                throw (BadDataException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Commit all pending inserts and stop the committer thread.
+     * Inserts, which are enqueued after closing, fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Request> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Request request : remaining) {
+            if (request != CLOSE) {
+                request.result.completeExceptionally(new IOException("Group commit is closed."));
+            }
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            stop = batch.remove(CLOSE);
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        Map<String, List<Request>> updates = new LinkedHashMap<>();
+        for (Request request : batch) {
+            updates.computeIfAbsent(request.update.getFingerprint(), fingerprint -> new ArrayList<>()).add(request);
+        }
+
+        PGPCertificateDirectory.LockingMechanism lock = backend.getLock();
+        try {
+            lock.lockDirectory();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            fail(batch, e);
+            return;
+        }
+
+        Map<Request, Certificate> committed = new LinkedHashMap<>();
+        Set<File> unsynced = new LinkedHashSet<>();
+        try {
+            for (Map.Entry<String, List<Request>> entry : updates.entrySet()) {
+                commit(entry.getKey(), entry.getValue(), committed, unsynced);
+            }
+            if (durability == Durability.PER_BATCH) {
+                sync(unsynced);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Written certificates are not durable, unfinished ones were not written
+            fail(batch, e);
+            return;
+        } finally {
+            try {
+                lock.releaseDirectory();
+            } catch (IOException e) {
+                // The batch was written regardless
+            }
+        }
+
+        for (Map.Entry<Request, Certificate> entry : committed.entrySet()) {
+            entry.getKey().result.complete(entry.getValue());
+        }
+    }
+
+    private void commit(String fingerprint,
+                        List<Request> requests,
+                        Map<Request, Certificate> committed,
+                        Set<File> unsynced) {
+        File file = baseDirectory != null ? DirectoryLayout.certificateFile(baseDirectory, fingerprint) : null;
+        boolean newDirectory = file != null && !file.getParentFile().isDirectory();
+        List<Request> merged = new ArrayList<>();
+        Certificate certificate;
+        try {
+            // The backend reads and passes the existing certificate, all updates are merged into it in order
+            certificate = backend.doInsert(requests.get(0).parsed.reopen(), (data, existing) -> {
+                KeyMaterial current = existing;
+                for (Request request : requests) {
+                    try {
+                        current = request.merge.merge(request.update, current);
+                        merged.add(request);
+                    } catch (IOException | RuntimeException e) {
+                        request.result.completeExceptionally(e);
+                    }
+                }
+                if (current == null) {
+                    throw new IOException("No update could be merged.");
+                }
+                return current;
+            });
+            directory.storeCertificateSubkeyIds(certificate.getFingerprint(), certificate.getSubkeyIds());
+
+            if (file != null && durability != Durability.NONE) {
+                Set<File> written = durability == Durability.PER_BATCH ? unsynced : new LinkedHashSet<>();
+                written.add(file);
+                written.add(file.getParentFile());
+                if (newDirectory) {
+                    written.add(baseDirectory);
+                }
+                if (durability == Durability.PER_OPERATION) {
+                    sync(written);
+                }
+            }
+        } catch (BadDataException | IOException | RuntimeException e) {
+            fail(requests, e);
+            return;
+        }
+
+        for (Request request : merged) {
+            committed.put(request, certificate);
+        }
+    }
+
+    private static void fail(List<Request> requests, Exception error) {
+        for (Request request : requests) {
+            // Requests which already failed keep their original cause
+            request.result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Flush the given files and directories to the storage device.
+     * Directories are synced to persist newly created entries. Platforms, which do not allow to open
+     * directories, are expected to persist entries along with the files.
+     */
+    private static void sync(Set<File> files) throws IOException {
+        for (File file : files) {
+            if (file.isDirectory()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    channel.force(true);
+                } catch (IOException e) {
+                    // Directories cannot be synced on this platform
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    channel.force(true);
+                }
+            }
+        }
+    }
+
+    private static final class Request {
+        private final ParsedKeyMaterialStream parsed;
+        private final KeyMaterial update;
+        private final KeyMaterialMerger merge;
+        private final CompletableFuture<Certificate> result;
+
+        private Request(ParsedKeyMaterialStream parsed,
+                        KeyMaterial update,
+                        KeyMaterialMerger merge,
+                        CompletableFuture<Certificate> result) {
+            this.parsed = parsed;
+            this.update = update;
+            this.merge = merge;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StoreMetrics} implementation which keeps counters and latency histograms in memory.
+ * Latencies are recorded into power-of-two buckets, so percentiles are accurate up to a factor of two.
+ * Applications which use a metrics library should rather implement {@link StoreMetrics} themselves.
+ */
+public class HistogramStoreMetrics implements StoreMetrics {
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Transfer, LongAdder> bytes = new EnumMap<>(Transfer.class);
+
+    public HistogramStoreMetrics() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new Histogram());
+        }
+        for (Transfer transfer : Transfer.values()) {
+            bytes.put(transfer, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long durationNanos, boolean success) {
+        histograms.get(operation).record(durationNanos, success);
+    }
+
+    @Override
+    public void recordBytes(Transfer transfer, long count) {
+        bytes.get(transfer).add(count);
+    }
+
+    /**
+     * Return the number of recorded operations.
+     *
+     * @param operation operation
+     * @return count
+     */
+    public long getCount(Operation operation) {
+        return histograms.get(operation).count.sum();
+    }
+
+    /**
+     * Return the number of recorded operations which failed.
+     *
+     * @param operation operation
+     * @return number of failures
+     */
+    public long getFailureCount(Operation operation) {
+        return histograms.get(operation).failures.sum();
+    }
+
+    /**
+     * Return the total time spent in the operation.
+     *
+     * @param operation operation
+     * @return total duration in nanoseconds
+     */
+    public long getTotalNanos(Operation operation) {
+        return histograms.get(operation).totalNanos.sum();
+    }
+
+    /**
+     * Return the longest recorded duration of the operation.
+     *
+     * @param operation operation
+     * @return maximum duration in nanoseconds
+     */
+    public long getMaxNanos(Operation operation) {
+        return histograms.get(operation).maxNanos.get();
+    }
+
+    /**
+     * Return an upper bound for the given percentile of the durations of the operation.
+     *
+     * @param operation operation
+     * @param percentile percentile between 0 and 100
+     * @return duration in nanoseconds, or 0 if the operation was never recorded
+     */
+    public long getPercentileNanos(Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile MUST be between 0 and 100.");
+        }
+        return histograms.get(operation).percentile(percentile);
+    }
+
+    /**
+     * Return the number of transferred bytes.
+     *
+     * @param transfer direction
+     * @return number of bytes
+     */
+    public long getBytes(Transfer transfer) {
+        return bytes.get(transfer).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            long count = getCount(operation);
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%s: count=%d failures=%d mean=%dus p50<=%dus p99<=%dus max=%dus%n",
+                    operation, count, getFailureCount(operation),
+                    getTotalNanos(operation) / count / 1000,
+                    getPercentileNanos(operation, 50) / 1000,
+                    getPercentileNanos(operation, 99) / 1000,
+                    getMaxNanos(operation) / 1000));
+        }
+        sb.append(String.format("bytes read=%d written=%d",
+                getBytes(Transfer.READ), getBytes(Transfer.WRITTEN)));
+        return sb.toString();
+    }
+
+    private static final class Histogram {
+        // Bucket i holds durations d with 2^(i-1) <= d < 2^i, bucket 0 holds durations <= 0
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long durationNanos, boolean success) {
+            long duration = Math.max(0, durationNanos);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(duration));
+            count.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalNanos.add(duration);
+            maxNanos.accumulate(duration);
+        }
+
+        long percentile(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && snapshot[i] != 0) {
+                    if (i == 0) {
+                        return 0;
+                    }
+                    return i == Long.SIZE - 1 ? maxNanos.get() : Math.min((1L << i) - 1, maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Factory methods for decorators, which record the latency of operations and the number of transferred bytes
+ * to a {@link StoreMetrics} sink.
+ * If the sink is {@link StoreMetrics#NOOP}, all methods return the given component as is.
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+
+    }
+
+    /**
+     * Instrument a backend.
+     * Records {@link StoreMetrics.Operation#GET}, {@link StoreMetrics.Operation#INSERT},
+     * {@link StoreMetrics.Operation#MERGE}, {@link StoreMetrics.Operation#WRITE} and
+     * {@link StoreMetrics.Operation#LOCK_WAIT}, as well as the number of bytes read and written.
+     *
+     * @param backend backend
+     * @param metrics metrics sink
+     * @return instrumented backend
+     */
+    public static PGPCertificateDirectory.Backend backend(PGPCertificateDirectory.Backend backend,
+                                                          StoreMetrics metrics) {
+        if (metrics == StoreMetrics.NOOP) {
+            return backend;
+        }
+        return new InstrumentedBackend(backend, metrics);
+    }
+
+    /**
+     * Instrument a subkey lookup.
+     * Records {@link StoreMetrics.Operation#SUBKEY_LOOKUP} and {@link StoreMetrics.Operation#SUBKEY_STORE}.
+     *
+     * @param subkeyLookup subkey lookup
+     * @param metrics metrics sink
+     * @return instrumented subkey lookup
+     */
+    public static SubkeyLookup subkeyLookup(SubkeyLookup subkeyLookup, StoreMetrics metrics) {
+        if (metrics == StoreMetrics.NOOP) {
+            return subkeyLookup;
+        }
+        return new InstrumentedSubkeyLookup(subkeyLookup, metrics);
+    }
+
+    /**
+     * Instrument a key material reader.
+     * Records {@link StoreMetrics.Operation#PARSE}.
+     *
+     * @param reader reader
+     * @param metrics metrics sink
+     * @return instrumented reader
+     */
+    public static KeyMaterialReaderBackend reader(KeyMaterialReaderBackend reader, StoreMetrics metrics) {
+        if (metrics == StoreMetrics.NOOP) {
+            return reader;
+        }
+        return new InstrumentedReader(reader, metrics);
+    }
+
+    /**
+     * Instrument a merge callback.
+     * Records {@link StoreMetrics.Operation#MERGE}.
+     * Note, that merge callbacks passed to an {@link #backend(PGPCertificateDirectory.Backend, StoreMetrics)
+     * instrumented backend} are instrumented automatically.
+     *
+     * @param merger merge callback
+     * @param metrics metrics sink
+     * @return instrumented merge callback
+     */
+    public static KeyMaterialMerger merger(KeyMaterialMerger merger, StoreMetrics metrics) {
+        if (metrics == StoreMetrics.NOOP) {
+            return merger;
+        }
+        return new InstrumentedMerger(merger, metrics);
+    }
+
+    /**
+     * Instrument a locking mechanism.
+     * Records {@link StoreMetrics.Operation#LOCK_WAIT}.
+     *
+     * @param lock locking mechanism
+     * @param metrics metrics sink
+     * @return instrumented locking mechanism
+     */
+    public static PGPCertificateDirectory.LockingMechanism lock(PGPCertificateDirectory.LockingMechanism lock,
+                                                                StoreMetrics metrics) {
+        if (metrics == StoreMetrics.NOOP) {
+            return lock;
+        }
+        return new InstrumentedLock(lock, metrics);
+    }
+
+    private static final class InstrumentedBackend extends ForwardingBackend {
+
+        private final StoreMetrics metrics;
+        private final PGPCertificateDirectory.LockingMechanism lock;
+
+        private InstrumentedBackend(PGPCertificateDirectory.Backend delegate, StoreMetrics metrics) {
+            super(delegate);
+            this.metrics = metrics;
+            this.lock = new InstrumentedLock(delegate.getLock(), metrics);
+        }
+
+        @Override
+        public PGPCertificateDirectory.LockingMechanism getLock() {
+            return lock;
+        }
+
+        @Override
+        public Certificate readByFingerprint(String fingerprint)
+                throws BadNameException, IOException, BadDataException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Certificate certificate = getDelegate().readByFingerprint(fingerprint);
+                recordRead(certificate);
+                success = true;
+                return certificate;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.GET, System.nanoTime() - start, success);
+            }
+        }
+
+        @Override
+        public KeyMaterial readBySpecialName(String specialName)
+                throws BadNameException, IOException, BadDataException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                KeyMaterial keyMaterial = getDelegate().readBySpecialName(specialName);
+                recordRead(keyMaterial);
+                success = true;
+                return keyMaterial;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.GET, System.nanoTime() - start, success);
+            }
+        }
+
+        @Override
+        public Iterator<Certificate> readItems() {
+            Iterator<Certificate> items = getDelegate().readItems();
+            return new Iterator<Certificate>() {
+                @Override
+                public boolean hasNext() {
+                    return items.hasNext();
+                }
+
+                @Override
+                public Certificate next() {
+                    Certificate certificate = items.next();
+                    recordRead(certificate);
+                    return certificate;
+                }
+            };
+        }
+
+        @Override
+        public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+                throws BadDataException, IOException {
+            long start = System.nanoTime();
+            InstrumentedMerger merger = new InstrumentedMerger(merge, metrics);
+            boolean success = false;
+            boolean written = false;
+            try {
+                KeyMaterial inserted = getDelegate().doInsertTrustRoot(data, merger);
+                success = true;
+                written = merger.isWritten(inserted);
+                if (written) {
+                    recordWritten(inserted);
+                }
+                return inserted;
+            } finally {
+                recordInsert(start, merger, success, written);
+            }
+        }
+
+        @Override
+        public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+                throws BadDataException, IOException {
+            long start = System.nanoTime();
+            InstrumentedMerger merger = new InstrumentedMerger(merge, metrics);
+            boolean success = false;
+            boolean written = false;
+            try {
+                Certificate inserted = getDelegate().doInsert(data, merger);
+                success = true;
+                written = merger.isWritten(inserted);
+                if (written) {
+                    recordWritten(inserted);
+                }
+                return inserted;
+            } finally {
+                recordInsert(start, merger, success, written);
+            }
+        }
+
+        @Override
+        public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+                throws BadDataException, IOException, BadNameException {
+            long start = System.nanoTime();
+            InstrumentedMerger merger = new InstrumentedMerger(merge, metrics);
+            boolean success = false;
+            boolean written = false;
+            try {
+                Certificate inserted = getDelegate().doInsertWithSpecialName(specialName, data, merger);
+                success = true;
+                written = merger.isWritten(inserted);
+                if (written) {
+                    recordWritten(inserted);
+                }
+                return inserted;
+            } finally {
+                recordInsert(start, merger, success, written);
+            }
+        }
+
+        private void recordInsert(long start, InstrumentedMerger merger, boolean success, boolean written) {
+            long duration = System.nanoTime() - start;
+            metrics.recordLatency(StoreMetrics.Operation.INSERT, duration, success);
+            // Inserts which did not change the certificate, e.g. skipped by a SkipUnchangedBackend, wrote nothing
+            if (written || !success) {
+                metrics.recordLatency(StoreMetrics.Operation.WRITE, duration - merger.elapsedNanos, success);
+            }
+        }
+
+        private void recordRead(KeyMaterial keyMaterial) {
+            if (keyMaterial != null) {
+                metrics.recordBytes(StoreMetrics.Transfer.READ, CertificateCache.weigh(keyMaterial));
+            }
+        }
+
+        private void recordWritten(KeyMaterial keyMaterial) {
+            if (keyMaterial != null) {
+                metrics.recordBytes(StoreMetrics.Transfer.WRITTEN, CertificateCache.weigh(keyMaterial));
+            }
+        }
+    }
+
+    private static final class InstrumentedMerger implements KeyMaterialMerger {
+
+        private final KeyMaterialMerger delegate;
+        private final StoreMetrics metrics;
+        // Total time spent merging, only accessed by the inserting thread
+        private long elapsedNanos = 0;
+        // Existing key material passed to the last merge
+        private KeyMaterial existing;
+
+        private InstrumentedMerger(KeyMaterialMerger delegate, StoreMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public KeyMaterial merge(KeyMaterial data, KeyMaterial existing) throws IOException {
+            this.existing = existing;
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                KeyMaterial merged = delegate.merge(data, existing);
+                success = true;
+                return merged;
+            } finally {
+                long duration = System.nanoTime() - start;
+                elapsedNanos += duration;
+                metrics.recordLatency(StoreMetrics.Operation.MERGE, duration, success);
+            }
+        }
+
+        /**
+         * Return true, if the insert which returned the given key material wrote a new encoding.
+         * Backends signal unchanged certificates by returning the existing key material instance,
+         * see {@link SkipUnchangedBackend}.
+         */
+        private boolean isWritten(KeyMaterial inserted) {
+            return inserted != null && (existing == null || inserted != existing);
+        }
+    }
+
+    private static final class InstrumentedReader implements KeyMaterialReaderBackend {
+
+        private final KeyMaterialReaderBackend delegate;
+        private final StoreMetrics metrics;
+
+        private InstrumentedReader(KeyMaterialReaderBackend delegate, StoreMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+            if (ParsedKeyMaterialStream.isUnread(data)) {
+                // Most likely not parsed again
+                return delegate.read(data, tag);
+            }
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                KeyMaterial keyMaterial = delegate.read(data, tag);
+                success = true;
+                return keyMaterial;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.PARSE, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    private static final class InstrumentedSubkeyLookup implements SubkeyLookup {
+
+        private final SubkeyLookup delegate;
+        private final StoreMetrics metrics;
+
+        private InstrumentedSubkeyLookup(SubkeyLookup delegate, StoreMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Set<String> fingerprints = delegate.getCertificateFingerprintsForSubkeyId(subkeyId);
+                success = true;
+                return fingerprints;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.SUBKEY_LOOKUP, System.nanoTime() - start, success);
+            }
+        }
+
+        @Override
+        public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                delegate.storeCertificateSubkeyIds(certificate, subkeyIds);
+                success = true;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.SUBKEY_STORE, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    private static final class InstrumentedLock implements PGPCertificateDirectory.LockingMechanism {
+
+        private final PGPCertificateDirectory.LockingMechanism delegate;
+        private final StoreMetrics metrics;
+
+        private InstrumentedLock(PGPCertificateDirectory.LockingMechanism delegate, StoreMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void lockDirectory() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                delegate.lockDirectory();
+                success = true;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.LOCK_WAIT, System.nanoTime() - start, success);
+            }
+        }
+
+        @Override
+        public boolean tryLockDirectory() throws IOException {
+            long start = System.nanoTime();
+            boolean locked = false;
+            try {
+                locked = delegate.tryLockDirectory();
+                return locked;
+            } finally {
+                metrics.recordLatency(StoreMetrics.Operation.LOCK_WAIT, System.nanoTime() - start, locked);
+            }
+        }
+
+        @Override
+        public boolean isLocked() {
+            return delegate.isLocked();
+        }
+
+        @Override
+        public void releaseDirectory() throws IOException {
+            delegate.releaseDirectory();
+        }
+    }
+}
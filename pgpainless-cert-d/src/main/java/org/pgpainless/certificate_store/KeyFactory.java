@@ -43,8 +43,22 @@ public class KeyFactory {
      * @throws IOException if the key cannot be encoded
      */
     public static Key keyFromOpenPGPKey(OpenPGPKey key, Long tag) throws IOException {
+        return keyFromOpenPGPKey(key, tag, SubkeyIdExtraction.ALL_KEYS);
+    }
+
+    /**
+     * Create a {@link Key} from the given {@link OpenPGPKey} and tag.
+     *
+     * @param key OpenPGP key
+     * @param tag tag
+     * @param extraction which (sub-)keys to include in the subkey-ids of the certificate
+     * @return key
+     * @throws IOException if the key cannot be encoded
+     */
+    public static Key keyFromOpenPGPKey(OpenPGPKey key, Long tag, SubkeyIdExtraction extraction) throws IOException {
         byte[] bytes = key.getEncoded(PacketFormat.ROUNDTRIP);
-        Certificate certificate = CertificateFactory.certificateFromOpenPGPCertificate(key.toCertificate(), tag);
+        Certificate certificate = CertificateFactory.certificateFromOpenPGPCertificate(
+                key.toCertificate(), tag, extraction);
         return new Key(bytes, certificate, tag);
     }
 }
@@ -4,40 +4,204 @@
 
 package org.pgpainless.certificate_store;
 
+import org.bouncycastle.bcpg.BCPGInputStream;
+import org.bouncycastle.bcpg.MarkerPacket;
+import org.bouncycastle.bcpg.Packet;
+import org.bouncycastle.bcpg.PaddingPacket;
+import org.bouncycastle.bcpg.PublicKeyPacket;
+import org.bouncycastle.bcpg.PublicSubkeyPacket;
+import org.bouncycastle.bcpg.SignaturePacket;
+import org.bouncycastle.bcpg.UserAttributePacket;
+import org.bouncycastle.bcpg.UserIDPacket;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPUtil;
 import org.bouncycastle.openpgp.api.OpenPGPCertificate;
 import org.bouncycastle.openpgp.api.OpenPGPKey;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.io.Streams;
 import org.pgpainless.PGPainless;
 import pgp.certificate_store.certificate.KeyMaterial;
 import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
 import pgp.certificate_store.exception.BadDataException;
 
-import java.io.EOFException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 public class KeyMaterialReader implements KeyMaterialReaderBackend {
 
+    // Upper bound for the length of a single packet of a lazily read certificate
+    private static final int MAX_PACKET_LENGTH = 1024 * 1024;
+
+    private static final int COMPONENT_NONE = 0;
+    private static final int COMPONENT_PRIMARY_KEY = 1;
+    private static final int COMPONENT_IDENTITY = 2;
+    private static final int COMPONENT_SUBKEY = 3;
+
+    private final SubkeyIdExtraction extraction;
+
+    /**
+     * Create a reader, whose certificates report the ids of all (sub-)keys as subkey-ids.
+     */
+    public KeyMaterialReader() {
+        this(SubkeyIdExtraction.ALL_KEYS);
+    }
+
+    /**
+     * Create a reader.
+     *
+     * @param extraction which (sub-)keys to include in the subkey-ids of read certificates
+     */
+    public KeyMaterialReader(SubkeyIdExtraction extraction) {
+        this.extraction = extraction;
+    }
+
+    /**
+     * Read a certificate or key from the given {@link InputStream}.
+     * Certificates are returned as {@link LazyCertificate LazyCertificates}, whose fingerprint is calculated
+     * from the primary key packet, so that reading a certificate does not require any signature verification.
+     * Keys and inputs which do not look like a single, well-formed certificate are fully parsed.
+     *
+     * @param data input stream
+     * @param tag tag
+     * @return key or certificate
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the data does not contain an OpenPGP certificate or key
+     */
     @Override
     public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+        if (tag == null && data instanceof ParsedKeyMaterialStream) {
+            // Parsed by the insert path already
+            KeyMaterial parsed = ((ParsedKeyMaterialStream) data).take(this);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+        byte[] bytes = Streams.readAll(data);
+
+        LazyCertificate lazyCertificate = readLazily(bytes, tag);
+        if (lazyCertificate != null) {
+            return lazyCertificate;
+        }
+
+        return parse(new ByteArrayInputStream(bytes), tag);
+    }
+
+    SubkeyIdExtraction getExtraction() {
+        return extraction;
+    }
+
+    private KeyMaterial parse(InputStream data, Long tag) throws IOException, BadDataException {
         OpenPGPCertificate keyOrCertificate;
         try {
             keyOrCertificate = PGPainless.getInstance()
                     .readKey()
                     .parseCertificateOrKey(data);
-        } catch (EOFException e) {
+        } catch (IOException e) {
+            // The data is read from memory, so any failure is caused by truncated or malformed packets
             // TODO: Pass 'e' once cert-d-java is bumped to 0.2.4
             throw new BadDataException();
-        } catch (IOException e) {
-            if (e.getMessage().contains("Neither a certificate, nor secret key.")) {
-                throw new BadDataException();
-            }
-            throw e;
         }
 
         if (keyOrCertificate.isSecretKey()) {
-            return KeyFactory.keyFromOpenPGPKey((OpenPGPKey) keyOrCertificate, tag);
+            return KeyFactory.keyFromOpenPGPKey((OpenPGPKey) keyOrCertificate, tag, extraction);
         } else {
-            return CertificateFactory.certificateFromOpenPGPCertificate(keyOrCertificate, tag);
+            return CertificateFactory.certificateFromOpenPGPCertificate(keyOrCertificate, tag, extraction);
+        }
+    }
+
+    /**
+     * Scan the packets of the given (possibly ASCII armored) encoding and return a {@link LazyCertificate}
+     * if the data consists of exactly one structurally well-formed certificate.
+     * The certificate packets are copied as they are, while marker and padding packets are dropped.
+     * Each user-id, user-attribute and subkey MUST be followed by at least one signature of a matching type.
+     * Returns null for keys, malformed data and anything unexpected, in which case the caller falls back to
+     * fully parsing the data, which takes care of proper error reporting.
+     *
+     * @param bytes encoding
+     * @param tag tag
+     * @return lazy certificate or null
+     */
+    private LazyCertificate readLazily(byte[] bytes, Long tag) {
+        try {
+            InputStream in = PGPUtil.getDecoderStream(new ByteArrayInputStream(bytes));
+            ByteArrayOutputStream certificate = new ByteArrayOutputStream(bytes.length);
+
+            PublicKeyPacket primaryKey = null;
+            // Kind of the component the following signatures belong to
+            int component = COMPONENT_NONE;
+            boolean componentSigned = false;
+            RawPacket raw;
+            while ((raw = RawPacket.read(in, MAX_PACKET_LENGTH)) != null) {
+                Packet packet = new BCPGInputStream(new ByteArrayInputStream(raw.getEncoding())).readPacket();
+                if (packet instanceof MarkerPacket || packet instanceof PaddingPacket) {
+                    continue;
+                }
+
+                if (packet instanceof SignaturePacket) {
+                    if (!isSignatureTypeOf(component, ((SignaturePacket) packet).getSignatureType())) {
+                        return null;
+                    }
+                    componentSigned = true;
+                } else {
+                    if (component != COMPONENT_NONE && component != COMPONENT_PRIMARY_KEY && !componentSigned) {
+                        // Unbound subkey or user-id
+                        return null;
+                    }
+                    componentSigned = false;
+                    if (packet instanceof PublicSubkeyPacket) {
+                        component = COMPONENT_SUBKEY;
+                    } else if (packet instanceof PublicKeyPacket) {
+                        if (primaryKey != null) {
+                            // Second certificate
+                            return null;
+                        }
+                        primaryKey = (PublicKeyPacket) packet;
+                        component = COMPONENT_PRIMARY_KEY;
+                    } else if (packet instanceof UserIDPacket || packet instanceof UserAttributePacket) {
+                        component = COMPONENT_IDENTITY;
+                    } else {
+                        // Secret keys, trust packets, etc.
+                        return null;
+                    }
+                    if (primaryKey == null) {
+                        return null;
+                    }
+                }
+                certificate.write(raw.getEncoding());
+            }
+
+            if (primaryKey == null || (component != COMPONENT_PRIMARY_KEY && !componentSigned)) {
+                return null;
+            }
+
+            PGPPublicKey publicKey = new PGPPublicKey(primaryKey, new BcKeyFingerprintCalculator());
+            String fingerprint = Hex.toHexString(publicKey.getFingerprint());
+            return new LazyCertificate(certificate.toByteArray(), fingerprint, tag, extraction);
+        } catch (IOException | PGPException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isSignatureTypeOf(int component, int signatureType) {
+        switch (component) {
+            case COMPONENT_PRIMARY_KEY:
+                return signatureType == PGPSignature.DIRECT_KEY || signatureType == PGPSignature.KEY_REVOCATION;
+            case COMPONENT_IDENTITY:
+                return signatureType == PGPSignature.DEFAULT_CERTIFICATION
+                        || signatureType == PGPSignature.NO_CERTIFICATION
+                        || signatureType == PGPSignature.CASUAL_CERTIFICATION
+                        || signatureType == PGPSignature.POSITIVE_CERTIFICATION
+                        || signatureType == PGPSignature.CERTIFICATION_REVOCATION;
+            case COMPONENT_SUBKEY:
+                return signatureType == PGPSignature.SUBKEY_BINDING
+                        || signatureType == PGPSignature.SUBKEY_REVOCATION;
+            default:
+                return false;
         }
     }
 }
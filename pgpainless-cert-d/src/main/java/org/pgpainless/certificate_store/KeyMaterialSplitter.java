@@ -0,0 +1,211 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.bcpg.ArmoredInputStream;
+import org.bouncycastle.bcpg.PacketTags;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Incremental reader, which splits a stream of concatenated OpenPGP keys and certificates into the
+ * binary encodings of the individual keys and certificates.
+ * The input may be binary or consist of one or more ASCII armored blocks.
+ * Packets are only framed, not parsed, and only a single key or certificate is held in memory at a time,
+ * so arbitrarily large keyrings can be processed with bounded memory.
+ * Keys or certificates exceeding the maximum item size are skipped and counted,
+ * see {@link #getSkippedCount()}.
+ * Read errors are reported as {@link UncheckedIOException UncheckedIOExceptions}.
+ */
+public class KeyMaterialSplitter implements Iterator<byte[]>, Closeable {
+
+    public static final int DEFAULT_MAX_ITEM_SIZE = 32 * 1024 * 1024;
+
+    private final BufferedInputStream source;
+    private final int maxItemSize;
+
+    private InputStream packetIn;
+    private RawPacket lookahead;
+    private byte[] next;
+    private long skipped = 0;
+
+    public KeyMaterialSplitter(InputStream inputStream) {
+        this(inputStream, DEFAULT_MAX_ITEM_SIZE);
+    }
+
+    /**
+     * Create a splitter which skips keys and certificates with an encoding larger than
+     * {@code maxItemSize} bytes.
+     *
+     * @param inputStream input stream
+     * @param maxItemSize maximum size of a single key or certificate in bytes
+     */
+    public KeyMaterialSplitter(InputStream inputStream, int maxItemSize) {
+        this.source = new BufferedInputStream(inputStream);
+        this.maxItemSize = maxItemSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readItem();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Return the binary encoding of the next key or certificate.
+     *
+     * @return encoding
+     */
+    @Override
+    public byte[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        byte[] item = next;
+        next = null;
+        return item;
+    }
+
+    /**
+     * Return a sequential {@link Stream} of the encodings of all remaining keys and certificates.
+     * Closing the stream closes the underlying input stream.
+     *
+     * @return stream
+     */
+    public Stream<byte[]> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Return the number of keys or certificates which were skipped, because they exceeded the maximum size.
+     *
+     * @return number of skipped items
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private byte[] readItem() throws IOException {
+        ByteArrayOutputStream item = null;
+        boolean oversized = false;
+
+        RawPacket packet;
+        while ((packet = nextPacket()) != null) {
+            boolean primaryKey = packet.getTag() == PacketTags.PUBLIC_KEY || packet.getTag() == PacketTags.SECRET_KEY;
+            if (primaryKey) {
+                if (item != null) {
+                    lookahead = packet;
+                    break;
+                }
+                // start of a new item, which might follow an oversized one
+                item = new ByteArrayOutputStream();
+                oversized = false;
+            }
+
+            if (item == null || packet.getTag() == PacketTags.TRUST) {
+                // Packets outside of keys (e.g. marker packets), packets of oversized items
+                // and GnuPG trust packets are dropped
+                continue;
+            }
+
+            if (packet.isOversized() || item.size() + packet.getEncoding().length > maxItemSize) {
+                item = null;
+                if (!oversized) {
+                    oversized = true;
+                    skipped++;
+                }
+                continue;
+            }
+            item.write(packet.getEncoding());
+        }
+
+        return item == null ? null : item.toByteArray();
+    }
+
+    private RawPacket nextPacket() throws IOException {
+        if (lookahead != null) {
+            RawPacket packet = lookahead;
+            lookahead = null;
+            return packet;
+        }
+
+        while (true) {
+            if (packetIn == null) {
+                packetIn = openNextBlock();
+                if (packetIn == null) {
+                    return null;
+                }
+            }
+
+            RawPacket packet = RawPacket.readOrSkip(packetIn, maxItemSize);
+            if (packet != null) {
+                return packet;
+            }
+            if (packetIn == source) {
+                // End of binary input
+                return null;
+            }
+            // End of armored block, there might be another one
+            packetIn = null;
+        }
+    }
+
+    private InputStream openNextBlock() throws IOException {
+        while (true) {
+            source.mark(1);
+            int b = source.read();
+            if (b == -1) {
+                return null;
+            }
+            if (Character.isWhitespace(b)) {
+                continue;
+            }
+            source.reset();
+
+            if (b == '-') {
+                return new ArmoredInputStream(source);
+            }
+            if ((b & 0x80) != 0) {
+                return source;
+            }
+
+            // Skip text between armored blocks
+            int c;
+            do {
+                c = source.read();
+            } while (c != -1 && c != '\n');
+        }
+    }
+}
@@ -0,0 +1,117 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.pgpainless.PGPainless;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * {@link Certificate} which only carries the encoding and the fingerprint of an OpenPGP certificate.
+ * The subkey-ids are only determined once they are requested for the first time.
+ * Callers which are only interested in the fingerprint or the encoding therefore do not pay for
+ * extracting them, let alone for signature verification.
+ */
+public class LazyCertificate extends Certificate {
+
+    private final byte[] bytes;
+    private final SubkeyIdExtraction extraction;
+    private volatile List<Long> subkeyIds;
+
+    /**
+     * Create a lazily evaluated certificate, whose subkey-ids include all (sub-)keys.
+     * The caller is responsible for making sure that the fingerprint matches the primary key of the
+     * binary encoded certificate.
+     *
+     * @param bytes binary encoding of the certificate
+     * @param fingerprint lowercase hex encoded fingerprint of the certificate
+     * @param tag tag
+     */
+    public LazyCertificate(byte[] bytes, String fingerprint, Long tag) {
+        this(bytes, fingerprint, tag, SubkeyIdExtraction.ALL_KEYS);
+    }
+
+    /**
+     * Create a lazily evaluated certificate.
+     * The caller is responsible for making sure that the fingerprint matches the primary key of the
+     * binary encoded certificate.
+     *
+     * @param bytes binary encoding of the certificate
+     * @param fingerprint lowercase hex encoded fingerprint of the certificate
+     * @param tag tag
+     * @param extraction which (sub-)keys to include in the subkey-ids
+     */
+    public LazyCertificate(byte[] bytes, String fingerprint, Long tag, SubkeyIdExtraction extraction) {
+        super(bytes, fingerprint, null, tag);
+        this.bytes = bytes;
+        this.extraction = extraction;
+    }
+
+    /**
+     * Return the subkey-ids of the certificate as determined by its {@link SubkeyIdExtraction}.
+     * On first invocation, this method scans the packets of the certificate, or, if only valid keys are
+     * requested, parses the certificate and evaluates its signatures.
+     *
+     * @return subkey-ids
+     * @throws UncheckedIOException if the certificate cannot be parsed
+     */
+    @Override
+    public List<Long> getSubkeyIds() {
+        List<Long> ids = subkeyIds;
+        if (ids == null) {
+            try {
+                ids = CertificateFactory.subkeyIds(bytes, extraction);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot parse certificate " + getFingerprint(), e);
+            }
+            subkeyIds = ids;
+        }
+        return ids;
+    }
+
+    /**
+     * Return the ids of all currently valid (sub-)keys of the certificate.
+     * This method always parses the certificate and evaluates its signatures.
+     *
+     * @return valid subkey-ids
+     * @throws UncheckedIOException if the certificate cannot be parsed
+     */
+    public List<Long> getValidSubkeyIds() {
+        if (extraction == SubkeyIdExtraction.VALID_KEYS) {
+            return getSubkeyIds();
+        }
+        return CertificateFactory.validSubkeyIds(parse());
+    }
+
+    /**
+     * Return true, if the subkey-ids of this certificate have already been evaluated.
+     *
+     * @return true if evaluated
+     */
+    public boolean isEvaluated() {
+        return subkeyIds != null;
+    }
+
+    /**
+     * Return the length of the binary encoding of the certificate.
+     *
+     * @return length in bytes
+     */
+    public int getLength() {
+        return bytes.length;
+    }
+
+    private OpenPGPCertificate parse() {
+        try {
+            return PGPainless.getInstance().readKey().parseCertificate(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot parse certificate " + getFingerprint(), e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SubkeyLookup} which opens the {@link PersistentSubkeyIndex} of a file based store and catches it up
+ * with the store only once a subkey-id is looked up.
+ * Opening the index stats every certificate file, which is wasted effort for invocations that never look up
+ * subkey-ids.
+ * <p>
+ * Subkey-ids stored before the index was opened are dropped. This is safe, since storing changes the tag of the
+ * certificate, so the catch-up performed when opening the index re-reads the certificate anyway.
+ * Once {@link #require() required}, e.g. for reindexing, storing subkey-ids opens the index as well.
+ */
+final class LazySubkeyIndex implements SubkeyLookup, Closeable {
+
+    private final File baseDirectory;
+    private final PGPCertificateDirectory.Backend backend;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile PersistentSubkeyIndex index;
+    private volatile boolean required = false;
+    // Guarded by lock
+    private boolean closed = false;
+
+    LazySubkeyIndex(File baseDirectory, PGPCertificateDirectory.Backend backend) {
+        this.baseDirectory = baseDirectory;
+        this.backend = backend;
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
+        return open().getCertificateFingerprintsForSubkeyId(subkeyId);
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+        PersistentSubkeyIndex opened = required ? open() : index;
+        if (opened == null) {
+            // Wait for a concurrent catch-up, which might have missed the certificate
+            lock.lock();
+            try {
+                opened = index;
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (opened != null) {
+            opened.storeCertificateSubkeyIds(certificate, subkeyIds);
+        }
+    }
+
+    /**
+     * Make subsequent writes open the index, so that they are not dropped.
+     */
+    void require() {
+        required = true;
+    }
+
+    /**
+     * Bring the index up to date with the store, opening it if necessary.
+     *
+     * @return number of (re-)indexed certificates
+     * @throws IOException if the index cannot be opened or updated
+     */
+    int catchUp() throws IOException {
+        lock.lock();
+        try {
+            if (index == null) {
+                return openAndCatchUp();
+            }
+            return index.catchUp(DirectoryLayout.fingerprints(baseDirectory));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Open the index and catch it up with the store, if that did not happen yet.
+     *
+     * @return index
+     * @throws IOException if the index cannot be opened or updated, or if it is closed
+     */
+    PersistentSubkeyIndex open() throws IOException {
+        PersistentSubkeyIndex opened = index;
+        if (opened != null) {
+            return opened;
+        }
+        lock.lock();
+        try {
+            if (index == null) {
+                openAndCatchUp();
+            }
+            return index;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int openAndCatchUp() throws IOException {
+        if (closed) {
+            throw new IOException("Subkey index is closed.");
+        }
+        PersistentSubkeyIndex created = new PersistentSubkeyIndex(
+                new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME), backend);
+        int indexed;
+        try {
+            indexed = created.catchUp(DirectoryLayout.fingerprints(baseDirectory));
+        } catch (IOException | RuntimeException e) {
+            created.close();
+            throw e;
+        }
+        index = created;
+        return indexed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            if (index != null) {
+                index.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -11,9 +11,9 @@ import org.bouncycastle.openpgp.PGPSecretKeyRing;
 import org.bouncycastle.openpgp.api.OpenPGPCertificate;
 import org.bouncycastle.openpgp.api.OpenPGPKey;
 import org.pgpainless.PGPainless;
-import org.pgpainless.key.OpenPgpFingerprint;
 import pgp.certificate_store.certificate.KeyMaterial;
 import pgp.certificate_store.certificate.KeyMaterialMerger;
+import org.bouncycastle.util.io.Streams;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -26,10 +26,27 @@ public class MergeCallbacks {
     /**
      * Return a {@link KeyMaterialMerger} that merges the two copies of the same certificate (same primary key) into one
      * combined certificate.
+     * If the update is byte-identical to the existing certificate, or if it does not contain any packets which
+     * are not already part of the existing certificate, the existing {@link KeyMaterial} instance is returned
+     * as is without parsing any of the two.
      *
      * @return merging callback
      */
     public static KeyMaterialMerger mergeWithExisting() {
+        return mergeWithExisting(MergeListener.NONE);
+    }
+
+    /**
+     * Return a {@link KeyMaterialMerger} that merges the two copies of the same certificate (same primary key) into one
+     * combined certificate.
+     * After each merge of an update into an existing certificate, the listener is notified about the number of
+     * new signatures, user-ids and subkeys.
+     *
+     * @param listener merge listener
+     * @return merging callback
+     * @see #mergeWithExisting()
+     */
+    public static KeyMaterialMerger mergeWithExisting(MergeListener listener) {
         return new KeyMaterialMerger() {
 
             @Override
@@ -43,15 +60,33 @@ public class MergeCallbacks {
                     return data;
                 }
 
+                // Fast path: The update does not add anything new -> return existing
+                byte[] existingEncoding = Streams.readAll(existing.getInputStream());
+                byte[] updatedEncoding = Streams.readAll(data.getInputStream());
+                if (Arrays.equals(existingEncoding, updatedEncoding)
+                        || PacketInventory.isSubset(existingEncoding, updatedEncoding)) {
+                    listener.onMerged(MergeResult.unchanged(existing.getFingerprint()));
+                    return existing;
+                }
+
                 PGPainless api = PGPainless.getInstance();
 
-                OpenPGPCertificate existingCert = api.readKey().parseCertificateOrKey(existing.getInputStream());
-                OpenPGPCertificate updatedCert = api.readKey().parseCertificateOrKey(data.getInputStream());
+                OpenPGPCertificate existingCert = api.readKey().parseCertificateOrKey(existingEncoding);
+                OpenPGPCertificate updatedCert = api.readKey().parseCertificateOrKey(updatedEncoding);
 
                 OpenPGPCertificate mergedCert = mergeCertificates(updatedCert, existingCert);
-
-                printOutDifferences(existingCert, mergedCert);
-                return toKeyMaterial(mergedCert);
+                KeyMaterial merged = toKeyMaterial(mergedCert);
+
+                if (listener != MergeListener.NONE) {
+                    boolean changed = !Arrays.equals(existingEncoding, Streams.readAll(merged.getInputStream()));
+                    listener.onMerged(new MergeResult(
+                            merged.getFingerprint(),
+                            countSigs(mergedCert) - countSigs(existingCert),
+                            mergedCert.getAllUserIds().size() - existingCert.getAllUserIds().size(),
+                            mergedCert.getKeys().size() - existingCert.getKeys().size(),
+                            changed));
+                }
+                return merged;
             }
 
             private OpenPGPCertificate mergeCertificates(OpenPGPCertificate updatedCertOrKey,
@@ -126,38 +161,6 @@ public class MergeCallbacks {
                 }
             }
 
-            private void printOutDifferences(OpenPGPCertificate existingCert, OpenPGPCertificate mergedCert) throws IOException {
-                int numSigsBefore = countSigs(existingCert);
-                int numSigsAfter = countSigs(mergedCert);
-                int newSigs = numSigsAfter - numSigsBefore;
-                int numUidsBefore = count(existingCert.getAllUserIds().iterator());
-                int numUidsAfter = count(mergedCert.getAllUserIds().iterator());
-                int newUids = numUidsAfter - numUidsBefore;
-
-                if (!Arrays.equals(existingCert.getEncoded(), mergedCert.getEncoded())) {
-                    OpenPgpFingerprint fingerprint = OpenPgpFingerprint.of(mergedCert);
-                    StringBuilder sb = new StringBuilder();
-                    sb.append(String.format("Certificate %s has", fingerprint));
-                    if (newSigs != 0) {
-                        sb.append(String.format(" %d new signatures", newSigs));
-                    }
-                    if (newUids != 0) {
-                        if (newSigs != 0) {
-                            sb.append(" and");
-                        }
-                        sb.append(String.format(" %d new UIDs", newUids));
-                    }
-                    if (newSigs == 0 && newUids == 0) {
-                        sb.append(" changed");
-                    }
-
-                    // In this case it is okay to print to stdout, since we are a CLI app
-                    // CHECKSTYLE:OFF
-                    System.out.println(sb);
-                    // CHECKSTYLE:ON
-                }
-            }
-
             private int countSigs(OpenPGPCertificate keys) {
                 int numSigs = 0;
                 for (OpenPGPCertificate.OpenPGPComponentKey componentKey : keys.getKeys()) {
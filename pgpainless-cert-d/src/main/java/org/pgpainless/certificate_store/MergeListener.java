@@ -0,0 +1,27 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+/**
+ * Listener, which gets notified about the outcome of merging an update into an existing key or certificate.
+ * Listeners are called on the inserting thread while the directory is locked, so they should return quickly.
+ *
+ * @see MergeCallbacks#mergeWithExisting(MergeListener)
+ */
+public interface MergeListener {
+
+    /**
+     * Listener which ignores all events.
+     */
+    MergeListener NONE = result -> {
+    };
+
+    /**
+     * Called after an update was merged into an existing key or certificate.
+     *
+     * @param result summary of the merge
+     */
+    void onMerged(MergeResult result);
+}
@@ -0,0 +1,106 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+/**
+ * Summary of merging an update into an existing key or certificate.
+ * Instances are passed to {@link MergeListener MergeListeners}.
+ */
+public final class MergeResult {
+
+    private final String fingerprint;
+    private final int newSignatures;
+    private final int newUserIds;
+    private final int newSubkeys;
+    private final boolean changed;
+
+    MergeResult(String fingerprint, int newSignatures, int newUserIds, int newSubkeys, boolean changed) {
+        this.fingerprint = fingerprint;
+        this.newSignatures = newSignatures;
+        this.newUserIds = newUserIds;
+        this.newSubkeys = newSubkeys;
+        this.changed = changed;
+    }
+
+    static MergeResult unchanged(String fingerprint) {
+        return new MergeResult(fingerprint, 0, 0, 0, false);
+    }
+
+    /**
+     * Return the fingerprint of the merged key or certificate.
+     *
+     * @return fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Return the number of signatures which were added by the merge.
+     *
+     * @return number of new signatures
+     */
+    public int getNewSignatures() {
+        return newSignatures;
+    }
+
+    /**
+     * Return the number of user-ids and user-attributes which were added by the merge.
+     *
+     * @return number of new user-ids
+     */
+    public int getNewUserIds() {
+        return newUserIds;
+    }
+
+    /**
+     * Return the number of subkeys which were added by the merge.
+     *
+     * @return number of new subkeys
+     */
+    public int getNewSubkeys() {
+        return newSubkeys;
+    }
+
+    /**
+     * Return true, if the encoding of the merged key or certificate differs from the existing one.
+     * This might be the case even if no new signatures, user-ids or subkeys were added,
+     * e.g. if secret key material was merged into a certificate.
+     *
+     * @return true if changed
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        if (!changed) {
+            return String.format("Certificate %s is unchanged", fingerprint);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Certificate %s has", fingerprint));
+        int parts = 0;
+        parts = appendCount(sb, parts, newSignatures, "signatures");
+        parts = appendCount(sb, parts, newUserIds, "UIDs");
+        parts = appendCount(sb, parts, newSubkeys, "subkeys");
+        if (parts == 0) {
+            sb.append(" changed");
+        }
+        return sb.toString();
+    }
+
+    private static int appendCount(StringBuilder sb, int parts, int count, String what) {
+        if (count == 0) {
+            return parts;
+        }
+        if (parts != 0) {
+            sb.append(" and");
+        }
+        sb.append(String.format(" %d new %s", count, what));
+        return parts + 1;
+    }
+}
@@ -8,25 +8,85 @@ import pgp.cert_d.BaseDirectoryProvider;
 import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
 import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
 import pgp.cert_d.PGPCertificateDirectory;
-import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 import pgp.cert_d.subkey_lookup.SubkeyLookupFactory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
 import pgp.certificate_store.exception.NotAStoreException;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class PGPainlessCertD extends PGPCertificateDirectory {
+public class PGPainlessCertD extends PGPCertificateDirectory implements Closeable {
+
+    public static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 200;
+    public static final long DEFAULT_WATCH_POLL_INTERVAL_MILLIS = 5000;
+    public static final int DEFAULT_GROUP_COMMIT_BATCH_SIZE = 256;
 
     private static final KeyMaterialReader keyMaterialReader = new KeyMaterialReader();
 
+    private final Backend backend;
+    // Components which need to be closed along with the directory
+    private final List<Closeable> resources = new ArrayList<>();
+    private volatile GroupCommitter groupCommitter;
+    private volatile ValiditySummaryCache validitySummaries;
+    // Lock of prefixes, if the backend supports striped locking
+    private final StripedDirectoryLock stripedLock;
+    private final ReentrantLock subkeyLookupWrites = new ReentrantLock();
+    // Persistent subkey index, if the directory uses one
+    private final LazySubkeyIndex subkeyIndex;
+
     public PGPainlessCertD(Backend backend, SubkeyLookup subkeyLookup) {
+        this(backend, subkeyLookup, backend, subkeyLookup);
+    }
+
+    private PGPainlessCertD(Backend backend, SubkeyLookup subkeyLookup, Object... components) {
         super(backend, subkeyLookup);
+        this.backend = backend;
+        this.stripedLock = stripedLock(backend);
+        LazySubkeyIndex index = null;
+        for (Object component : components) {
+            if (component instanceof Closeable && !resources.contains(component)) {
+                resources.add((Closeable) component);
+            }
+            if (component instanceof LazySubkeyIndex) {
+                index = (LazySubkeyIndex) component;
+            }
+        }
+        this.subkeyIndex = index;
     }
 
     public static PGPainlessCertD inMemory() {
-        Backend backend = new InMemoryCertificateDirectoryBackend(keyMaterialReader);
-        SubkeyLookup subkeyLookup = new InMemorySubkeyLookup();
-        return new PGPainlessCertD(backend, subkeyLookup);
+        return inMemory(StoreMetrics.NOOP);
+    }
+
+    /**
+     * Create an in-memory {@link PGPainlessCertD}, which records metrics to the given sink.
+     *
+     * @param metrics metrics sink
+     * @return certificate directory
+     */
+    public static PGPainlessCertD inMemory(StoreMetrics metrics) {
+        Backend backend = new InMemoryCertificateDirectoryBackend(Instrumentation.reader(keyMaterialReader, metrics));
+        SubkeyLookup subkeyLookup = new PrimitiveSubkeyLookup();
+        return new PGPainlessCertD(
+                Instrumentation.backend(backend, metrics),
+                Instrumentation.subkeyLookup(subkeyLookup, metrics));
     }
 
     public static PGPainlessCertD fileBased(SubkeyLookupFactory subkeyLookupFactory)
@@ -36,8 +96,685 @@ public class PGPainlessCertD extends PGPCertificateDirectory {
 
     public static PGPainlessCertD fileBased(File baseDirectory, SubkeyLookupFactory subkeyLookupFactory)
             throws NotAStoreException {
-        Backend backend = new FileBasedCertificateDirectoryBackend(baseDirectory, keyMaterialReader);
+        return fileBased(baseDirectory, subkeyLookupFactory, null, StoreMetrics.NOOP);
+    }
+
+    /**
+     * Create a file based {@link PGPainlessCertD}, which serves unchanged certificates from the given
+     * {@link CertificateCache} instead of reading and parsing the certificate files over and over again.
+     *
+     * @param baseDirectory base directory
+     * @param subkeyLookupFactory factory for the subkey lookup
+     * @param cache certificate cache
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a certificate store
+     */
+    public static PGPainlessCertD fileBased(File baseDirectory,
+                                            SubkeyLookupFactory subkeyLookupFactory,
+                                            CertificateCache cache)
+            throws NotAStoreException {
+        return fileBased(baseDirectory, subkeyLookupFactory, cache, StoreMetrics.NOOP);
+    }
+
+    /**
+     * Create a file based {@link PGPainlessCertD}, which records metrics to the given sink.
+     * If a {@link CertificateCache} is given, unchanged certificates are served from the cache.
+     *
+     * @param baseDirectory base directory
+     * @param subkeyLookupFactory factory for the subkey lookup
+     * @param cache certificate cache or null
+     * @param metrics metrics sink
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a certificate store
+     */
+    public static PGPainlessCertD fileBased(File baseDirectory,
+                                            SubkeyLookupFactory subkeyLookupFactory,
+                                            CertificateCache cache,
+                                            StoreMetrics metrics)
+            throws NotAStoreException {
+        Backend backend = fileBasedBackend(baseDirectory, cache, metrics, false);
+        SubkeyLookup subkeyLookup = subkeyLookupFactory.createFileBasedInstance(baseDirectory);
+        return new PGPainlessCertD(
+                Instrumentation.backend(backend, metrics),
+                Instrumentation.subkeyLookup(subkeyLookup, metrics));
+    }
+
+    /**
+     * Create a file based {@link PGPainlessCertD}, which only locks the subdirectory of an inserted certificate
+     * instead of the whole directory, so that certificates with different fingerprint prefixes are inserted
+     * in parallel, both by threads and by processes using this method.
+     * See {@link StripedDirectoryLock} for details.
+     * <p>
+     * Prefix locks are files inside the {@link StripedDirectoryLock#DIRECTORY_NAME lock directory} in the base
+     * directory. Locking a prefix takes a shared lock on the {@code writelock} file, so writers locking the whole
+     * directory, like other implementations of the specification, are still excluded.
+     * If a cache is given, unchanged certificates are served from the cache.
+     *
+     * @param baseDirectory base directory
+     * @param subkeyLookupFactory factory for the subkey lookup
+     * @param cache certificate cache or null
+     * @param metrics metrics sink
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a certificate store
+     */
+    public static PGPainlessCertD fileBasedWithStripedLocking(File baseDirectory,
+                                                              SubkeyLookupFactory subkeyLookupFactory,
+                                                              CertificateCache cache,
+                                                              StoreMetrics metrics)
+            throws NotAStoreException {
+        Backend backend = fileBasedBackend(baseDirectory, cache, metrics, true);
+        SubkeyLookup subkeyLookup = subkeyLookupFactory.createFileBasedInstance(baseDirectory);
+        return new PGPainlessCertD(
+                Instrumentation.backend(backend, metrics),
+                Instrumentation.subkeyLookup(subkeyLookup, metrics));
+    }
+
+    /**
+     * Create a file based {@link PGPainlessCertD} using a {@link PersistentSubkeyIndex}.
+     * The index is kept in the {@link PersistentSubkeyIndex#DIRECTORY_NAME index directory} inside the base
+     * directory and is brought up to date with the certificates in the store before this method returns.
+     * The directory MUST be {@link #close() closed} to commit pending index writes.
+     *
+     * @param baseDirectory base directory
+     * @param cache certificate cache or null
+     * @param metrics metrics sink
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a certificate store
+     * @throws IOException if the subkey index cannot be opened or updated
+     */
+    public static PGPainlessCertD fileBasedWithSubkeyIndex(File baseDirectory,
+                                                           CertificateCache cache,
+                                                           StoreMetrics metrics)
+            throws NotAStoreException, IOException {
+        PGPainlessCertD directory = fileBasedWithLazySubkeyIndex(baseDirectory, cache, metrics);
+        try {
+            directory.subkeyIndex.open();
+        } catch (IOException | RuntimeException e) {
+            try {
+                directory.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return directory;
+    }
+
+    /**
+     * Create a file based {@link PGPainlessCertD} using a {@link PersistentSubkeyIndex}, which is only opened
+     * and brought up to date with the store once a subkey-id is looked up, or the directory is
+     * {@link #reindex(int) reindexed}.
+     * Bringing the index up to date reads the tag of every certificate, so this spares short-lived processes,
+     * which do not look up subkey-ids, from touching every certificate file.
+     * Subkey-ids of certificates inserted before the index is opened are picked up once it is opened.
+     * The directory MUST be {@link #close() closed} to commit pending index writes.
+     *
+     * @param baseDirectory base directory
+     * @param cache certificate cache or null
+     * @param metrics metrics sink
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a certificate store
+     */
+    public static PGPainlessCertD fileBasedWithLazySubkeyIndex(File baseDirectory,
+                                                               CertificateCache cache,
+                                                               StoreMetrics metrics)
+            throws NotAStoreException {
+        Backend backend = fileBasedBackend(baseDirectory, cache, metrics, false);
+        LazySubkeyIndex index = new LazySubkeyIndex(baseDirectory, backend);
+        return new PGPainlessCertD(
+                Instrumentation.backend(backend, metrics),
+                Instrumentation.subkeyLookup(index, metrics),
+                index);
+    }
+
+    /**
+     * Bring the {@link PersistentSubkeyIndex} of the directory up to date with the certificates in the store,
+     * opening it if that did not happen yet.
+     * Long-running processes call this to pick up certificates which were written by other processes.
+     * Directories without persistent subkey index are left alone.
+     *
+     * @return number of (re-)indexed certificates
+     * @throws IOException if the index cannot be opened or updated
+     */
+    public int catchUpSubkeyIndex() throws IOException {
+        return subkeyIndex == null ? 0 : subkeyIndex.catchUp();
+    }
+
+    private static Backend fileBasedBackend(File baseDirectory,
+                                            CertificateCache cache,
+                                            StoreMetrics metrics,
+                                            boolean stripedLocking)
+            throws NotAStoreException {
+        KeyMaterialReaderBackend reader = Instrumentation.reader(keyMaterialReader, metrics);
+        Backend backend = new FileBasedCertificateDirectoryBackend(baseDirectory, reader);
+        if (stripedLocking) {
+            backend = new StripedLockingBackend(backend, new StripedDirectoryLock(baseDirectory, metrics));
+        }
+        if (cache != null) {
+            backend = new CachingBackend(backend, cache);
+        }
+        return new SkipUnchangedBackend(backend, reader);
+    }
+
+    private static StripedDirectoryLock stripedLock(Backend backend) {
+        while (true) {
+            if (backend instanceof StripedLockingBackend) {
+                return ((StripedLockingBackend) backend).getLock();
+            }
+            if (!(backend instanceof ForwardingBackend)) {
+                return null;
+            }
+            backend = ((ForwardingBackend) backend).getDelegate();
+        }
+    }
+
+    /**
+     * Create a {@link PGPainlessCertD} backed by a {@link PackedCertificateDirectoryBackend}, which stores
+     * certificates in large append-only segment files instead of one file per certificate.
+     * To schedule compaction or convert from and to the standard layout, create the backend yourself
+     * and pass it to {@link #PGPainlessCertD(Backend, SubkeyLookup)}.
+     *
+     * @param baseDirectory directory containing the segment files
+     * @param subkeyLookupFactory factory for the subkey lookup
+     * @return certificate directory
+     * @throws NotAStoreException if the base directory cannot be used as a packed store
+     */
+    public static PGPainlessCertD packed(File baseDirectory, SubkeyLookupFactory subkeyLookupFactory)
+            throws NotAStoreException {
+        Backend backend = new PackedCertificateDirectoryBackend(baseDirectory, keyMaterialReader);
         SubkeyLookup subkeyLookup = subkeyLookupFactory.createFileBasedInstance(baseDirectory);
         return new PGPainlessCertD(backend, subkeyLookup);
     }
+
+    /**
+     * Commit concurrent {@link #insert(InputStream, KeyMaterialMerger) inserts} in batches of up to
+     * {@value #DEFAULT_GROUP_COMMIT_BATCH_SIZE} certificates.
+     *
+     * @param durability when written certificates are synced to the storage device
+     * @see #enableGroupCommit(Durability, int)
+     */
+    public void enableGroupCommit(Durability durability) {
+        enableGroupCommit(durability, DEFAULT_GROUP_COMMIT_BATCH_SIZE);
+    }
+
+    /**
+     * Commit concurrent {@link #insert(InputStream, KeyMaterialMerger) inserts} in batches.
+     * Inserted certificates are parsed by the inserting threads and queued. A single committer thread then
+     * acquires the write lock once per batch, merges all queued updates to the same certificate in memory,
+     * writes each changed certificate once and syncs the written files according to the given policy.
+     * Each insert returns after its batch was committed. Updates to a certificate, which were committed
+     * in the same batch, all return the certificate with all of them merged.
+     * <p>
+     * Group commit pays off if many threads insert at the same time, e.g. a keyserver receiving uploads.
+     * Certificates written through the backend directly, trust-root inserts, inserts with special names and
+     * {@link #tryInsert(InputStream, KeyMaterialMerger) tryInsert()} are not batched.
+     * The directory MUST be {@link #close() closed} to stop the committer thread.
+     *
+     * @param durability when written certificates are synced to the storage device
+     * @param maxBatchSize maximum number of inserts per batch
+     * @throws IllegalStateException if group commit is already enabled
+     */
+    public synchronized void enableGroupCommit(Durability durability, int maxBatchSize) {
+        if (groupCommitter != null) {
+            throw new IllegalStateException("Group commit is already enabled.");
+        }
+        groupCommitter = new GroupCommitter(this, backend, keyMaterialReader, durability, maxBatchSize);
+    }
+
+    /**
+     * Serve {@link #getValiditySummary(String, Date) validity summaries} of unchanged certificates from the
+     * given cache, instead of evaluating their signatures on every lookup.
+     * For file based directories, the cache is conventionally kept in the
+     * {@link ValiditySummaryCache#DIRECTORY_NAME validity directory} inside the base directory.
+     *
+     * @param cache validity summary cache
+     * @throws IllegalStateException if a validity summary cache is already enabled
+     */
+    public synchronized void enableValiditySummaryCache(ValiditySummaryCache cache) {
+        if (validitySummaries != null) {
+            throw new IllegalStateException("Validity summary cache is already enabled.");
+        }
+        validitySummaries = cache;
+    }
+
+    /**
+     * Return the validity summary of the certificate with the given fingerprint at the current time.
+     *
+     * @param fingerprint fingerprint
+     * @return validity summary
+     * @throws BadNameException if the fingerprint is malformed
+     * @throws BadDataException if the certificate file contains bad data
+     * @throws IOException if the certificate cannot be read or parsed
+     * @see #getValiditySummary(String, Date)
+     */
+    public ValiditySummary getValiditySummary(String fingerprint)
+            throws BadNameException, BadDataException, IOException {
+        return getValiditySummary(fingerprint, new Date());
+    }
+
+    /**
+     * Return the validity summary of the certificate with the given fingerprint at the given reference time.
+     * If a {@link #enableValiditySummaryCache(ValiditySummaryCache) validity summary cache} is enabled and
+     * holds a summary of the current version of the certificate, which is valid at the reference time, no
+     * signature is verified. Otherwise, the certificate is parsed and its signatures are evaluated.
+     *
+     * @param fingerprint fingerprint
+     * @param referenceTime reference time
+     * @return validity summary
+     * @throws BadNameException if the fingerprint is malformed
+     * @throws BadDataException if the certificate file contains bad data
+     * @throws IOException if the certificate cannot be read or parsed
+     * @throws NoSuchElementException if there is no such certificate
+     */
+    public ValiditySummary getValiditySummary(String fingerprint, Date referenceTime)
+            throws BadNameException, BadDataException, IOException {
+        Certificate certificate = getByFingerprint(fingerprint);
+        if (certificate == null) {
+            throw new NoSuchElementException("No certificate found for fingerprint " + fingerprint);
+        }
+        ValiditySummaryCache cache = validitySummaries;
+        if (cache != null) {
+            return cache.get(certificate, referenceTime);
+        }
+        return ValiditySummary.evaluate(certificate, referenceTime, ValiditySummaryCache.DEFAULT_MAXIMUM_WINDOW_MILLIS);
+    }
+
+    /**
+     * Insert a certificate into the directory.
+     * If {@link #enableGroupCommit(Durability, int) group commit} is enabled, the certificate is committed
+     * along with concurrently inserted certificates.
+     * Otherwise, if the backend is a {@link StripedLockingBackend}, which is the case for directories created by
+     * {@link #fileBasedWithStripedLocking(File, SubkeyLookupFactory, CertificateCache, StoreMetrics)},
+     * only the subdirectory of the certificate is locked, so that inserts of certificates with different
+     * fingerprint prefixes proceed in parallel.
+     *
+     * @param data input stream containing the certificate
+     * @param merge merge callback
+     * @return merged certificate
+     * @throws IOException if the certificate cannot be read or written
+     * @throws BadDataException if the data does not contain a certificate
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    @Override
+    public Certificate insert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException {
+        GroupCommitter committer = groupCommitter;
+        if (committer != null) {
+            return committer.insert(data, merge);
+        }
+        if (stripedLock != null) {
+            return insertLockingPrefix(data, merge);
+        }
+        return super.insert(data, merge);
+    }
+
+    private Certificate insertLockingPrefix(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException {
+        ParsedKeyMaterialStream parsed = ParsedKeyMaterialStream.parse(data, keyMaterialReader);
+        String fingerprint = parsed.getKeyMaterial().getFingerprint();
+        stripedLock.lockPrefix(fingerprint);
+        try {
+            Certificate certificate = backend.doInsert(parsed, merge);
+            // Subkey lookups are not required to support concurrent writes
+            subkeyLookupWrites.lock();
+            try {
+                storeCertificateSubkeyIds(certificate.getFingerprint(), certificate.getSubkeyIds());
+            } finally {
+                subkeyLookupWrites.unlock();
+            }
+            return certificate;
+        } finally {
+            stripedLock.releasePrefix(fingerprint);
+        }
+    }
+
+    /**
+     * Create an {@link AsyncInserter}, which accepts inserts into a bounded queue and returns futures.
+     * Certificates are parsed and merged by the given number of worker threads and written by a dedicated
+     * writer thread. Once the given number of inserts is pending, submitting threads block.
+     * The inserter MUST be {@link AsyncInserter#close() closed} before the directory.
+     *
+     * @param capacity maximum number of pending inserts
+     * @param parallelism number of worker threads
+     * @return async inserter
+     */
+    public AsyncInserter asyncInserter(int capacity, int parallelism) {
+        return new AsyncInserter(this, keyMaterialReader, capacity, parallelism);
+    }
+
+    /**
+     * Insert a large number of certificates into the directory.
+     * Items are parsed and inserted concurrently using the given number of worker threads.
+     * Items carrying the same certificate are merged one after another in input order.
+     * Items which cannot be inserted are skipped and counted as failures.
+     *
+     * @param items input streams, each containing a single certificate or key
+     * @param merge merge callback
+     * @param parallelism number of worker threads
+     * @return summary
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public BatchInsertResult insertAll(Iterator<? extends InputStream> items,
+                                       KeyMaterialMerger merge,
+                                       int parallelism)
+            throws InterruptedException {
+        return insertAll(items, merge, parallelism, BatchInsertListener.NONE);
+    }
+
+    /**
+     * Insert a large number of certificates into the directory.
+     * Items are parsed and inserted concurrently using the given number of worker threads.
+     * Items carrying the same certificate are merged one after another in input order.
+     * Items which cannot be inserted are skipped and reported to the listener.
+     *
+     * @param items input streams, each containing a single certificate or key
+     * @param merge merge callback
+     * @param parallelism number of worker threads
+     * @param listener listener which is notified about the outcome of each item
+     * @return summary
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public BatchInsertResult insertAll(Iterator<? extends InputStream> items,
+                                       KeyMaterialMerger merge,
+                                       int parallelism,
+                                       BatchInsertListener listener)
+            throws InterruptedException {
+        return new BatchInserter(this, keyMaterialReader, merge, parallelism, listener).insertAll(items);
+    }
+
+    /**
+     * Iterate over the fingerprints of all certificates in the store.
+     * For file based and packed stores, no certificate is read, see {@link #fingerprints(boolean)}.
+     *
+     * @return iterator over fingerprints
+     */
+    @Override
+    public Iterator<String> fingerprints() {
+        return fingerprints(false);
+    }
+
+    /**
+     * Iterate over the fingerprints of all certificates in the store.
+     * For file based stores, fingerprints are derived from the directory layout alone, which only costs
+     * directory reads. If {@code validate} is true, the leading public key packet of each certificate file
+     * is additionally read and hashed, and files whose content does not match their name are skipped.
+     * For {@link PackedCertificateDirectoryBackend packed} stores, fingerprints are taken from the index.
+     * Other stores read all certificates.
+     *
+     * @param validate whether to check that certificate files match their names
+     * @return iterator over fingerprints
+     */
+    public Iterator<String> fingerprints(boolean validate) {
+        File baseDirectory = DirectoryLayout.baseDirectory(backend);
+        if (baseDirectory != null) {
+            return validate ?
+                    DirectoryLayout.validatedFingerprints(baseDirectory) :
+                    DirectoryLayout.fingerprints(baseDirectory);
+        }
+        Backend innermost = ForwardingBackend.unwrap(backend);
+        if (innermost instanceof PackedCertificateDirectoryBackend) {
+            return ((PackedCertificateDirectoryBackend) innermost).fingerprints();
+        }
+        return super.fingerprints();
+    }
+
+    /**
+     * Return the current tag of the certificate with the given fingerprint.
+     * For file based stores, the tag is derived from the file attributes, so the certificate file is
+     * not opened.
+     *
+     * @param fingerprint fingerprint
+     * @return tag or null if there is no such certificate
+     * @throws BadNameException if the fingerprint is malformed
+     * @throws IOException if the tag cannot be determined
+     */
+    public Long getTag(String fingerprint) throws BadNameException, IOException {
+        try {
+            return backend.getTagForFingerprint(fingerprint);
+        } catch (NoSuchElementException | NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the certificate with the given fingerprint, only if it changed since the given tag.
+     * The current tag is compared to the known tag first. If they match, the certificate is neither
+     * opened, nor read, nor parsed, so long-lived clients can revalidate a cached certificate cheaply.
+     * If the known tag is null, the certificate is always read.
+     *
+     * @param fingerprint fingerprint
+     * @param knownTag tag of the previously obtained certificate or null
+     * @return result carrying the changed certificate and its current tag
+     * @throws BadNameException if the fingerprint is malformed
+     * @throws BadDataException if the certificate file contains bad data
+     * @throws IOException if the certificate cannot be read
+     */
+    public ConditionalGetResult getIfChanged(String fingerprint, Long knownTag)
+            throws BadNameException, BadDataException, IOException {
+        Long tag = getTag(fingerprint);
+        if (tag == null) {
+            return ConditionalGetResult.missing();
+        }
+        if (tag.equals(knownTag)) {
+            return ConditionalGetResult.unchanged(tag);
+        }
+
+        Certificate certificate;
+        try {
+            certificate = getByFingerprint(fingerprint);
+        } catch (NoSuchElementException e) {
+            // Deleted in the meantime
+            return ConditionalGetResult.missing();
+        }
+        if (certificate == null) {
+            return ConditionalGetResult.missing();
+        }
+        // The certificate might have changed again since the tag was determined
+        return ConditionalGetResult.changed(certificate,
+                certificate.getTag() != null ? certificate.getTag() : tag);
+    }
+
+    /**
+     * Watch the directory for added, changed and deleted certificates, using the default debounce
+     * interval of {@value #DEFAULT_WATCH_DEBOUNCE_MILLIS} ms and, if the directory is not file based,
+     * the default poll interval of {@value #DEFAULT_WATCH_POLL_INTERVAL_MILLIS} ms.
+     * The returned watcher MUST be closed to stop watching.
+     *
+     * @param listener listener which receives batches of changed fingerprints
+     * @return watcher
+     * @throws IOException if the current state of the directory cannot be determined
+     */
+    public CertificateWatcher watch(CertificateChangeListener listener) throws IOException {
+        return watch(listener, DEFAULT_WATCH_DEBOUNCE_MILLIS, DEFAULT_WATCH_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Watch the directory for added, changed and deleted certificates.
+     * File based directories are watched using a {@link java.nio.file.WatchService}, whose events are
+     * debounced for the given interval. Other directories, or platforms without watch service, are scanned
+     * for changed tags in the given poll interval.
+     * The returned watcher MUST be closed to stop watching.
+     *
+     * @param listener listener which receives batches of changed fingerprints
+     * @param debounceMillis time without further events after which a batch is delivered
+     * @param pollIntervalMillis interval between scans, if changes cannot be watched
+     * @return watcher
+     * @throws IOException if the current state of the directory cannot be determined
+     */
+    public CertificateWatcher watch(CertificateChangeListener listener, long debounceMillis, long pollIntervalMillis)
+            throws IOException {
+        return new CertificateWatcher(this, DirectoryLayout.baseDirectory(backend), true, listener,
+                debounceMillis, pollIntervalMillis);
+    }
+
+    /**
+     * Watch the directory for added, changed and deleted certificates by periodically comparing the tags
+     * of all certificates, even if the file system could report changes.
+     * This is useful for directories on network file systems, whose changes are not reported reliably.
+     * The returned watcher MUST be closed to stop watching.
+     *
+     * @param listener listener which receives batches of changed fingerprints
+     * @param pollIntervalMillis interval between scans
+     * @return watcher
+     * @throws IOException if the current state of the directory cannot be determined
+     */
+    public CertificateWatcher watchByScanning(CertificateChangeListener listener, long pollIntervalMillis)
+            throws IOException {
+        return new CertificateWatcher(this, DirectoryLayout.baseDirectory(backend), false, listener,
+                0, pollIntervalMillis);
+    }
+
+    /**
+     * Look up the certificates with the given fingerprints in a single call.
+     * Certificates are read concurrently, using one worker thread per available processor.
+     * Fingerprints without certificate are reported as {@link BatchLookupResult#getMissing() missing}
+     * instead of throwing a {@link java.util.NoSuchElementException}.
+     *
+     * @param fingerprints fingerprints
+     * @return certificates, missing and failed fingerprints
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public BatchLookupResult getByFingerprints(Collection<String> fingerprints) throws InterruptedException {
+        return getByFingerprints(fingerprints, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Look up the certificates with the given fingerprints in a single call.
+     * Fingerprints are grouped by the subdirectory of their certificate files and groups are read
+     * concurrently using up to the given number of workers, which run on a thread pool shared by all lookups.
+     * Fingerprints without certificate are reported as {@link BatchLookupResult#getMissing() missing}
+     * instead of throwing a {@link java.util.NoSuchElementException}.
+     *
+     * @param fingerprints fingerprints
+     * @param parallelism maximum number of worker threads
+     * @return certificates, missing and failed fingerprints
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public BatchLookupResult getByFingerprints(Collection<String> fingerprints, int parallelism)
+            throws InterruptedException {
+        return new BatchLookup(this, parallelism).lookup(fingerprints);
+    }
+
+    /**
+     * Look up the certificates with the given fingerprints in a single call.
+     * Like {@link #getByFingerprints(Collection, int)}, but the workers run on the given executor instead of
+     * the shared thread pool. If the executor rejects a worker, it runs on the calling thread.
+     *
+     * @param fingerprints fingerprints
+     * @param parallelism maximum number of concurrent workers
+     * @param executor executor to run the workers on
+     * @return certificates, missing and failed fingerprints
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public BatchLookupResult getByFingerprints(Collection<String> fingerprints, int parallelism, Executor executor)
+            throws InterruptedException {
+        return new BatchLookup(this, parallelism, executor).lookup(fingerprints);
+    }
+
+    /**
+     * Write the binary encodings of all certificates in the store to the given output stream.
+     * Certificates are read concurrently using the given number of worker threads and are written by
+     * a dedicated writer thread, so wrapping the output stream, e.g. into an ASCII armor, does not block
+     * reading. For file based stores, certificates are enumerated from the directory layout without
+     * opening the certificate files.
+     * The output stream is flushed, but not closed.
+     *
+     * @param out output stream
+     * @param ordered if true, certificates are written in order of their fingerprints, otherwise in the
+     *                order in which they were read
+     * @param parallelism number of worker threads
+     * @return summary
+     * @throws IOException if the output stream cannot be written to
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public ExportResult export(OutputStream out, boolean ordered, int parallelism)
+            throws IOException, InterruptedException {
+        Exporter exporter = new Exporter(this, ordered, parallelism);
+        File baseDirectory = DirectoryLayout.baseDirectory(backend);
+        if (baseDirectory != null) {
+            return exporter.exportFingerprints(DirectoryLayout.fingerprints(baseDirectory), out);
+        }
+        return exporter.exportCertificates(items(), out);
+    }
+
+    /**
+     * Write the binary encodings of the certificates with the given fingerprints to the given output stream.
+     * Certificates are read concurrently using the given number of worker threads and are written by
+     * a dedicated writer thread.
+     * Fingerprints without certificate are reported as {@link ExportResult#getMissing() missing}.
+     * The output stream is flushed, but not closed.
+     *
+     * @param fingerprints fingerprints of the certificates to export
+     * @param out output stream
+     * @param ordered if true, certificates are written in order of the given fingerprints, otherwise in the
+     *                order in which they were read
+     * @param parallelism number of worker threads
+     * @return summary
+     * @throws IOException if the output stream cannot be written to
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public ExportResult export(Collection<String> fingerprints, OutputStream out, boolean ordered, int parallelism)
+            throws IOException, InterruptedException {
+        return new Exporter(this, ordered, parallelism).exportFingerprints(fingerprints.iterator(), out);
+    }
+
+    /**
+     * Rebuild the subkey lookup from the certificates in the store.
+     * Certificates are scanned concurrently using the given number of worker threads.
+     * The key-ids of all (sub-)keys are recorded, including those of expired or revoked subkeys.
+     * Since subkey lookups only ever add entries, outdated entries are not removed.
+     *
+     * @param parallelism number of worker threads
+     * @return summary
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public ReindexResult reindex(int parallelism) throws InterruptedException {
+        if (subkeyIndex != null) {
+            subkeyIndex.require();
+        }
+        return new SubkeyIndexer(this, parallelism).run(items(), false);
+    }
+
+    /**
+     * Compare the subkey lookup with the certificates in the store without modifying it.
+     * The result reports key-ids of certificates which are missing from the lookup, as well as entries
+     * of the lookup which point to certificates that do not exist or do not contain the subkey.
+     *
+     * @param parallelism number of worker threads
+     * @return summary including missing and stale entries
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    public ReindexResult verifySubkeyLookup(int parallelism) throws InterruptedException {
+        return new SubkeyIndexer(this, parallelism).run(items(), true);
+    }
+
+    /**
+     * Close all components of the directory, which hold resources, e.g. a {@link PersistentSubkeyIndex}
+     * or a {@link PackedCertificateDirectoryBackend}.
+     * If group commit is enabled, pending inserts are committed first.
+     *
+     * @throws IOException if a component cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        GroupCommitter committer = groupCommitter;
+        if (committer != null) {
+            committer.close();
+        }
+        IOException exception = null;
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
 }
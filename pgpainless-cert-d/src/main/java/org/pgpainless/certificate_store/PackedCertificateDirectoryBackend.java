@@ -0,0 +1,973 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.SpecialNames;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} which stores certificates in large append-only segment files
+ * instead of one file per certificate.
+ * <p>
+ * Every insert appends a record to the active segment. Once a segment exceeds the maximum segment size,
+ * a new segment is started. An in-memory index maps fingerprints and special names to the latest record.
+ * It is rebuilt by scanning the record headers of all segments when the store is opened.
+ * Segments are read via memory mapping, so reading a certificate does not require any system calls.
+ * The active segment is only remapped once it doubled in size, records appended in between are read
+ * with a single positional read.
+ * Records which were superseded by newer records are garbage, which is removed by {@link #compact(double)},
+ * either on demand or periodically in the background (see {@link #scheduleCompaction(long, TimeUnit)}).
+ * <p>
+ * The tag of a certificate is the sequence number of the insert operation which wrote it, so it changes
+ * on every write, but not when a record is moved by compaction.
+ * Appended records are synced to the storage device according to the {@link Durability} of the store.
+ * Records which fail their checksum are skipped when the store is opened, the records following them are
+ * still found.
+ * <p>
+ * The index is held in memory, so the store must only be opened by a single process at a time.
+ * This is enforced by an exclusive file lock, which is held from opening until closing the store.
+ * Use {@link #exportTo(File)} and {@link #importFrom(File, KeyMaterialMerger)} to convert from and to
+ * the standard file-per-certificate layout.
+ */
+public class PackedCertificateDirectoryBackend implements PGPCertificateDirectory.Backend, Closeable {
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("^[0-9]{8}\\" + SEGMENT_SUFFIX + "$");
+    private static final Pattern FINGERPRINT = Pattern.compile("^([0-9a-f]{40}|[0-9a-f]{64})$");
+    private static final String TRUST_ROOT = "trust-root";
+    // Held while the store is open, so that a second instance does not append to the same segments
+    private static final String OPEN_LOCK = "openlock";
+
+    // Record: magic (4) | tag (8) | name length (2) | name | data length (4) | data | crc32 (4)
+    private static final int MAGIC = 0x50435231;
+    private static final int RECORD_OVERHEAD = 4 + 8 + 2 + 4 + 4;
+
+    private final File baseDirectory;
+    private final KeyMaterialReaderBackend reader;
+    private final long maxSegmentSize;
+    private final Durability durability;
+    private final PGPCertificateDirectory.LockingMechanism lock;
+
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private Segment active;
+    private long nextTag = 1;
+    private ScheduledExecutorService compactionExecutor;
+    private FileChannel openLockChannel;
+    private volatile boolean closed;
+
+    /**
+     * Open or create a packed store with the default maximum segment size.
+     * The store stays locked against other instances until it is {@link #close() closed}.
+     *
+     * @param baseDirectory directory containing the segment files
+     * @param reader reader for key material
+     * @throws NotAStoreException if the base directory cannot be used as a packed store
+     */
+    public PackedCertificateDirectoryBackend(File baseDirectory, KeyMaterialReaderBackend reader)
+            throws NotAStoreException {
+        this(baseDirectory, reader, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open or create a packed store, which syncs every appended record to the storage device.
+     *
+     * @param baseDirectory directory containing the segment files
+     * @param reader reader for key material
+     * @param maxSegmentSize size in bytes after which a new segment is started
+     * @throws NotAStoreException if the base directory cannot be used as a packed store
+     */
+    public PackedCertificateDirectoryBackend(File baseDirectory, KeyMaterialReaderBackend reader, long maxSegmentSize)
+            throws NotAStoreException {
+        this(baseDirectory, reader, maxSegmentSize, Durability.PER_OPERATION);
+    }
+
+    /**
+     * Open or create a packed store.
+     * With {@link Durability#PER_OPERATION}, every appended record is synced before the insert returns.
+     * With {@link Durability#PER_BATCH}, a segment is synced once it is full, once the store is closed and
+     * once all records of a segment were moved by compaction.
+     * With {@link Durability#NONE}, segments are only synced before compaction deletes the segments they
+     * replace.
+     *
+     * @param baseDirectory directory containing the segment files
+     * @param reader reader for key material
+     * @param maxSegmentSize size in bytes after which a new segment is started
+     * @param durability when appended records are synced to the storage device
+     * @throws NotAStoreException if the base directory cannot be used as a packed store, or if the store is
+     * opened by another process or instance
+     */
+    public PackedCertificateDirectoryBackend(File baseDirectory,
+                                             KeyMaterialReaderBackend reader,
+                                             long maxSegmentSize,
+                                             Durability durability)
+            throws NotAStoreException {
+        if (maxSegmentSize <= RECORD_OVERHEAD || maxSegmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid maximum segment size " + maxSegmentSize);
+        }
+        if (!baseDirectory.isDirectory() && !baseDirectory.mkdirs()) {
+            throw new NotAStoreException("Cannot create packed store directory " + baseDirectory.getAbsolutePath());
+        }
+        this.baseDirectory = baseDirectory;
+        this.reader = reader;
+        this.maxSegmentSize = maxSegmentSize;
+        this.durability = durability;
+        this.lock = new DirectoryLock(new File(baseDirectory, "writelock"));
+
+        try {
+            open();
+        } catch (IOException e) {
+            throw new NotAStoreException("Cannot open packed store " + baseDirectory.getAbsolutePath() +
+                    ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return lock;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        checkFingerprint(fingerprint);
+        return readCertificate(fingerprint);
+    }
+
+    /**
+     * Return the binary encoding of the certificate with the given fingerprint.
+     * The returned buffer is usually a read-only slice of the memory mapped segment, so no data is copied.
+     * Only records appended since the active segment was last mapped are copied.
+     *
+     * @param fingerprint fingerprint
+     * @return encoding
+     * @throws BadNameException if the fingerprint is malformed
+     * @throws NoSuchElementException if there is no such certificate
+     * @throws IllegalStateException if the store is closed
+     */
+    public ByteBuffer readEncoding(String fingerprint) throws BadNameException, IOException {
+        checkFingerprint(fingerprint);
+        return slice(fingerprint).data;
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException, IOException, BadDataException {
+        return readKeyMaterial(checkSpecialName(specialName));
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        Iterator<String> iterator = fingerprints();
+        return new Iterator<Certificate>() {
+            private Certificate next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    String fingerprint = iterator.next();
+                    Location location = index.get(fingerprint);
+                    ByteBuffer encoding = location == null ? null : slice(location);
+                    if (encoding != null) {
+                        next = new LazyCertificate(toArray(encoding), fingerprint, location.tag);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Certificate next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Certificate certificate = next;
+                next = null;
+                return certificate;
+            }
+        };
+    }
+
+    /**
+     * Iterate over the fingerprints of all certificates in the store, as recorded in the in-memory index.
+     * No segment is accessed.
+     *
+     * @return iterator over sorted fingerprints
+     */
+    public Iterator<String> fingerprints() {
+        List<String> fingerprints = new ArrayList<>();
+        for (String name : index.keySet()) {
+            if (FINGERPRINT.matcher(name).matches()) {
+                fingerprints.add(name);
+            }
+        }
+        Collections.sort(fingerprints);
+        return fingerprints.iterator();
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        writeLock.lock();
+        try {
+            KeyMaterial update = reader.read(data, null);
+            KeyMaterial existing = null;
+            if (index.containsKey(TRUST_ROOT)) {
+                existing = readKeyMaterial(TRUST_ROOT);
+            }
+            KeyMaterial merged = merge.merge(update, existing);
+            if (merged == existing) {
+                return existing;
+            }
+            byte[] encoding = Streams.readAll(merged.getInputStream());
+            Location location = append(TRUST_ROOT, nextTag++, encoding);
+            return reader.read(new ByteArrayInputStream(encoding), location.tag);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge) throws BadDataException, IOException {
+        writeLock.lock();
+        try {
+            KeyMaterial update = reader.read(data, null);
+            String fingerprint = update.getFingerprint();
+            Certificate existing = null;
+            if (index.containsKey(fingerprint)) {
+                existing = readCertificate(fingerprint);
+            }
+            KeyMaterial merged = merge.merge(update, existing);
+            if (merged == existing) {
+                return existing;
+            }
+            return write(fingerprint, merged.asCertificate());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException, BadNameException {
+        String name = checkSpecialName(specialName);
+        writeLock.lock();
+        try {
+            KeyMaterial update = reader.read(data, null);
+            KeyMaterial existing = null;
+            if (index.containsKey(name)) {
+                existing = readKeyMaterial(name);
+            }
+            KeyMaterial merged = merge.merge(update, existing);
+            if (merged == existing) {
+                return existing.asCertificate();
+            }
+            return write(name, merged.asCertificate());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException {
+        checkFingerprint(fingerprint);
+        Location location = index.get(fingerprint);
+        return location == null ? null : location.tag;
+    }
+
+    /**
+     * Rewrite the live records of all sealed segments, whose ratio of live bytes is below the given threshold,
+     * into the active segment and delete the sealed segments afterwards.
+     * Reads are not blocked while compacting. Writes are only blocked while a single record is moved.
+     *
+     * @param maxLiveRatio segments with a ratio of live bytes below this threshold get compacted
+     * @return number of deleted segments
+     * @throws IOException if records cannot be moved
+     */
+    public int compact(double maxLiveRatio) throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        writeLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.liveRatio() < maxLiveRatio) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        for (Segment segment : candidates) {
+            for (Record record : segment.scan()) {
+                writeLock.lock();
+                try {
+                    Location current = index.get(record.name);
+                    if (current != null && current.segment == segment.id && current.offset == record.dataOffset) {
+                        byte[] data = toArray(segment.slice(record.dataOffset, record.dataLength));
+                        append(record.name, record.tag, data);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            writeLock.lock();
+            try {
+                for (Location location : index.values()) {
+                    if (location.segment == segment.id) {
+                        throw new IOException("Segment " + segment.file.getAbsolutePath() +
+                                " still contains live records after compaction.");
+                    }
+                }
+                // The moved records MUST be persisted before their previous copies are deleted
+                active.sync();
+                segments.remove(segment.id);
+            } finally {
+                writeLock.unlock();
+            }
+            segment.close();
+            if (!segment.file.delete()) {
+                throw new IOException("Cannot delete compacted segment " + segment.file.getAbsolutePath());
+            }
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Periodically compact segments with less than 50% live bytes on a background thread.
+     * The background thread is stopped by {@link #close()}.
+     *
+     * @param period period between two compaction runs
+     * @param unit time unit of the period
+     */
+    public synchronized void scheduleCompaction(long period, TimeUnit unit) {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "packed-store-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                compact(0.5);
+            } catch (IOException e) {
+                // Leftover records are moved in the next run
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Write all certificates and the trust-root into the given directory using the standard
+     * file-per-certificate layout of the Shared PGP Certificate Directory specification.
+     * Existing certificates in the target directory are overwritten.
+     *
+     * @param certDDirectory target directory
+     * @return number of exported certificates
+     * @throws IOException if the certificates cannot be written
+     * @throws NotAStoreException if the target directory cannot be used as certificate directory
+     * @throws BadDataException if a certificate cannot be read
+     */
+    public long exportTo(File certDDirectory) throws IOException, NotAStoreException, BadDataException {
+        FileBasedCertificateDirectoryBackend target = new FileBasedCertificateDirectoryBackend(certDDirectory, reader);
+        long count = 0;
+        Location trustRoot = index.get(TRUST_ROOT);
+        if (trustRoot != null) {
+            ByteBuffer encoding = slice(trustRoot);
+            if (encoding != null) {
+                target.doInsertTrustRoot(
+                        new ByteArrayInputStream(toArray(encoding)), MergeCallbacks.overrideExisting());
+            }
+        }
+
+        Iterator<Certificate> items = readItems();
+        while (items.hasNext()) {
+            target.doInsert(items.next().getInputStream(), MergeCallbacks.overrideExisting());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Insert all certificates and the trust-root from a directory using the standard file-per-certificate layout.
+     *
+     * @param certDDirectory source directory
+     * @param merge callback to merge imported certificates with existing ones
+     * @return number of imported certificates
+     * @throws IOException if the certificates cannot be read or written
+     * @throws NotAStoreException if the source directory is not a certificate directory
+     * @throws BadDataException if a certificate cannot be read
+     */
+    public long importFrom(File certDDirectory, KeyMaterialMerger merge)
+            throws IOException, NotAStoreException, BadDataException {
+        FileBasedCertificateDirectoryBackend source = new FileBasedCertificateDirectoryBackend(certDDirectory, reader);
+        long count = 0;
+        try {
+            KeyMaterial trustRoot = source.readBySpecialName(TRUST_ROOT);
+            if (trustRoot != null) {
+                doInsertTrustRoot(trustRoot.getInputStream(), merge);
+            }
+        } catch (NoSuchElementException | BadNameException e) {
+            // No trust-root
+        }
+
+        Iterator<Certificate> items = source.readItems();
+        while (items.hasNext()) {
+            doInsert(items.next().getInputStream(), merge);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of segment files.
+     *
+     * @return number of segments
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Return the total size of all segment files.
+     *
+     * @return size in bytes
+     */
+    public long getTotalBytes() {
+        writeLock.lock();
+        try {
+            long total = 0;
+            for (Segment segment : segments.values()) {
+                total += segment.size;
+            }
+            return total;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Return the size of all records which are still referenced by the index.
+     *
+     * @return size in bytes
+     */
+    public long getLiveBytes() {
+        writeLock.lock();
+        try {
+            long live = 0;
+            for (Segment segment : segments.values()) {
+                live += segment.liveBytes;
+            }
+            return live;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            if (compactionExecutor != null) {
+                compactionExecutor.shutdownNow();
+                compactionExecutor = null;
+            }
+        }
+        writeLock.lock();
+        try {
+            if (durability == Durability.PER_BATCH && active.channel.isOpen()) {
+                active.sync();
+            }
+        } finally {
+            try {
+                for (Segment segment : segments.values()) {
+                    segment.close();
+                }
+            } finally {
+                try {
+                    // Closing the channel releases the lock
+                    openLockChannel.close();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        lockOpen();
+        try {
+            loadSegments();
+        } catch (IOException | RuntimeException e) {
+            try {
+                for (Segment segment : segments.values()) {
+                    segment.close();
+                }
+            } finally {
+                openLockChannel.close();
+            }
+            throw e;
+        }
+    }
+
+    private void lockOpen() throws IOException {
+        FileChannel channel = FileChannel.open(new File(baseDirectory, OPEN_LOCK).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another instance within this process
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Packed store is opened by another process.");
+        }
+        openLockChannel = channel;
+    }
+
+    private void loadSegments() throws IOException {
+        File[] files = baseDirectory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+        if (files == null) {
+            throw new IOException("Cannot list " + baseDirectory.getAbsolutePath());
+        }
+        Arrays.sort(files);
+
+        long maxTag = 0;
+        for (int i = 0; i < files.length; i++) {
+            int id = Integer.parseInt(files[i].getName().substring(0, 8));
+            Segment segment = new Segment(id, files[i]);
+            segments.put(id, segment);
+
+            for (Record record : segment.scan()) {
+                Location previous = index.put(record.name, new Location(
+                        id, record.dataOffset, record.dataLength, record.tag, record.length()));
+                if (previous != null) {
+                    segments.get(previous.segment).liveBytes -= previous.recordLength;
+                }
+                segment.liveBytes += record.length();
+                maxTag = Math.max(maxTag, record.tag);
+            }
+
+            if (i < files.length - 1) {
+                segment.sealed = true;
+            } else if (segment.validLength < segment.size) {
+                // Torn write at the end of the last segment
+                segment.truncate(segment.validLength);
+            }
+        }
+        nextTag = maxTag + 1;
+
+        if (segments.isEmpty()) {
+            active = createSegment(1);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    private Certificate write(String name, Certificate certificate) throws IOException {
+        byte[] encoding = Streams.readAll(certificate.getInputStream());
+        Location location = append(name, nextTag++, encoding);
+        return new LazyCertificate(encoding, certificate.getFingerprint(), location.tag);
+    }
+
+    private Location append(String name, long tag, byte[] data) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        int recordLength = RECORD_OVERHEAD + nameBytes.length + data.length;
+        if (recordLength > maxSegmentSize) {
+            throw new IOException("Record for " + name + " exceeds the maximum segment size.");
+        }
+        if (active.size + recordLength > maxSegmentSize) {
+            if (durability == Durability.PER_BATCH) {
+                active.sync();
+            }
+            active.sealed = true;
+            active = createSegment(active.id + 1);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(MAGIC);
+        record.putLong(tag);
+        record.putShort((short) nameBytes.length);
+        record.put(nameBytes);
+        record.putInt(data.length);
+        record.put(data);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        long offset = active.size;
+        while (record.hasRemaining()) {
+            active.channel.write(record, offset + record.position());
+        }
+        if (durability == Durability.PER_OPERATION) {
+            active.channel.force(false);
+        }
+        active.size += recordLength;
+        active.validLength = active.size;
+        active.liveBytes += recordLength;
+
+        Location location = new Location(active.id, (int) offset + recordLength - 4 - data.length, data.length,
+                tag, recordLength);
+        Location previous = index.put(name, location);
+        if (previous != null) {
+            Segment previousSegment = segments.get(previous.segment);
+            if (previousSegment != null) {
+                previousSegment.liveBytes -= previous.recordLength;
+            }
+        }
+        return location;
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        File file = new File(baseDirectory, String.format("%08d%s", id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, file);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Slice slice(String name) {
+        Location location = index.get(name);
+        while (true) {
+            if (location == null) {
+                throw new NoSuchElementException("No such certificate: " + name);
+            }
+            ByteBuffer data = slice(location);
+            if (data != null) {
+                return new Slice(location, data);
+            }
+            // A concurrent compaction might have moved the record and closed its segment in the meantime
+            Location current = index.get(name);
+            if (current == location) {
+                throw new IllegalStateException("Segment " + location.segment + " of record " + name +
+                        " is closed.");
+            }
+            location = current;
+        }
+    }
+
+    /**
+     * Return the data at the given location, or null if its segment was closed or deleted in the meantime.
+     *
+     * @throws IllegalStateException if the store is closed
+     */
+    private ByteBuffer slice(Location location) {
+        if (closed) {
+            throw new IllegalStateException("Packed store is closed.");
+        }
+        Segment segment = segments.get(location.segment);
+        ByteBuffer data = segment == null ? null : segment.slice(location.offset, location.length);
+        if (data == null && closed) {
+            throw new IllegalStateException("Packed store is closed.");
+        }
+        return data;
+    }
+
+    private Certificate readCertificate(String fingerprint) {
+        Slice slice = slice(fingerprint);
+        return new LazyCertificate(toArray(slice.data), fingerprint, slice.location.tag);
+    }
+
+    private KeyMaterial readKeyMaterial(String name) throws IOException, BadDataException {
+        Slice slice = slice(name);
+        return reader.read(new ByteArrayInputStream(toArray(slice.data)), slice.location.tag);
+    }
+
+    private static void checkFingerprint(String fingerprint) throws BadNameException {
+        if (fingerprint == null || !FINGERPRINT.matcher(fingerprint).matches()) {
+            throw new BadNameException("Invalid fingerprint: " + fingerprint);
+        }
+    }
+
+    private static String checkSpecialName(String specialName) throws BadNameException {
+        String name = SpecialNames.lookupSpecialName(specialName);
+        if (name == null) {
+            throw new BadNameException("Unknown special name: " + specialName);
+        }
+        return name;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Position of the data of the latest record with a given name.
+     */
+    private static final class Location {
+        private final int segment;
+        private final int offset;
+        private final int length;
+        private final long tag;
+        private final int recordLength;
+
+        private Location(int segment, int offset, int length, long tag, int recordLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.tag = tag;
+            this.recordLength = recordLength;
+        }
+    }
+
+    /**
+     * Data of a record together with its location.
+     */
+    private static final class Slice {
+        private final Location location;
+        private final ByteBuffer data;
+
+        private Slice(Location location, ByteBuffer data) {
+            this.location = location;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Header of a record as found by scanning a segment.
+     */
+    private static final class Record {
+        private final String name;
+        private final long tag;
+        private final int dataOffset;
+        private final int dataLength;
+
+        private Record(String name, long tag, int dataOffset, int dataLength) {
+            this.name = name;
+            this.tag = tag;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        private int length() {
+            return RECORD_OVERHEAD + name.length() + dataLength;
+        }
+    }
+
+    private static final class Segment implements Closeable {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer map;
+        private final ReentrantLock remapLock = new ReentrantLock();
+        // Sealed segments no longer grow
+        private volatile boolean sealed;
+        // size, validLength and liveBytes are guarded by the writeLock of the backend
+        private long size;
+        private long validLength;
+        private long liveBytes;
+
+        private Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+            this.validLength = size;
+        }
+
+        private double liveRatio() {
+            return size == 0 ? 1.0 : (double) liveBytes / size;
+        }
+
+        /**
+         * Return a read-only slice of the segment, or null if the segment was closed in the meantime.
+         */
+        private ByteBuffer slice(int offset, int length) {
+            MappedByteBuffer mapped = map;
+            if (mapped == null || mapped.capacity() < offset + length) {
+                mapped = remap(offset + length);
+                if (mapped == null) {
+                    return null;
+                }
+                if (mapped.capacity() < offset + length) {
+                    // Appended after the segment was mapped
+                    return read(offset, length);
+                }
+            }
+            ByteBuffer slice = mapped.duplicate();
+            slice.position(offset);
+            slice.limit(offset + length);
+            return slice.slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * Map the segment again, if it is sealed or doubled in size since it was mapped.
+         * Otherwise, the current mapping is returned, even if it does not cover the given size, so that
+         * appending records does not cause the whole segment to be remapped over and over again.
+         */
+        private MappedByteBuffer remap(long minimumSize) {
+            remapLock.lock();
+            try {
+                MappedByteBuffer mapped = map;
+                if (mapped != null && mapped.capacity() >= minimumSize) {
+                    return mapped;
+                }
+                try {
+                    long length = channel.size();
+                    if (mapped != null && !sealed && length < 2L * mapped.capacity()) {
+                        return mapped;
+                    }
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                } catch (ClosedChannelException e) {
+                    return null;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot map segment " + file.getAbsolutePath(), e);
+                }
+                map = mapped;
+                return mapped;
+            } finally {
+                remapLock.unlock();
+            }
+        }
+
+        /**
+         * Read a range of the segment, which is not mapped yet, or return null if the segment was closed.
+         */
+        private ByteBuffer read(int offset, int length) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IllegalStateException("Unexpected end of segment " + file.getAbsolutePath());
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                return null;
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read segment " + file.getAbsolutePath(), e);
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        }
+
+        /**
+         * Scan the records of this segment.
+         * Records which are incomplete or fail their checksum are skipped by searching for the next valid record.
+         * The valid length of the segment is set to the end of the last valid record.
+         *
+         * @return records
+         */
+        private List<Record> scan() throws IOException {
+            List<Record> records = new ArrayList<>();
+            long length = channel.size();
+            if (length == 0) {
+                validLength = 0;
+                return records;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int position = 0;
+            int end = 0;
+            while (position + RECORD_OVERHEAD <= length) {
+                Record record = record(buffer, position, length);
+                if (record == null) {
+                    // Resynchronize on the next record with a valid checksum
+                    position++;
+                    continue;
+                }
+                records.add(record);
+                position += record.length();
+                end = position;
+            }
+            validLength = end;
+            return records;
+        }
+
+        /**
+         * Parse the record at the given position, or return null if there is no valid record.
+         */
+        private static Record record(ByteBuffer buffer, int position, long length) {
+            buffer.position(position);
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            long tag = buffer.getLong();
+            int nameLength = buffer.getShort() & 0xffff;
+            if (position + RECORD_OVERHEAD + nameLength > length) {
+                return null;
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            int dataLength = buffer.getInt();
+            long recordLength = RECORD_OVERHEAD + nameLength + (long) dataLength;
+            if (dataLength < 0 || position + recordLength > length) {
+                return null;
+            }
+            int dataOffset = buffer.position();
+            CRC32 crc = new CRC32();
+            ByteBuffer checked = buffer.duplicate();
+            checked.position(position);
+            checked.limit(position + (int) recordLength - 4);
+            crc.update(checked);
+            buffer.position(position + (int) recordLength - 4);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                return null;
+            }
+            return new Record(new String(name, StandardCharsets.US_ASCII), tag, dataOffset, dataLength);
+        }
+
+        private void sync() throws IOException {
+            channel.force(false);
+        }
+
+        private void truncate(long length) throws IOException {
+            channel.truncate(length);
+            size = length;
+            validLength = length;
+            map = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
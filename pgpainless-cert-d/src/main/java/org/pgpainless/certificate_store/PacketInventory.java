@@ -0,0 +1,160 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.bcpg.PacketTags;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of the packets of a binary encoded key or certificate.
+ * Each packet is recorded together with the component (primary key, subkey, user-id or user-attribute)
+ * it belongs to, so that two encodings can be compared structurally without parsing any OpenPGP objects.
+ */
+final class PacketInventory {
+
+    private final Set<Entry> entries = new HashSet<>();
+
+    private PacketInventory() {
+
+    }
+
+    /**
+     * Scan the given binary encoding.
+     *
+     * @param encoding binary encoded key or certificate
+     * @return inventory
+     * @throws IOException if the packet framing is malformed
+     */
+    static PacketInventory of(byte[] encoding) throws IOException {
+        PacketInventory inventory = new PacketInventory();
+        InputStream in = new ByteArrayInputStream(encoding);
+        PacketKey component = null;
+        RawPacket packet;
+        while ((packet = RawPacket.read(in, encoding.length)) != null) {
+            PacketKey key = new PacketKey(packet);
+            if (isComponent(packet.getTag())) {
+                component = key;
+                inventory.entries.add(new Entry(null, key));
+            } else {
+                inventory.entries.add(new Entry(component, key));
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * Return true, if every packet of the other inventory is also contained in this inventory,
+     * attached to the same component.
+     *
+     * @param other other inventory
+     * @return true if the other inventory does not contain any new packets
+     */
+    boolean containsAll(PacketInventory other) {
+        return entries.containsAll(other.entries);
+    }
+
+    /**
+     * Return true, if the binary encoded {@code update} does not contain any packets which are not already
+     * part of the binary encoded {@code existing} key or certificate.
+     * Malformed encodings are never considered to be contained.
+     *
+     * @param existing existing key or certificate
+     * @param update updated key or certificate
+     * @return true if merging the update into the existing key material would not change it
+     */
+    static boolean isSubset(byte[] existing, byte[] update) {
+        try {
+            return of(existing).containsAll(of(update));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isComponent(int tag) {
+        return tag == PacketTags.PUBLIC_KEY
+                || tag == PacketTags.PUBLIC_SUBKEY
+                || tag == PacketTags.SECRET_KEY
+                || tag == PacketTags.SECRET_SUBKEY
+                || tag == PacketTags.USER_ID
+                || tag == PacketTags.USER_ATTRIBUTE;
+    }
+
+    /**
+     * Packet identity, consisting of the packet tag and body.
+     * The packet header is ignored, so that the same packet encoded in the legacy and the current
+     * packet format is considered equal.
+     */
+    private static final class PacketKey {
+        private final int tag;
+        private final byte[] encoding;
+        private final int bodyOffset;
+        private final int hashCode;
+
+        private PacketKey(RawPacket packet) {
+            this.tag = packet.getTag();
+            this.encoding = packet.getEncoding();
+            this.bodyOffset = packet.getBodyOffset();
+            int hash = tag;
+            for (int i = bodyOffset; i < encoding.length; i++) {
+                hash = 31 * hash + encoding[i];
+            }
+            this.hashCode = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PacketKey)) {
+                return false;
+            }
+            PacketKey other = (PacketKey) o;
+            return tag == other.tag
+                    && hashCode == other.hashCode
+                    && Arrays.equals(encoding, bodyOffset, encoding.length,
+                    other.encoding, other.bodyOffset, other.encoding.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        private final PacketKey component;
+        private final PacketKey packet;
+
+        private Entry(PacketKey component, PacketKey packet) {
+            this.component = component;
+            this.packet = packet;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return packet.equals(other.packet)
+                    && (component == null ? other.component == null : component.equals(other.component));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (component == null ? 0 : component.hashCode()) + packet.hashCode();
+        }
+    }
+}
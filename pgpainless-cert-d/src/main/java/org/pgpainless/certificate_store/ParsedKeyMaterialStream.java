@@ -0,0 +1,123 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encoding of key material, which travels along with the already parsed key material.
+ * Backends only accept inserted certificates as {@link InputStream InputStreams}, which they parse using their
+ * {@link KeyMaterialReaderBackend}. Once an insert path parsed the data itself, it passes this stream instead,
+ * so that {@link KeyMaterialReader} hands out the parsed key material instead of parsing the data again.
+ * Streams which were (partially) consumed, or whose key material was parsed by a reader extracting other
+ * subkey-ids, are parsed as usual.
+ */
+final class ParsedKeyMaterialStream extends ByteArrayInputStream {
+
+    private final KeyMaterial keyMaterial;
+    // Null, if the key material was not parsed by a KeyMaterialReader
+    private final SubkeyIdExtraction extraction;
+
+    /**
+     * Create a stream of the given encoding.
+     *
+     * @param encoding encoding of the key material
+     * @param keyMaterial key material parsed from the encoding without tag
+     * @param parsedBy reader which parsed the key material
+     */
+    ParsedKeyMaterialStream(byte[] encoding, KeyMaterial keyMaterial, KeyMaterialReaderBackend parsedBy) {
+        this(encoding, keyMaterial,
+                parsedBy instanceof KeyMaterialReader ? ((KeyMaterialReader) parsedBy).getExtraction() : null);
+    }
+
+    private ParsedKeyMaterialStream(byte[] encoding, KeyMaterial keyMaterial, SubkeyIdExtraction extraction) {
+        super(encoding);
+        this.keyMaterial = keyMaterial;
+        this.extraction = extraction;
+    }
+
+    /**
+     * Read and parse the given input stream, unless it already carries parsed key material.
+     *
+     * @param data input stream
+     * @param reader reader used for parsing
+     * @return unread stream carrying the parsed key material
+     * @throws IOException if the data cannot be read
+     * @throws BadDataException if the data does not contain key material
+     */
+    static ParsedKeyMaterialStream parse(InputStream data, KeyMaterialReaderBackend reader)
+            throws IOException, BadDataException {
+        if (isUnread(data)) {
+            return (ParsedKeyMaterialStream) data;
+        }
+        byte[] bytes = Streams.readAll(data);
+        return new ParsedKeyMaterialStream(bytes, reader.read(new ByteArrayInputStream(bytes), null), reader);
+    }
+
+    /**
+     * Return true, if the given stream carries parsed key material and was not read from yet.
+     *
+     * @param data input stream
+     * @return true if the key material can be taken from the stream
+     */
+    static boolean isUnread(InputStream data) {
+        if (!(data instanceof ParsedKeyMaterialStream)) {
+            return false;
+        }
+        ParsedKeyMaterialStream stream = (ParsedKeyMaterialStream) data;
+        synchronized (stream) {
+            return stream.pos == 0;
+        }
+    }
+
+    /**
+     * Consume the stream and return the parsed key material, unless the stream was already read from or the
+     * key material was not parsed the way the given reader parses it.
+     *
+     * @param reader reader which is about to parse the stream
+     * @return key material or null
+     */
+    synchronized KeyMaterial take(KeyMaterialReader reader) {
+        if (pos != 0 || extraction != reader.getExtraction()) {
+            return null;
+        }
+        pos = count;
+        return keyMaterial;
+    }
+
+    /**
+     * Return the parsed key material.
+     *
+     * @return key material
+     */
+    KeyMaterial getKeyMaterial() {
+        return keyMaterial;
+    }
+
+    /**
+     * Return the encoding of the key material.
+     *
+     * @return encoding
+     */
+    byte[] getEncoding() {
+        return buf;
+    }
+
+    /**
+     * Return a new, unread stream of the same encoding and key material.
+     *
+     * @return stream
+     */
+    ParsedKeyMaterialStream reopen() {
+        return new ParsedKeyMaterialStream(buf, keyMaterial, extraction);
+    }
+}
@@ -0,0 +1,485 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * {@link SubkeyLookup} which persists its contents in an append-only journal.
+ * For every certificate, the index remembers the tag of the certificate at the time its subkey-ids were recorded.
+ * On startup, {@link #catchUp(Iterator)} compares these tags with the tags reported by the backend and only
+ * re-reads certificates which were added or changed since, so the index never needs to be rebuilt from scratch.
+ * <p>
+ * Writes are collected and appended to the journal in batches, each of which is written and synced as a single
+ * transaction. Writes which were not yet committed when the process exits are recovered by the next catch-up.
+ * Lookups are served from a {@link PrimitiveSubkeyLookup} and never touch the disk.
+ * <p>
+ * Multiple processes may open the same index. Replaying, rewriting and appending to the journal happen while
+ * holding an exclusive {@link java.nio.channels.FileLock} on a lock file next to the journal, so that a process
+ * never mistakes a batch, which another process is still appending, for a torn write.
+ * Batches appended by other processes are only picked up when the index is opened again.
+ */
+public class PersistentSubkeyIndex implements SubkeyLookup, Closeable {
+
+    /**
+     * Name of the directory inside the base directory of a certificate store, which holds the index.
+     * Names starting with an underscore are not used by the store itself.
+     */
+    public static final String DIRECTORY_NAME = "_pgpainless_subkey_index";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String JOURNAL = "journal";
+    private static final String LOCK = "lock";
+    private static final int JOURNAL_MAGIC = 0x50534931;
+    private static final int BATCH_MAGIC = 0x42415443;
+    private static final int HEADER_LENGTH = 4;
+    private static final int BATCH_OVERHEAD = 4 + 4 + 4 + 8;
+
+    private static final byte TYPE_ENTRY = 1;
+    private static final byte TYPE_REMOVAL = 2;
+
+    // Stored in place of a null tag
+    private static final Long NO_TAG = Long.MIN_VALUE;
+
+    // File locks are held on behalf of the whole JVM, so indexes opened on the same directory share one lock
+    private static final Map<Path, DirectoryLock> JOURNAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final File journalFile;
+    private final DirectoryLock journalLock;
+    private final PGPCertificateDirectory.Backend backend;
+    private final int batchSize;
+
+    private final PrimitiveSubkeyLookup lookup;
+    // Tag of each indexed certificate at the time its subkey-ids were recorded
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+    private int pendingCount = 0;
+    private boolean closed = false;
+    // Guards the journal and pending writes. Not a monitor, so that virtual threads writing the journal do not
+    // pin their carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Open or create an index using the {@link #DEFAULT_BATCH_SIZE default batch size}.
+     *
+     * @param indexDirectory directory holding the index files
+     * @param backend backend of the store, used to determine tags and to read changed certificates
+     * @throws IOException if the index cannot be opened
+     */
+    public PersistentSubkeyIndex(File indexDirectory, PGPCertificateDirectory.Backend backend) throws IOException {
+        this(indexDirectory, backend, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Open or create an index.
+     *
+     * @param indexDirectory directory holding the index files
+     * @param backend backend of the store, used to determine tags and to read changed certificates
+     * @param batchSize number of certificates after which pending writes are committed to the journal
+     * @throws IOException if the index cannot be opened
+     */
+    public PersistentSubkeyIndex(File indexDirectory, PGPCertificateDirectory.Backend backend, int batchSize)
+            throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size MUST be positive.");
+        }
+        if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+            throw new IOException("Cannot create index directory " + indexDirectory.getAbsolutePath());
+        }
+        this.journalFile = new File(indexDirectory, JOURNAL);
+        this.journalLock = JOURNAL_LOCKS.computeIfAbsent(
+                new File(indexDirectory, LOCK).getAbsoluteFile().toPath().normalize(),
+                path -> new DirectoryLock(path.toFile()));
+        this.backend = backend;
+        this.batchSize = batchSize;
+
+        Map<String, Record> records = new LinkedHashMap<>();
+        lockJournal();
+        try {
+            long recordCount = replay(records);
+            if (recordCount > 2L * records.size() + batchSize) {
+                // The journal is mostly made up of outdated records
+                rewriteJournal(records);
+            }
+        } finally {
+            journalLock.releaseDirectory();
+        }
+
+        this.lookup = new PrimitiveSubkeyLookup(records.size() * 2, false);
+        for (Record record : records.values()) {
+            lookup.storeCertificateSubkeyIds(record.fingerprint, record.subkeyIds);
+            watermarks.put(record.fingerprint, record.tag);
+        }
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) {
+        Set<String> fingerprints = lookup.getCertificateFingerprintsForSubkeyId(subkeyId);
+        if (fingerprints.isEmpty()) {
+            return fingerprints;
+        }
+        // Removed certificates stay in the lookup until the index is reopened
+        fingerprints.removeIf(fingerprint -> !watermarks.containsKey(fingerprint));
+        return fingerprints;
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+        lock.lock();
+        try {
+            long[] ids = new long[subkeyIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = subkeyIds.get(i);
+            }
+            Long tag;
+            try {
+                tag = backend.getTagForFingerprint(certificate);
+            } catch (BadNameException e) {
+                tag = null;
+            }
+            record(certificate, tag, ids);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bring the index up to date with the store.
+     * Certificates whose tag differs from the recorded one are read from the backend and re-indexed,
+     * indexed certificates which are no longer part of the store are removed.
+     * Certificates which cannot be read are recorded without subkey-ids, so they are not retried until they change.
+     *
+     * @param fingerprints fingerprints of all certificates in the store
+     * @return number of (re-)indexed certificates
+     * @throws IOException if the backend or the journal cannot be accessed
+     */
+    public int catchUp(Iterator<String> fingerprints) throws IOException {
+        lock.lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            int indexed = 0;
+            while (fingerprints.hasNext()) {
+                String fingerprint = fingerprints.next();
+                seen.add(fingerprint);
+                try {
+                    Long tag = backend.getTagForFingerprint(fingerprint);
+                    if (Objects.equals(toStoredTag(tag), watermarks.get(fingerprint))) {
+                        continue;
+                    }
+                    try {
+                        Certificate certificate = backend.readByFingerprint(fingerprint);
+                        List<Long> subkeyIds = certificate.getSubkeyIds();
+                        long[] ids = new long[subkeyIds.size()];
+                        for (int i = 0; i < ids.length; i++) {
+                            ids[i] = subkeyIds.get(i);
+                        }
+                        record(fingerprint, certificate.getTag(), ids);
+                    } catch (BadDataException | RuntimeException e) {
+                        record(fingerprint, tag, new long[0]);
+                    }
+                    indexed++;
+                } catch (BadNameException | NoSuchElementException e) {
+                    // Vanished or not a certificate
+                }
+            }
+
+            for (String fingerprint : watermarks.keySet()) {
+                if (!seen.contains(fingerprint)) {
+                    remove(fingerprint);
+                }
+            }
+            flush();
+            return indexed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the tag of the certificate at the time its subkey-ids were recorded.
+     *
+     * @param fingerprint fingerprint
+     * @return tag, or null if the certificate is not indexed or had no tag
+     */
+    public Long getIndexedTag(String fingerprint) {
+        Long tag = watermarks.get(fingerprint);
+        return NO_TAG.equals(tag) ? null : tag;
+    }
+
+    /**
+     * Return the number of indexed certificates.
+     *
+     * @return number of certificates
+     */
+    public int getCertificateCount() {
+        return watermarks.size();
+    }
+
+    /**
+     * Commit all pending writes to the journal.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Subkey index is closed.");
+            }
+            if (pendingCount == 0) {
+                return;
+            }
+            pending.flush();
+            byte[] payload = pendingBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            lockJournal();
+            try (FileChannel journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                // Opened per batch, since another process might have replaced the journal by rewriting it
+                int header = journal.size() == 0 ? HEADER_LENGTH : 0;
+                ByteBuffer batch = ByteBuffer.allocate(header + BATCH_OVERHEAD + payload.length);
+                if (header != 0) {
+                    batch.putInt(JOURNAL_MAGIC);
+                }
+                batch.putInt(BATCH_MAGIC)
+                        .putInt(pendingCount)
+                        .putInt(payload.length)
+                        .put(payload)
+                        .putLong(crc.getValue());
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    journal.write(batch);
+                }
+                journal.force(false);
+            } finally {
+                journalLock.releaseDirectory();
+            }
+
+            pendingBytes.reset();
+            pendingCount = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                closed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void lockJournal() throws IOException {
+        try {
+            journalLock.lockDirectory();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while locking the subkey index journal.");
+        }
+    }
+
+    private void record(String fingerprint, Long tag, long[] subkeyIds) throws IOException {
+        lookup.storeCertificateSubkeyIds(fingerprint, subkeyIds);
+        watermarks.put(fingerprint, toStoredTag(tag));
+        writeEntry(pending, fingerprint, toStoredTag(tag), subkeyIds);
+        pendingCount++;
+        if (pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    private void remove(String fingerprint) throws IOException {
+        watermarks.remove(fingerprint);
+        pending.writeByte(TYPE_REMOVAL);
+        pending.writeUTF(fingerprint);
+        pendingCount++;
+        if (pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, String fingerprint, long tag, long[] subkeyIds)
+            throws IOException {
+        out.writeByte(TYPE_ENTRY);
+        out.writeUTF(fingerprint);
+        out.writeLong(tag);
+        out.writeInt(subkeyIds.length);
+        for (long subkeyId : subkeyIds) {
+            out.writeLong(subkeyId);
+        }
+    }
+
+    private static Long toStoredTag(Long tag) {
+        return tag == null ? NO_TAG : tag;
+    }
+
+    /**
+     * Read all committed batches of the journal into the given map and truncate an incomplete batch at the end.
+     *
+     * @param records map to collect the latest record of each certificate in
+     * @return number of replayed records
+     */
+    private long replay(Map<String, Record> records) throws IOException {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                channel.truncate(0);
+                return 0;
+            }
+            ByteBuffer journalBytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (journalBytes.getInt(0) != JOURNAL_MAGIC) {
+                throw new IOException("Not a subkey index journal: " + journalFile.getAbsolutePath());
+            }
+
+            long committed = HEADER_LENGTH;
+            journalBytes.position(HEADER_LENGTH);
+            while (journalBytes.remaining() >= BATCH_OVERHEAD) {
+                int start = journalBytes.position();
+                if (journalBytes.getInt() != BATCH_MAGIC) {
+                    break;
+                }
+                int recordCount = journalBytes.getInt();
+                int length = journalBytes.getInt();
+                if (length < 0 || journalBytes.remaining() < length + 8) {
+                    break;
+                }
+                ByteBuffer payload = journalBytes.slice();
+                payload.limit(length);
+                journalBytes.position(start + 12 + length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if (crc.getValue() != journalBytes.getLong()) {
+                    break;
+                }
+                try {
+                    for (int i = 0; i < recordCount; i++) {
+                        readRecord(payload, records);
+                    }
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Corrupt subkey index journal: " + journalFile.getAbsolutePath(), e);
+                }
+                count += recordCount;
+                committed = journalBytes.position();
+            }
+
+            if (committed < size) {
+                // Batch was not completely written when the process exited
+                channel.truncate(committed);
+            }
+        }
+        return count;
+    }
+
+    private static void readRecord(ByteBuffer payload, Map<String, Record> records) {
+        byte type = payload.get();
+        byte[] name = new byte[payload.getShort() & 0xffff];
+        payload.get(name);
+        String fingerprint = new String(name, StandardCharsets.UTF_8);
+        if (type == TYPE_REMOVAL) {
+            records.remove(fingerprint);
+            return;
+        }
+        long tag = payload.getLong();
+        long[] subkeyIds = new long[payload.getInt()];
+        for (int i = 0; i < subkeyIds.length; i++) {
+            subkeyIds[i] = payload.getLong();
+        }
+        // Keep insertion order stable for rewrites, later records replace earlier ones
+        records.remove(fingerprint);
+        records.put(fingerprint, new Record(fingerprint, tag, subkeyIds));
+    }
+
+    private void rewriteJournal(Map<String, Record> records) throws IOException {
+        File temp = new File(journalFile.getParentFile(), JOURNAL + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (Record record : records.values()) {
+                writeEntry(out, record.fingerprint, record.tag, record.subkeyIds);
+            }
+            out.flush();
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + BATCH_OVERHEAD + payload.length);
+            buffer.putInt(JOURNAL_MAGIC)
+                    .putInt(BATCH_MAGIC)
+                    .putInt(records.size())
+                    .putInt(payload.length)
+                    .put(payload)
+                    .putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), journalFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Record {
+        private final String fingerprint;
+        private final long tag;
+        private final long[] subkeyIds;
+
+        private Record(String fingerprint, long tag, long[] subkeyIds) {
+            this.fingerprint = fingerprint;
+            this.tag = tag;
+            this.subkeyIds = subkeyIds;
+        }
+    }
+}
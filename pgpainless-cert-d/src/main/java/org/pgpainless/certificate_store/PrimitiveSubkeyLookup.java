@@ -0,0 +1,359 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Memory efficient in-memory {@link SubkeyLookup}.
+ * Subkey-ids are kept unboxed in an open-addressing hash table, which references fingerprints by an integer id.
+ * Fingerprints are deduplicated and stored in their binary form (20 bytes for v4, 32 bytes for v6).
+ * All tables live in {@link ByteBuffer ByteBuffers}, which can optionally be allocated outside the Java heap,
+ * so that even millions of subkeys do not put pressure on the garbage collector.
+ * <p>
+ * Lookups can be performed concurrently, while writes are serialized.
+ * Fingerprints MUST be hex encoded and are returned in lowercase.
+ */
+public class PrimitiveSubkeyLookup implements SubkeyLookup {
+
+    private static final int DEFAULT_EXPECTED_SUBKEYS = 1024;
+    private static final int MAX_FINGERPRINT_LENGTH = 32;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    // Subkey table slot: subkey-id (8 bytes) | fingerprint id + 1 (4 bytes), 0 marks an empty slot
+    private static final int ENTRY_SIZE = 12;
+    // Fingerprint record: length (1 byte) | fingerprint (up to 32 bytes)
+    private static final int FINGERPRINT_RECORD_SIZE = 1 + MAX_FINGERPRINT_LENGTH;
+    // Fingerprint table slot: fingerprint id + 1 (4 bytes), 0 marks an empty slot
+    private static final int FINGERPRINT_SLOT_SIZE = 4;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final boolean offHeap;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer entries;
+    private int entryCapacity;
+    private int entryCount;
+
+    private ByteBuffer fingerprints;
+    private ByteBuffer fingerprintSlots;
+    private int fingerprintCapacity;
+    private int fingerprintCount;
+
+    /**
+     * Create an on-heap lookup.
+     */
+    public PrimitiveSubkeyLookup() {
+        this(DEFAULT_EXPECTED_SUBKEYS, false);
+    }
+
+    /**
+     * Create a lookup.
+     * The tables grow as needed, but sizing them for the expected number of subkeys up front avoids rehashing.
+     *
+     * @param expectedSubkeys expected number of subkeys
+     * @param offHeap if true, tables are allocated outside the Java heap using direct buffers
+     */
+    public PrimitiveSubkeyLookup(int expectedSubkeys, boolean offHeap) {
+        if (expectedSubkeys < 0) {
+            throw new IllegalArgumentException("Expected number of subkeys MUST NOT be negative.");
+        }
+        this.offHeap = offHeap;
+        this.entryCapacity = capacityFor(expectedSubkeys, ENTRY_SIZE);
+        this.entries = allocate(entryCapacity, ENTRY_SIZE);
+        this.fingerprintCapacity = capacityFor(expectedSubkeys / 2, FINGERPRINT_RECORD_SIZE);
+        this.fingerprintSlots = allocate(fingerprintCapacity, FINGERPRINT_SLOT_SIZE);
+        this.fingerprints = allocate(fingerprintCapacity, FINGERPRINT_RECORD_SIZE);
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) {
+        lock.readLock().lock();
+        try {
+            Set<String> result = null;
+            int mask = entryCapacity - 1;
+            for (int slot = hash(subkeyId) & mask; ; slot = (slot + 1) & mask) {
+                int position = slot * ENTRY_SIZE;
+                int fingerprintId = entries.getInt(position + 8) - 1;
+                if (fingerprintId < 0) {
+                    break;
+                }
+                if (entries.getLong(position) == subkeyId) {
+                    if (result == null) {
+                        result = new HashSet<>();
+                    }
+                    result.add(readFingerprint(fingerprintId));
+                }
+            }
+            return result == null ? Collections.emptySet() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) {
+        lock.writeLock().lock();
+        try {
+            int fingerprintId = internFingerprint(certificate);
+            for (Long subkeyId : subkeyIds) {
+                storeEntry(subkeyId, fingerprintId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Store the given subkey-ids for a certificate without boxing.
+     *
+     * @param certificate hex encoded fingerprint of the certificate
+     * @param subkeyIds subkey-ids
+     */
+    public void storeCertificateSubkeyIds(String certificate, long[] subkeyIds) {
+        lock.writeLock().lock();
+        try {
+            int fingerprintId = internFingerprint(certificate);
+            for (long subkeyId : subkeyIds) {
+                storeEntry(subkeyId, fingerprintId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of stored (subkey-id, fingerprint) pairs.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of distinct certificate fingerprints.
+     *
+     * @return number of fingerprints
+     */
+    public int getFingerprintCount() {
+        lock.readLock().lock();
+        try {
+            return fingerprintCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return true, if the tables are allocated outside the Java heap.
+     *
+     * @return true if off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    private void storeEntry(long subkeyId, int fingerprintId) {
+        int mask = entryCapacity - 1;
+        int slot = hash(subkeyId) & mask;
+        while (true) {
+            int position = slot * ENTRY_SIZE;
+            int existing = entries.getInt(position + 8) - 1;
+            if (existing < 0) {
+                break;
+            }
+            if (existing == fingerprintId && entries.getLong(position) == subkeyId) {
+                // Already known
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (entryCount + 1 > entryCapacity * MAX_LOAD_FACTOR) {
+            growEntries();
+        }
+        insertEntry(entries, entryCapacity, subkeyId, fingerprintId);
+        entryCount++;
+    }
+
+    private void growEntries() {
+        int capacity = grow(entryCapacity, ENTRY_SIZE);
+        ByteBuffer grown = allocate(capacity, ENTRY_SIZE);
+        for (int slot = 0; slot < entryCapacity; slot++) {
+            int position = slot * ENTRY_SIZE;
+            int fingerprintId = entries.getInt(position + 8) - 1;
+            if (fingerprintId >= 0) {
+                insertEntry(grown, capacity, entries.getLong(position), fingerprintId);
+            }
+        }
+        entries = grown;
+        entryCapacity = capacity;
+    }
+
+    private static void insertEntry(ByteBuffer table, int capacity, long subkeyId, int fingerprintId) {
+        int mask = capacity - 1;
+        int slot = hash(subkeyId) & mask;
+        while (table.getInt(slot * ENTRY_SIZE + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * ENTRY_SIZE, subkeyId);
+        table.putInt(slot * ENTRY_SIZE + 8, fingerprintId + 1);
+    }
+
+    private int internFingerprint(String fingerprint) {
+        byte[] binary = decodeHex(fingerprint);
+        int hash = hash(binary);
+        int mask = fingerprintCapacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int fingerprintId = fingerprintSlots.getInt(slot * FINGERPRINT_SLOT_SIZE) - 1;
+            if (fingerprintId < 0) {
+                break;
+            }
+            if (fingerprintEquals(fingerprintId, binary)) {
+                return fingerprintId;
+            }
+        }
+
+        if (fingerprintCount + 1 > fingerprintCapacity * MAX_LOAD_FACTOR) {
+            growFingerprints();
+        }
+        int fingerprintId = fingerprintCount++;
+        int position = fingerprintId * FINGERPRINT_RECORD_SIZE;
+        fingerprints.put(position, (byte) binary.length);
+        for (int i = 0; i < binary.length; i++) {
+            fingerprints.put(position + 1 + i, binary[i]);
+        }
+        insertFingerprintSlot(fingerprintSlots, fingerprintCapacity, hash, fingerprintId);
+        return fingerprintId;
+    }
+
+    private void growFingerprints() {
+        int capacity = grow(fingerprintCapacity, FINGERPRINT_RECORD_SIZE);
+        ByteBuffer grownRecords = allocate(capacity, FINGERPRINT_RECORD_SIZE);
+        ByteBuffer grownSlots = allocate(capacity, FINGERPRINT_SLOT_SIZE);
+        ByteBuffer records = fingerprints.duplicate();
+        records.position(0).limit(fingerprintCount * FINGERPRINT_RECORD_SIZE);
+        grownRecords.put(records);
+        for (int fingerprintId = 0; fingerprintId < fingerprintCount; fingerprintId++) {
+            insertFingerprintSlot(grownSlots, capacity, hash(readBinaryFingerprint(fingerprintId)), fingerprintId);
+        }
+        fingerprints = grownRecords;
+        fingerprintSlots = grownSlots;
+        fingerprintCapacity = capacity;
+    }
+
+    private static void insertFingerprintSlot(ByteBuffer slots, int capacity, int hash, int fingerprintId) {
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (slots.getInt(slot * FINGERPRINT_SLOT_SIZE) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putInt(slot * FINGERPRINT_SLOT_SIZE, fingerprintId + 1);
+    }
+
+    private boolean fingerprintEquals(int fingerprintId, byte[] binary) {
+        int position = fingerprintId * FINGERPRINT_RECORD_SIZE;
+        if (fingerprints.get(position) != binary.length) {
+            return false;
+        }
+        for (int i = 0; i < binary.length; i++) {
+            if (fingerprints.get(position + 1 + i) != binary[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readBinaryFingerprint(int fingerprintId) {
+        int position = fingerprintId * FINGERPRINT_RECORD_SIZE;
+        byte[] binary = new byte[fingerprints.get(position)];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = fingerprints.get(position + 1 + i);
+        }
+        return binary;
+    }
+
+    private String readFingerprint(int fingerprintId) {
+        int position = fingerprintId * FINGERPRINT_RECORD_SIZE;
+        int length = fingerprints.get(position);
+        char[] hex = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = fingerprints.get(position + 1 + i) & 0xff;
+            hex[2 * i] = HEX[b >>> 4];
+            hex[2 * i + 1] = HEX[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    private ByteBuffer allocate(int slots, int slotSize) {
+        return offHeap ? ByteBuffer.allocateDirect(slots * slotSize) : ByteBuffer.allocate(slots * slotSize);
+    }
+
+    private static int capacityFor(int expected, int slotSize) {
+        long capacity = Long.highestOneBit(Math.max(16, (long) Math.ceil(expected / MAX_LOAD_FACTOR)) * 2 - 1);
+        if (capacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Expected number of subkeys is too large: " + expected);
+        }
+        return (int) capacity;
+    }
+
+    private static int grow(int capacity, int slotSize) {
+        if ((long) capacity * 2 * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Subkey lookup exceeds its maximum capacity.");
+        }
+        return capacity * 2;
+    }
+
+    private static byte[] decodeHex(String fingerprint) {
+        int length = fingerprint.length();
+        if (length == 0 || length % 2 != 0 || length > 2 * MAX_FINGERPRINT_LENGTH) {
+            throw new IllegalArgumentException("Invalid fingerprint " + fingerprint);
+        }
+        byte[] binary = new byte[length / 2];
+        for (int i = 0; i < binary.length; i++) {
+            int high = Character.digit(fingerprint.charAt(2 * i), 16);
+            int low = Character.digit(fingerprint.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid fingerprint " + fingerprint);
+            }
+            binary[i] = (byte) ((high << 4) | low);
+        }
+        return binary;
+    }
+
+    private static int hash(long value) {
+        // Finalizer of MurmurHash3, spreads subkey-ids with common high or low bits over the table
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int hash(byte[] binary) {
+        long h = 0;
+        for (byte b : binary) {
+            h = 31 * h + b;
+        }
+        return hash(h);
+    }
+}
@@ -0,0 +1,43 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookupFactory;
+
+import java.io.File;
+
+/**
+ * {@link SubkeyLookupFactory} creating {@link PrimitiveSubkeyLookup} instances.
+ * The lookup is held in memory only, so the base directory is ignored.
+ */
+public class PrimitiveSubkeyLookupFactory implements SubkeyLookupFactory {
+
+    private final int expectedSubkeys;
+    private final boolean offHeap;
+
+    /**
+     * Create a factory for on-heap lookups.
+     */
+    public PrimitiveSubkeyLookupFactory() {
+        this(0, false);
+    }
+
+    /**
+     * Create a factory.
+     *
+     * @param expectedSubkeys expected number of subkeys
+     * @param offHeap if true, lookups are allocated outside the Java heap
+     */
+    public PrimitiveSubkeyLookupFactory(int expectedSubkeys, boolean offHeap) {
+        this.expectedSubkeys = expectedSubkeys;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public SubkeyLookup createFileBasedInstance(File baseDirectory) {
+        return new PrimitiveSubkeyLookup(expectedSubkeys, offHeap);
+    }
+}
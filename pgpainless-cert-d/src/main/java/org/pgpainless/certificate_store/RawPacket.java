@@ -0,0 +1,203 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Undecoded OpenPGP packet.
+ * Only the packet framing is interpreted, the body of the packet is kept as is.
+ * Partial and indeterminate body lengths are rejected, since they are only allowed for data packets,
+ * which never appear in keys or certificates.
+ */
+final class RawPacket {
+
+    private final int tag;
+    private final byte[] encoding;
+    private final int bodyOffset;
+    private final boolean oversized;
+
+    private RawPacket(int tag, byte[] encoding, int bodyOffset, boolean oversized) {
+        this.tag = tag;
+        this.encoding = encoding;
+        this.bodyOffset = bodyOffset;
+        this.oversized = oversized;
+    }
+
+    /**
+     * Return the packet tag.
+     *
+     * @return tag
+     */
+    int getTag() {
+        return tag;
+    }
+
+    /**
+     * Return the complete encoding of the packet, including its header.
+     * For {@link #isOversized() oversized} packets, only the header is retained.
+     *
+     * @return encoding
+     */
+    byte[] getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Return the offset of the packet body inside the {@link #getEncoding() encoding}.
+     *
+     * @return body offset
+     */
+    int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    /**
+     * Return the length of the packet body.
+     *
+     * @return body length
+     */
+    int getBodyLength() {
+        return encoding.length - bodyOffset;
+    }
+
+    /**
+     * Return true, if the body of the packet exceeded the maximum length and was skipped.
+     *
+     * @return true if oversized
+     */
+    boolean isOversized() {
+        return oversized;
+    }
+
+    /**
+     * Read the next packet from the given stream.
+     *
+     * @param in input stream
+     * @param maxBodyLength maximum accepted body length
+     * @return packet or null, if the stream ended before the next packet
+     * @throws IOException if the stream cannot be read, the packet framing is malformed or the body of the
+     * packet exceeds the maximum length
+     */
+    static RawPacket read(InputStream in, int maxBodyLength) throws IOException {
+        return read(in, maxBodyLength, false);
+    }
+
+    /**
+     * Read the next packet from the given stream.
+     * If the body of the packet exceeds the maximum length, it is skipped and an {@link #isOversized() oversized}
+     * packet without body is returned, so that the caller can carry on with the next packet.
+     *
+     * @param in input stream
+     * @param maxBodyLength maximum accepted body length
+     * @return packet or null, if the stream ended before the next packet
+     * @throws IOException if the stream cannot be read or the packet framing is malformed
+     */
+    static RawPacket readOrSkip(InputStream in, int maxBodyLength) throws IOException {
+        return read(in, maxBodyLength, true);
+    }
+
+    private static RawPacket read(InputStream in, int maxBodyLength, boolean skipOversized) throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        if ((first & 0x80) == 0) {
+            throw new IOException("Invalid packet header: 0x" + Integer.toHexString(first));
+        }
+
+        byte[] header = new byte[6];
+        header[0] = (byte) first;
+        int headerLength = 1;
+        int tag;
+        long bodyLength;
+
+        if ((first & 0x40) != 0) {
+            // New packet format
+            tag = first & 0x3f;
+            int l1 = readByte(in);
+            header[headerLength++] = (byte) l1;
+            if (l1 < 192) {
+                bodyLength = l1;
+            } else if (l1 < 224) {
+                int l2 = readByte(in);
+                header[headerLength++] = (byte) l2;
+                bodyLength = ((l1 - 192) << 8) + l2 + 192;
+            } else if (l1 == 255) {
+                bodyLength = 0;
+                for (int i = 0; i < 4; i++) {
+                    int b = readByte(in);
+                    header[headerLength++] = (byte) b;
+                    bodyLength = (bodyLength << 8) | b;
+                }
+            } else {
+                throw new IOException("Partial body length in packet with tag " + tag);
+            }
+        } else {
+            // Legacy packet format
+            tag = (first >> 2) & 0x0f;
+            int lengthType = first & 0x03;
+            if (lengthType == 3) {
+                throw new IOException("Indeterminate body length in packet with tag " + tag);
+            }
+            int lengthOctets = 1 << lengthType;
+            bodyLength = 0;
+            for (int i = 0; i < lengthOctets; i++) {
+                int b = readByte(in);
+                header[headerLength++] = (byte) b;
+                bodyLength = (bodyLength << 8) | b;
+            }
+        }
+
+        if (bodyLength > maxBodyLength) {
+            if (!skipOversized) {
+                throw new IOException("Packet with tag " + tag + " exceeds maximum length (" + bodyLength + " bytes).");
+            }
+            skipFully(in, bodyLength);
+            byte[] encoding = new byte[headerLength];
+            System.arraycopy(header, 0, encoding, 0, headerLength);
+            return new RawPacket(tag, encoding, headerLength, true);
+        }
+
+        byte[] encoding = new byte[headerLength + (int) bodyLength];
+        System.arraycopy(header, 0, encoding, 0, headerLength);
+        readFully(in, encoding, headerLength, (int) bodyLength);
+        return new RawPacket(tag, encoding, headerLength, false);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of packet header.");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int r = in.read(buffer, offset + read, length - read);
+            if (r == -1) {
+                throw new EOFException("Unexpected end of packet body.");
+            }
+            read += r;
+        }
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        // InputStream.skip() might skip fewer bytes without being at the end of the stream, so drain instead
+        byte[] scratch = new byte[(int) Math.min(length, 8192)];
+        long remaining = length;
+        while (remaining > 0) {
+            int r = in.read(scratch, 0, (int) Math.min(remaining, scratch.length));
+            if (r == -1) {
+                throw new EOFException("Unexpected end of packet body.");
+            }
+            remaining -= r;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of rebuilding or verifying the subkey lookup of a {@link PGPainlessCertD}.
+ */
+public final class ReindexResult {
+
+    private final boolean verified;
+    private final long certificates;
+    private final long subkeyIds;
+    private final long failed;
+    private final List<Entry> missing;
+    private final List<Entry> stale;
+    private final long durationNanos;
+
+    ReindexResult(boolean verified, long certificates, long subkeyIds, long failed,
+                  List<Entry> missing, List<Entry> stale, long durationNanos) {
+        this.verified = verified;
+        this.certificates = certificates;
+        this.subkeyIds = subkeyIds;
+        this.failed = failed;
+        this.missing = Collections.unmodifiableList(missing);
+        this.stale = Collections.unmodifiableList(stale);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Return true, if the subkey lookup was only verified and not written to.
+     *
+     * @return true if verified only
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /**
+     * Return the number of scanned certificates.
+     *
+     * @return number of certificates
+     */
+    public long getCertificates() {
+        return certificates;
+    }
+
+    /**
+     * Return the number of found (sub-)key ids.
+     *
+     * @return number of subkey-ids
+     */
+    public long getSubkeyIds() {
+        return subkeyIds;
+    }
+
+    /**
+     * Return the number of certificates which could not be scanned.
+     *
+     * @return number of failed certificates
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Return entries of the store, which are not known to the subkey lookup.
+     * Always empty, if the lookup was rebuilt instead of verified.
+     *
+     * @return missing entries
+     */
+    public List<Entry> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Return entries of the subkey lookup, which point to certificates that do not exist or do not contain
+     * the subkey.
+     * Always empty, if the lookup was rebuilt instead of verified.
+     *
+     * @return stale entries
+     */
+    public List<Entry> getStale() {
+        return stale;
+    }
+
+    /**
+     * Return true, if neither missing nor stale entries were found.
+     *
+     * @return true if consistent
+     */
+    public boolean isConsistent() {
+        return missing.isEmpty() && stale.isEmpty();
+    }
+
+    /**
+     * Return the total duration of the operation in milliseconds.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    @Override
+    public String toString() {
+        if (verified) {
+            return String.format("Verified %d subkey ids of %d certificates (%d failed) in %d ms: " +
+                            "%d missing, %d stale entries",
+                    subkeyIds, certificates, failed, getDurationMillis(), missing.size(), stale.size());
+        }
+        return String.format("Indexed %d subkey ids of %d certificates (%d failed) in %d ms",
+                subkeyIds, certificates, failed, getDurationMillis());
+    }
+
+    /**
+     * Mapping of a subkey-id to the fingerprint of a certificate.
+     */
+    public static final class Entry {
+
+        private final long subkeyId;
+        private final String fingerprint;
+
+        Entry(long subkeyId, String fingerprint) {
+            this.subkeyId = subkeyId;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Return the subkey-id.
+         *
+         * @return subkey-id
+         */
+        public long getSubkeyId() {
+            return subkeyId;
+        }
+
+        /**
+         * Return the fingerprint of the certificate.
+         *
+         * @return fingerprint
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%016x %s", subkeyId, fingerprint);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} which does not write a certificate back to the underlying backend,
+ * if merging the inserted data with the existing certificate does not change the certificate.
+ * The merge callback signals that nothing changed by returning the existing {@link KeyMaterial} instance
+ * (see {@link MergeCallbacks#mergeWithExisting()}), or by returning an identical encoding.
+ * In these cases the existing certificate is returned and its file and tag stay untouched.
+ */
+public class SkipUnchangedBackend extends ForwardingBackend {
+
+    private final KeyMaterialReaderBackend reader;
+
+    public SkipUnchangedBackend(PGPCertificateDirectory.Backend delegate, KeyMaterialReaderBackend reader) {
+        super(delegate);
+        this.reader = reader;
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        // Data parsed by the insert path is not parsed again, neither here nor by the delegate
+        ParsedKeyMaterialStream parsed = ParsedKeyMaterialStream.parse(data, reader);
+        KeyMaterial update = parsed.getKeyMaterial();
+
+        Certificate existing;
+        try {
+            existing = getDelegate().readByFingerprint(update.getFingerprint());
+        } catch (NoSuchElementException | BadNameException | BadDataException e) {
+            // Nothing to compare against, let the delegate deal with it
+            return getDelegate().doInsert(parsed.reopen(), merge);
+        }
+        if (existing == null) {
+            return getDelegate().doInsert(parsed.reopen(), merge);
+        }
+
+        KeyMaterial merged = merge.merge(update, existing);
+        if (merged == existing) {
+            return existing;
+        }
+        byte[] mergedEncoding = Streams.readAll(merged.getInputStream());
+        if (Arrays.equals(mergedEncoding, Streams.readAll(existing.getInputStream()))) {
+            return existing;
+        }
+
+        // We hold the directory lock, so existing cannot have changed in the meantime.
+        // Hand over the merge result instead of merging a second time.
+        return getDelegate().doInsert(new ByteArrayInputStream(mergedEncoding), MergeCallbacks.overrideExisting());
+    }
+}
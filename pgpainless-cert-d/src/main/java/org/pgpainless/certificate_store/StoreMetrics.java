@@ -0,0 +1,98 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+/**
+ * Sink for metrics recorded by the instrumentation layer (see {@link Instrumentation}).
+ * Implementations can forward the recorded values to a metrics library of choice.
+ * All methods may be called concurrently from multiple threads and should return quickly.
+ */
+public interface StoreMetrics {
+
+    /**
+     * Sink which discards all metrics.
+     * Instrumenting a component with this sink returns the component itself, so disabled
+     * instrumentation does not add any overhead.
+     */
+    StoreMetrics NOOP = new StoreMetrics() {
+        @Override
+        public void recordLatency(Operation operation, long durationNanos, boolean success) {
+        }
+
+        @Override
+        public void recordBytes(Transfer transfer, long bytes) {
+        }
+    };
+
+    /**
+     * Instrumented operations.
+     */
+    enum Operation {
+        /**
+         * Reading a certificate by fingerprint or special name.
+         */
+        GET,
+        /**
+         * Inserting a certificate, including merging and writing.
+         */
+        INSERT,
+        /**
+         * Merging an update into an existing certificate.
+         */
+        MERGE,
+        /**
+         * Time spent inserting a certificate outside of the merge callback, i.e. reading the existing
+         * certificate and writing the merged one.
+         */
+        WRITE,
+        /**
+         * Parsing key material.
+         */
+        PARSE,
+        /**
+         * Looking up certificate fingerprints by subkey-id.
+         */
+        SUBKEY_LOOKUP,
+        /**
+         * Storing the subkey-ids of a certificate.
+         */
+        SUBKEY_STORE,
+        /**
+         * Waiting for the directory lock.
+         */
+        LOCK_WAIT
+    }
+
+    /**
+     * Direction of transferred bytes.
+     */
+    enum Transfer {
+        /**
+         * Bytes of certificates read from the backend.
+         */
+        READ,
+        /**
+         * Bytes of certificates written to the backend.
+         */
+        WRITTEN
+    }
+
+    /**
+     * Record the duration of an operation.
+     *
+     * @param operation operation
+     * @param durationNanos duration in nanoseconds
+     * @param success false if the operation failed with an exception
+     */
+    void recordLatency(Operation operation, long durationNanos, boolean success);
+
+    /**
+     * Record a number of transferred bytes.
+     *
+     * @param transfer direction
+     * @param bytes number of bytes
+     */
+    void recordBytes(Transfer transfer, long bytes);
+}
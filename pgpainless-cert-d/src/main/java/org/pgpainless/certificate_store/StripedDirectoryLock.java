@@ -0,0 +1,285 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link PGPCertificateDirectory.LockingMechanism} which, in addition to locking the whole directory, allows
+ * locking only the certificates sharing the two character prefix of a fingerprint, so that certificates in
+ * different subdirectories can be written concurrently.
+ * <p>
+ * Locking the whole directory acquires an exclusive {@link FileLock} on the {@code writelock} file in the base
+ * directory, just like other implementations of the Shared PGP Certificate Directory do.
+ * Locking a prefix acquires a shared {@link FileLock} on the same file, which excludes writers locking the whole
+ * directory, and an exclusive {@link FileLock} on a lock file for the prefix inside the
+ * {@link #DIRECTORY_NAME lock directory}, which excludes writers of the same prefix in other processes.
+ * Within the process, a read-write lock and one lock per prefix take the same roles, since file locks are held
+ * on behalf of the whole JVM.
+ * <p>
+ * Locks MUST be released by the thread which acquired them. The lock is not reentrant.
+ * <p>
+ * The time spent waiting for prefix locks is recorded as {@link StoreMetrics.Operation#LOCK_WAIT}.
+ * Waiting for the whole directory is recorded by {@link Instrumentation#lock(PGPCertificateDirectory.LockingMechanism,
+ * StoreMetrics) instrumenting} the lock.
+ */
+public final class StripedDirectoryLock implements PGPCertificateDirectory.LockingMechanism {
+
+    /**
+     * Name of the directory inside the base directory of a certificate store, which holds the lock files of
+     * the prefixes.
+     * Names starting with an underscore are not used by the store itself.
+     */
+    public static final String DIRECTORY_NAME = "_pgpainless_locks";
+
+    private static final String WRITE_LOCK_NAME = "writelock";
+    private static final int STRIPES = 256;
+
+    private final File writeLockFile;
+    private final File lockDirectory;
+    private final StoreMetrics metrics;
+    private final ReentrantReadWriteLock directoryLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Exclusive lock on the write lock file, guarded by the write lock of directoryLock
+    private FileChannel exclusiveChannel;
+    private FileLock exclusiveLock;
+
+    // Shared lock on the write lock file, held as long as any prefix is locked, guarded by sharedGuard
+    private final ReentrantLock sharedGuard = new ReentrantLock();
+    private int sharedHolders = 0;
+    private FileChannel sharedChannel;
+    private FileLock sharedLock;
+
+    // Locks on the prefix lock files, guarded by the respective stripe
+    private final FileChannel[] stripeChannels = new FileChannel[STRIPES];
+    private final FileLock[] stripeLocks = new FileLock[STRIPES];
+
+    public StripedDirectoryLock(File baseDirectory) {
+        this(baseDirectory, StoreMetrics.NOOP);
+    }
+
+    /**
+     * Create a lock for the given base directory, which records the time spent waiting for prefix locks.
+     *
+     * @param baseDirectory base directory
+     * @param metrics metrics sink
+     */
+    public StripedDirectoryLock(File baseDirectory, StoreMetrics metrics) {
+        this.writeLockFile = new File(baseDirectory, WRITE_LOCK_NAME);
+        this.lockDirectory = new File(baseDirectory, DIRECTORY_NAME);
+        this.metrics = metrics;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void lockDirectory() throws IOException, InterruptedException {
+        directoryLock.writeLock().lockInterruptibly();
+        try {
+            FileChannel channel = openChannel(writeLockFile);
+            try {
+                exclusiveLock = channel.lock();
+                exclusiveChannel = channel;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            directoryLock.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryLockDirectory() throws IOException {
+        if (!directoryLock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            FileChannel channel = openChannel(writeLockFile);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (lock == null) {
+                // Locked by another process
+                channel.close();
+                directoryLock.writeLock().unlock();
+                return false;
+            }
+            exclusiveLock = lock;
+            exclusiveChannel = channel;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            directoryLock.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isLocked() {
+        return directoryLock.isWriteLocked();
+    }
+
+    @Override
+    public void releaseDirectory() throws IOException {
+        if (!directoryLock.isWriteLockedByCurrentThread()) {
+            return;
+        }
+        try {
+            exclusiveLock.release();
+            exclusiveChannel.close();
+        } finally {
+            exclusiveLock = null;
+            exclusiveChannel = null;
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lock the certificates, whose fingerprints share the two character prefix of the given fingerprint.
+     * Blocks as long as the prefix or the whole directory is locked by another thread or process.
+     *
+     * @param fingerprint lowercase hex encoded fingerprint
+     * @throws IOException if a lock file cannot be locked
+     * @throws InterruptedException if the calling thread gets interrupted while waiting
+     */
+    public void lockPrefix(String fingerprint) throws IOException, InterruptedException {
+        int stripe = stripe(fingerprint);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            lockStripe(fingerprint, stripe);
+            success = true;
+        } finally {
+            metrics.recordLatency(StoreMetrics.Operation.LOCK_WAIT, System.nanoTime() - start, success);
+        }
+    }
+
+    private void lockStripe(String fingerprint, int stripe) throws IOException, InterruptedException {
+        directoryLock.readLock().lockInterruptibly();
+        try {
+            acquireShared();
+            try {
+                stripes[stripe].lockInterruptibly();
+                try {
+                    File lockFile = new File(lockDirectory, fingerprint.substring(0, 2));
+                    if (!lockDirectory.isDirectory() && !lockDirectory.mkdirs() && !lockDirectory.isDirectory()) {
+                        throw new IOException("Cannot create lock directory " + lockDirectory.getAbsolutePath());
+                    }
+                    FileChannel channel = openChannel(lockFile);
+                    try {
+                        stripeLocks[stripe] = channel.lock();
+                        stripeChannels[stripe] = channel;
+                    } catch (IOException | RuntimeException e) {
+                        channel.close();
+                        throw e;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    stripes[stripe].unlock();
+                    throw e;
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                releaseShared();
+                throw e;
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            directoryLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Release the lock on the prefix of the given fingerprint.
+     *
+     * @param fingerprint lowercase hex encoded fingerprint
+     * @throws IOException if a lock file cannot be unlocked
+     */
+    public void releasePrefix(String fingerprint) throws IOException {
+        int stripe = stripe(fingerprint);
+        if (!stripes[stripe].isHeldByCurrentThread()) {
+            return;
+        }
+        try {
+            try {
+                stripeLocks[stripe].release();
+                stripeChannels[stripe].close();
+            } finally {
+                stripeLocks[stripe] = null;
+                stripeChannels[stripe] = null;
+                stripes[stripe].unlock();
+            }
+        } finally {
+            try {
+                releaseShared();
+            } finally {
+                directoryLock.readLock().unlock();
+            }
+        }
+    }
+
+    private void acquireShared() throws IOException {
+        sharedGuard.lock();
+        try {
+            if (sharedHolders == 0) {
+                // Opened for reading and writing, since shared locks require a readable channel
+                FileChannel channel = FileChannel.open(writeLockFile.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    sharedLock = channel.lock(0, Long.MAX_VALUE, true);
+                    sharedChannel = channel;
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+            sharedHolders++;
+        } finally {
+            sharedGuard.unlock();
+        }
+    }
+
+    private void releaseShared() throws IOException {
+        sharedGuard.lock();
+        try {
+            if (--sharedHolders > 0) {
+                return;
+            }
+            try {
+                sharedLock.release();
+                sharedChannel.close();
+            } finally {
+                sharedLock = null;
+                sharedChannel = null;
+            }
+        } finally {
+            sharedGuard.unlock();
+        }
+    }
+
+    private static int stripe(String fingerprint) {
+        if (fingerprint == null || fingerprint.length() < 2 || !DirectoryLayout.isPrefix(fingerprint.substring(0, 2))) {
+            throw new IllegalArgumentException("Not a lowercase hex encoded fingerprint: " + fingerprint);
+        }
+        return Integer.parseInt(fingerprint.substring(0, 2), 16);
+    }
+
+    private static FileChannel openChannel(File lockFile) throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,29 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.cert_d.PGPCertificateDirectory;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} which guards writes with a {@link StripedDirectoryLock} instead of
+ * the lock of the underlying backend.
+ * A {@link PGPainlessCertD} using this backend only locks the prefix of the inserted certificate, so that
+ * certificates in different subdirectories can be inserted concurrently.
+ * The delegate MUST NOT rely on its own lock being held while writing.
+ */
+public class StripedLockingBackend extends ForwardingBackend {
+
+    private final StripedDirectoryLock lock;
+
+    public StripedLockingBackend(PGPCertificateDirectory.Backend delegate, StripedDirectoryLock lock) {
+        super(delegate);
+        this.lock = lock;
+    }
+
+    @Override
+    public StripedDirectoryLock getLock() {
+        return lock;
+    }
+}
@@ -0,0 +1,24 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+/**
+ * Strategy for determining the subkey-ids of a certificate, which are recorded in the subkey lookup.
+ */
+public enum SubkeyIdExtraction {
+
+    /**
+     * Compute the key-ids of all public key and public subkey packets of the certificate.
+     * No signatures are evaluated, so expired, revoked or unbound subkeys are included.
+     * This is about as cheap as reading the certificate.
+     */
+    ALL_KEYS,
+
+    /**
+     * Only include keys which are currently valid.
+     * This requires parsing the certificate and verifying its binding signatures.
+     */
+    VALID_KEYS
+}
@@ -0,0 +1,179 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds or verifies the subkey lookup of a {@link PGPainlessCertD} from the certificates in the store.
+ * Certificates are read on the calling thread and scanned by a pool of worker threads.
+ * Key-ids are determined by {@link CertificateFactory#scanKeyIds(byte[]) scanning the packets} of a certificate,
+ * which is much cheaper than evaluating its signatures. Only certificates which cannot be scanned are parsed.
+ */
+final class SubkeyIndexer {
+
+    // Number of certificates per worker that may be in flight at any time
+    private static final int QUEUE_DEPTH_PER_WORKER = 64;
+
+    private final PGPainlessCertD directory;
+    private final int parallelism;
+
+    private final AtomicLong certificates = new AtomicLong();
+    private final AtomicLong subkeyIds = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // Scanned key-ids per fingerprint, only populated when verifying
+    private final Map<String, long[]> scanned = new ConcurrentHashMap<>();
+    // Fingerprints of certificates which could not be scanned, only populated when verifying
+    private final Set<String> unscanned = ConcurrentHashMap.newKeySet();
+
+    SubkeyIndexer(PGPainlessCertD directory, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism MUST be at least 1.");
+        }
+        this.directory = directory;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Scan all given certificates and either store their key-ids in the subkey lookup, or compare them
+     * with the contents of the subkey lookup.
+     *
+     * @param items certificates
+     * @param verify if true, the subkey lookup is only verified and not written to
+     * @return summary
+     * @throws InterruptedException if the calling thread gets interrupted
+     */
+    ReindexResult run(Iterator<Certificate> items, boolean verify) throws InterruptedException {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(parallelism * QUEUE_DEPTH_PER_WORKER);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                BatchInserter.threadFactory("cert-d-reindex-"));
+        try {
+            while (items.hasNext()) {
+                Certificate certificate = items.next();
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        index(certificate, verify);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        List<ReindexResult.Entry> missing = new ArrayList<>();
+        List<ReindexResult.Entry> stale = new ArrayList<>();
+        if (verify) {
+            verify(missing, stale);
+        }
+        return new ReindexResult(verify, certificates.get(), subkeyIds.get(), failed.get(),
+                missing, stale, System.nanoTime() - start);
+    }
+
+    private void index(Certificate certificate, boolean verify) {
+        try {
+            long[] keyIds = keyIds(certificate);
+            if (verify) {
+                scanned.put(certificate.getFingerprint(), keyIds);
+            } else {
+                List<Long> boxed = new ArrayList<>(keyIds.length);
+                for (long keyId : keyIds) {
+                    boxed.add(keyId);
+                }
+                directory.storeCertificateSubkeyIds(certificate.getFingerprint(), boxed);
+            }
+            certificates.incrementAndGet();
+            subkeyIds.addAndGet(keyIds.length);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            if (verify) {
+                unscanned.add(certificate.getFingerprint());
+            }
+        }
+    }
+
+    private static long[] keyIds(Certificate certificate) throws IOException {
+        byte[] encoding;
+        try (InputStream in = certificate.getInputStream()) {
+            encoding = Streams.readAll(in);
+        }
+        try {
+            return CertificateFactory.scanKeyIds(encoding);
+        } catch (IOException e) {
+            // Unusual packet framing or key version, let the certificate parser deal with it
+            List<Long> ids = certificate.getSubkeyIds();
+            long[] keyIds = new long[ids.size()];
+            for (int i = 0; i < keyIds.length; i++) {
+                keyIds[i] = ids.get(i);
+            }
+            return keyIds;
+        }
+    }
+
+    /**
+     * Compare the scanned key-ids with the subkey lookup.
+     * Stale entries can only be detected for subkey-ids which occur in at least one certificate of the store.
+     * Entries of certificates which could not be scanned are not reported as stale, since their key-ids are
+     * unknown.
+     */
+    private void verify(List<ReindexResult.Entry> missing, List<ReindexResult.Entry> stale) {
+        Set<String> reportedStale = new HashSet<>();
+        for (Map.Entry<String, long[]> certificate : scanned.entrySet()) {
+            String fingerprint = certificate.getKey();
+            for (long keyId : certificate.getValue()) {
+                Set<String> indexed;
+                try {
+                    indexed = directory.getCertificateFingerprintsForSubkeyId(keyId);
+                } catch (IOException e) {
+                    indexed = Collections.emptySet();
+                }
+                if (!indexed.contains(fingerprint)) {
+                    missing.add(new ReindexResult.Entry(keyId, fingerprint));
+                }
+                for (String other : indexed) {
+                    if (unscanned.contains(other)) {
+                        continue;
+                    }
+                    if (!contains(scanned.get(other), keyId) && reportedStale.add(keyId + other)) {
+                        stale.add(new ReindexResult.Entry(keyId, other));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean contains(long[] keyIds, long keyId) {
+        if (keyIds == null) {
+            return false;
+        }
+        for (long id : keyIds) {
+            if (id == keyId) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,342 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.bcpg.sig.KeyFlags;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.bouncycastle.util.io.Streams;
+import org.pgpainless.PGPainless;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Result of evaluating the signatures of a certificate at a reference time.
+ * The summary lists the valid (sub-)keys along with their key flags, the primary user-id, the expiration time
+ * and the revocation state of the certificate.
+ * <p>
+ * A summary is not only valid at its reference time, but throughout a time window starting at the reference
+ * time. The window ends at the first point in time at which the evaluation could turn out differently,
+ * i.e. once a key, signature or the certificate expires, or a key or signature with a creation time in the
+ * future comes into effect. It is additionally capped, so that the certificate gets re-evaluated eventually.
+ * Within the window, the summary can be used instead of verifying the signatures of the certificate again,
+ * as long as the certificate did not change, which is what the {@link #getTag() tag} is for.
+ */
+public final class ValiditySummary {
+
+    private static final int MAGIC = 0x56534d31;
+    // Stored in place of an absent expiration time
+    private static final long NO_EXPIRATION = Long.MIN_VALUE;
+
+    private final String fingerprint;
+    private final Long tag;
+    private final Date referenceTime;
+    private final Date windowEnd;
+    private final boolean revoked;
+    private final Date expirationTime;
+    private final String primaryUserId;
+    private final List<Key> validKeys;
+
+    private ValiditySummary(String fingerprint, Long tag, Date referenceTime, Date windowEnd, boolean revoked,
+                            Date expirationTime, String primaryUserId, List<Key> validKeys) {
+        this.fingerprint = fingerprint;
+        this.tag = tag;
+        this.referenceTime = referenceTime;
+        this.windowEnd = windowEnd;
+        this.revoked = revoked;
+        this.expirationTime = expirationTime;
+        this.primaryUserId = primaryUserId;
+        this.validKeys = Collections.unmodifiableList(validKeys);
+    }
+
+    /**
+     * Parse the given certificate and evaluate its signatures at the given reference time.
+     *
+     * @param certificate certificate
+     * @param referenceTime reference time
+     * @param maximumWindowMillis maximum length of the time window in which the summary is valid
+     * @return summary
+     * @throws IOException if the certificate cannot be parsed
+     */
+    public static ValiditySummary evaluate(Certificate certificate, Date referenceTime, long maximumWindowMillis)
+            throws IOException {
+        OpenPGPCertificate parsed;
+        try (InputStream in = certificate.getInputStream()) {
+            parsed = PGPainless.getInstance().readKey().parseCertificate(Streams.readAll(in));
+        }
+        return evaluate(parsed, certificate.getFingerprint(), certificate.getTag(), referenceTime,
+                maximumWindowMillis);
+    }
+
+    /**
+     * Evaluate the signatures of the given certificate at the given reference time.
+     *
+     * @param certificate certificate
+     * @param fingerprint lowercase hex encoded fingerprint of the certificate
+     * @param tag tag of the certificate or null
+     * @param referenceTime reference time
+     * @param maximumWindowMillis maximum length of the time window in which the summary is valid
+     * @return summary
+     */
+    public static ValiditySummary evaluate(OpenPGPCertificate certificate,
+                                           String fingerprint,
+                                           Long tag,
+                                           Date referenceTime,
+                                           long maximumWindowMillis) {
+        if (maximumWindowMillis < 1) {
+            throw new IllegalArgumentException("Maximum window MUST be positive.");
+        }
+        long reference = referenceTime.getTime();
+        long windowEnd = reference + maximumWindowMillis < reference ?
+                Long.MAX_VALUE : reference + maximumWindowMillis;
+
+        List<Key> validKeys = new ArrayList<>();
+        for (OpenPGPCertificate.OpenPGPComponentKey key : certificate.getValidKeys(referenceTime)) {
+            KeyFlags flags = key.getKeyFlags(referenceTime);
+            validKeys.add(new Key(key.getKeyIdentifier().getKeyId(), flags == null ? 0 : flags.getFlags()));
+            windowEnd = earliestAfter(reference, windowEnd, key.getKeyExpirationDateAt(referenceTime));
+        }
+        Date expirationTime = certificate.getExpirationTime(referenceTime);
+        windowEnd = earliestAfter(reference, windowEnd, expirationTime);
+        OpenPGPCertificate.OpenPGPUserId primaryUserId = certificate.getPrimaryUserId(referenceTime);
+        boolean revoked = certificate.getRevocation(referenceTime) != null;
+
+        // Keys and signatures which are not yet in effect or expire later might change the outcome
+        Iterator<PGPPublicKey> keys = certificate.getPGPPublicKeyRing().getPublicKeys();
+        while (keys.hasNext()) {
+            PGPPublicKey key = keys.next();
+            windowEnd = earliestAfter(reference, windowEnd, key.getCreationTime());
+            Iterator<PGPSignature> signatures = key.getSignatures();
+            while (signatures.hasNext()) {
+                PGPSignature signature = signatures.next();
+                Date creationTime = signature.getCreationTime();
+                windowEnd = earliestAfter(reference, windowEnd, creationTime);
+                PGPSignatureSubpacketVector hashed = signature.getHashedSubPackets();
+                if (hashed != null && hashed.getSignatureExpirationTime() > 0) {
+                    windowEnd = earliestAfter(reference, windowEnd,
+                            new Date(creationTime.getTime() + 1000 * hashed.getSignatureExpirationTime()));
+                }
+            }
+        }
+
+        return new ValiditySummary(fingerprint, tag, new Date(reference), new Date(windowEnd), revoked,
+                expirationTime, primaryUserId == null ? null : primaryUserId.getUserId(), validKeys);
+    }
+
+    private static long earliestAfter(long reference, long windowEnd, Date time) {
+        if (time == null || time.getTime() <= reference) {
+            return windowEnd;
+        }
+        return Math.min(windowEnd, time.getTime());
+    }
+
+    /**
+     * Return the fingerprint of the certificate.
+     *
+     * @return fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Return the tag of the certificate at the time it was evaluated.
+     *
+     * @return tag or null
+     */
+    public Long getTag() {
+        return tag;
+    }
+
+    /**
+     * Return the time at which the certificate was evaluated.
+     *
+     * @return reference time
+     */
+    public Date getReferenceTime() {
+        return new Date(referenceTime.getTime());
+    }
+
+    /**
+     * Return the end of the time window in which this summary is valid (exclusive).
+     *
+     * @return end of the window
+     */
+    public Date getWindowEnd() {
+        return new Date(windowEnd.getTime());
+    }
+
+    /**
+     * Return true, if this summary is valid at the given time, i.e. the time lies within its window.
+     *
+     * @param time time
+     * @return true if valid at the given time
+     */
+    public boolean isApplicableAt(Date time) {
+        return !time.before(referenceTime) && time.before(windowEnd);
+    }
+
+    /**
+     * Return true, if the certificate is revoked.
+     *
+     * @return true if revoked
+     */
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    /**
+     * Return the expiration time of the certificate.
+     *
+     * @return expiration time or null if the certificate does not expire
+     */
+    public Date getExpirationTime() {
+        return expirationTime == null ? null : new Date(expirationTime.getTime());
+    }
+
+    /**
+     * Return the primary user-id of the certificate.
+     *
+     * @return primary user-id or null if there is no valid user-id
+     */
+    public String getPrimaryUserId() {
+        return primaryUserId;
+    }
+
+    /**
+     * Return the valid (sub-)keys of the certificate.
+     *
+     * @return valid keys
+     */
+    public List<Key> getValidKeys() {
+        return validKeys;
+    }
+
+    /**
+     * Return the key-ids of the valid (sub-)keys of the certificate.
+     *
+     * @return valid subkey-ids
+     */
+    public List<Long> getValidSubkeyIds() {
+        List<Long> subkeyIds = new ArrayList<>(validKeys.size());
+        for (Key key : validKeys) {
+            subkeyIds.add(key.getKeyId());
+        }
+        return subkeyIds;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(fingerprint);
+        out.writeBoolean(tag != null);
+        out.writeLong(tag == null ? 0 : tag);
+        out.writeLong(referenceTime.getTime());
+        out.writeLong(windowEnd.getTime());
+        out.writeBoolean(revoked);
+        out.writeLong(expirationTime == null ? NO_EXPIRATION : expirationTime.getTime());
+        // User-ids are not length restricted, so they might not fit into writeUTF()
+        byte[] userId = primaryUserId == null ? null : primaryUserId.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(userId == null ? -1 : userId.length);
+        if (userId != null) {
+            out.write(userId);
+        }
+        out.writeInt(validKeys.size());
+        for (Key key : validKeys) {
+            out.writeLong(key.keyId);
+            out.writeInt(key.flags);
+        }
+    }
+
+    /**
+     * Read a summary, which was written by {@link #write(DataOutputStream)}.
+     * Lengths read from the input are checked against the size of the encoding, so that corrupt input cannot
+     * trigger huge allocations.
+     */
+    static ValiditySummary read(DataInputStream in, long size) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a validity summary.");
+        }
+        String fingerprint = in.readUTF();
+        boolean hasTag = in.readBoolean();
+        long tag = in.readLong();
+        Date referenceTime = new Date(in.readLong());
+        Date windowEnd = new Date(in.readLong());
+        boolean revoked = in.readBoolean();
+        long expiration = in.readLong();
+        int userIdLength = in.readInt();
+        String primaryUserId = null;
+        if (userIdLength > size) {
+            throw new IOException("Corrupt validity summary.");
+        }
+        if (userIdLength >= 0) {
+            byte[] userId = new byte[userIdLength];
+            in.readFully(userId);
+            primaryUserId = new String(userId, StandardCharsets.UTF_8);
+        }
+        int keyCount = in.readInt();
+        if (keyCount < 0 || keyCount > size / (8 + 4)) {
+            throw new IOException("Corrupt validity summary.");
+        }
+        List<Key> validKeys = new ArrayList<>();
+        for (int i = 0; i < keyCount; i++) {
+            validKeys.add(new Key(in.readLong(), in.readInt()));
+        }
+        return new ValiditySummary(fingerprint, hasTag ? tag : null, referenceTime, windowEnd, revoked,
+                expiration == NO_EXPIRATION ? null : new Date(expiration), primaryUserId, validKeys);
+    }
+
+    /**
+     * Valid (sub-)key of a certificate.
+     */
+    public static final class Key {
+        private final long keyId;
+        private final int flags;
+
+        private Key(long keyId, int flags) {
+            this.keyId = keyId;
+            this.flags = flags;
+        }
+
+        /**
+         * Return the key-id of the key.
+         *
+         * @return key-id
+         */
+        public long getKeyId() {
+            return keyId;
+        }
+
+        /**
+         * Return the key flags of the key, as defined by {@link KeyFlags}.
+         *
+         * @return key flags or 0 if the key carries none
+         */
+        public int getFlags() {
+            return flags;
+        }
+
+        /**
+         * Return true, if the key carries all the given key flags.
+         *
+         * @param flags key flags, as defined by {@link KeyFlags}
+         * @return true if all flags are set
+         */
+        public boolean hasFlags(int flags) {
+            return (this.flags & flags) == flags;
+        }
+    }
+}
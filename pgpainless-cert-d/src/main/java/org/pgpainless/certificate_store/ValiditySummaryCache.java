@@ -0,0 +1,272 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Sidecar cache of {@link ValiditySummary ValiditySummaries}, which spares evaluating the signatures of
+ * unchanged certificates over and over again.
+ * Summaries are persisted to one file per certificate inside the cache directory, so they survive restarts.
+ * The most recently used summaries are additionally kept in a bounded in-memory cache. Summaries are keyed by fingerprint and tag. Once a certificate changes, its tag changes,
+ * so the outdated summary is no longer returned and gets replaced on the next lookup.
+ * A summary is only returned for reference times within its {@link ValiditySummary#isApplicableAt(Date) window}.
+ * <p>
+ * Certificates without tag cannot be revalidated and are therefore evaluated on every lookup.
+ */
+public class ValiditySummaryCache {
+
+    /**
+     * Name of the directory inside the base directory of a certificate store, which holds the summaries.
+     * Names starting with an underscore are not used by the store itself.
+     */
+    public static final String DIRECTORY_NAME = "_pgpainless_validity";
+    public static final long DEFAULT_MAXIMUM_WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static final Pattern FINGERPRINT = Pattern.compile("^[0-9a-f]{40,64}$");
+
+    private final File directory;
+    private final long maximumWindowMillis;
+    private final int maximumSize;
+    // Guarded by itself
+    private final LinkedHashMap<String, ValiditySummary> summaries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Open or create a cache, whose summaries are valid for at most
+     * {@value #DEFAULT_MAXIMUM_WINDOW_MILLIS} ms.
+     *
+     * @param directory directory holding the summary files
+     * @throws IOException if the directory cannot be created
+     */
+    public ValiditySummaryCache(File directory) throws IOException {
+        this(directory, DEFAULT_MAXIMUM_WINDOW_MILLIS);
+    }
+
+    /**
+     * Open or create a cache, which keeps at most {@value #DEFAULT_MAXIMUM_SIZE} summaries in memory.
+     *
+     * @param directory directory holding the summary files
+     * @param maximumWindowMillis maximum time after evaluation, after which a certificate is evaluated again
+     * @throws IOException if the directory cannot be created
+     */
+    public ValiditySummaryCache(File directory, long maximumWindowMillis) throws IOException {
+        this(directory, maximumWindowMillis, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Open or create a cache.
+     * Least recently used summaries are evicted from memory once more than {@code maximumSize} summaries are
+     * held. Evicted summaries are read from their files again on the next lookup.
+     *
+     * @param directory directory holding the summary files
+     * @param maximumWindowMillis maximum time after evaluation, after which a certificate is evaluated again
+     * @param maximumSize maximum number of summaries kept in memory
+     * @throws IOException if the directory cannot be created
+     */
+    public ValiditySummaryCache(File directory, long maximumWindowMillis, int maximumSize) throws IOException {
+        if (maximumWindowMillis < 1) {
+            throw new IllegalArgumentException("Maximum window MUST be positive.");
+        }
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size MUST NOT be negative.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create validity summary directory " + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+        this.maximumWindowMillis = maximumWindowMillis;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Return the validity summary of the given certificate at the given reference time.
+     * If a summary with the tag of the certificate exists and is valid at the reference time, it is returned
+     * without parsing the certificate. Otherwise, the certificate is evaluated and the summary is stored.
+     *
+     * @param certificate certificate
+     * @param referenceTime reference time
+     * @return summary
+     * @throws IOException if the certificate cannot be parsed
+     */
+    public ValiditySummary get(Certificate certificate, Date referenceTime) throws IOException {
+        String fingerprint = certificate.getFingerprint();
+        Long tag = certificate.getTag();
+        ValiditySummary cached = tag == null ? null : lookup(fingerprint);
+        if (cached != null && tag.equals(cached.getTag()) && cached.isApplicableAt(referenceTime)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        ValiditySummary summary = ValiditySummary.evaluate(certificate, referenceTime, maximumWindowMillis);
+        if (tag != null && (cached == null || !tag.equals(cached.getTag())
+                || !referenceTime.before(cached.getReferenceTime()))) {
+            // Evaluations of past reference times do not replace the current summary
+            remember(fingerprint, summary);
+            try {
+                persist(summary);
+            } catch (IOException e) {
+                // The summary is still kept in memory until it is evicted, the sidecar is only an optimization
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Remove the summary of the certificate with the given fingerprint.
+     *
+     * @param fingerprint fingerprint
+     * @throws IOException if the summary file cannot be deleted
+     */
+    public void invalidate(String fingerprint) throws IOException {
+        synchronized (summaries) {
+            summaries.remove(fingerprint);
+        }
+        File file = file(fingerprint);
+        if (file != null) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * Return the maximum length of the time window in which a summary is valid.
+     *
+     * @return maximum window in milliseconds
+     */
+    public long getMaximumWindowMillis() {
+        return maximumWindowMillis;
+    }
+
+    /**
+     * Return the maximum number of summaries kept in memory.
+     *
+     * @return maximum size
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Return the number of summaries currently kept in memory.
+     *
+     * @return size
+     */
+    public int size() {
+        synchronized (summaries) {
+            return summaries.size();
+        }
+    }
+
+    /**
+     * Return the number of lookups which were served from the cache.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of lookups which required evaluating the certificate.
+     * This includes lookups of outdated summaries and of reference times outside the window of the summary.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private ValiditySummary lookup(String fingerprint) {
+        ValiditySummary summary;
+        synchronized (summaries) {
+            summary = summaries.get(fingerprint);
+        }
+        if (summary != null) {
+            return summary;
+        }
+        File file = file(fingerprint);
+        if (file == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            summary = ValiditySummary.read(in, Files.size(file.toPath()));
+        } catch (IOException e) {
+            // Missing or unreadable, the summary gets replaced after evaluating the certificate
+            return null;
+        }
+        if (!fingerprint.equals(summary.getFingerprint())) {
+            return null;
+        }
+        synchronized (summaries) {
+            ValiditySummary concurrent = summaries.get(fingerprint);
+            if (concurrent != null) {
+                return concurrent;
+            }
+            remember(fingerprint, summary);
+        }
+        return summary;
+    }
+
+    private void remember(String fingerprint, ValiditySummary summary) {
+        synchronized (summaries) {
+            summaries.put(fingerprint, summary);
+            Iterator<Map.Entry<String, ValiditySummary>> iterator = summaries.entrySet().iterator();
+            while (summaries.size() > maximumSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void persist(ValiditySummary summary) throws IOException {
+        File file = file(summary.getFingerprint());
+        if (file == null) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create validity summary directory " + parent.getAbsolutePath());
+        }
+        // Write to a temporary file first, so that concurrent readers never see a partially written summary
+        Path temp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                summary.write(out);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private File file(String fingerprint) {
+        if (!FINGERPRINT.matcher(fingerprint).matches()) {
+            // Special names are not stored on disk
+            return null;
+        }
+        // Same layout as the certificate store, to keep the number of files per directory low
+        return new File(new File(directory, fingerprint.substring(0, 2)), fingerprint.substring(2));
+    }
+}
@@ -6,31 +6,52 @@ package org.pgpainless.cert_d;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.bouncycastle.openpgp.api.OpenPGPCertificate;
 import org.bouncycastle.openpgp.api.OpenPGPKey;
 import org.bouncycastle.util.io.Streams;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.pgpainless.PGPainless;
 import org.pgpainless.algorithm.KeyFlag;
 import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.certificate_store.BatchInsertListener;
+import org.pgpainless.certificate_store.BatchInsertResult;
+import org.pgpainless.certificate_store.BatchLookupResult;
+import org.pgpainless.certificate_store.ConditionalGetResult;
+import org.pgpainless.certificate_store.Durability;
+import org.pgpainless.certificate_store.ExportResult;
+import org.pgpainless.certificate_store.MergeCallbacks;
 import org.pgpainless.certificate_store.PGPainlessCertD;
+import org.pgpainless.certificate_store.StoreMetrics;
 import org.pgpainless.key.OpenPgpFingerprint;
 import org.pgpainless.key.generation.KeySpec;
 import org.pgpainless.key.generation.type.KeyType;
@@ -54,7 +75,10 @@ public class SharedPGPCertificateDirectoryTest {
 
     private static Stream<PGPainlessCertD> provideTestSubjects() throws IOException, NotAStoreException {
         return Stream.of(
-                PGPainlessCertD.fileBased(tempDir(), new InMemorySubkeyLookupFactory()));
+                PGPainlessCertD.fileBased(tempDir(), new InMemorySubkeyLookupFactory()),
+                PGPainlessCertD.fileBasedWithStripedLocking(tempDir(), new InMemorySubkeyLookupFactory(),
+                        null, StoreMetrics.NOOP),
+                PGPainlessCertD.packed(tempDir(), new InMemorySubkeyLookupFactory()));
     }
 
     private static File tempDir() throws IOException {
@@ -161,4 +185,259 @@ public class SharedPGPCertificateDirectoryTest {
 
         assertEquals(certificateCount, fingerprintSet.size());
     }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testInsertAll(PGPainlessCertD directory)
+            throws IOException, InterruptedException, BadDataException, BadNameException {
+        final int certificateCount = 5;
+        Set<String> fingerprints = new HashSet<>();
+        List<InputStream> items = new ArrayList<>();
+        for (int i = 0; i < certificateCount; i++) {
+            OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate();
+            fingerprints.add(OpenPgpFingerprint.of(cert).toString().toLowerCase());
+            // Insert each certificate twice to exercise merging
+            items.add(new ByteArrayInputStream(cert.getEncoded()));
+            items.add(new ByteArrayInputStream(cert.getEncoded()));
+        }
+        items.add(new ByteArrayInputStream("ThisIsNotOpenPGPDataAtAllLol".getBytes(StandardCharsets.UTF_8)));
+
+        BatchInsertResult result = directory.insertAll(items.iterator(), MergeCallbacks.mergeWithExisting(), 3);
+
+        assertEquals(2 * certificateCount, result.getInserted());
+        assertEquals(1, result.getFailed());
+        for (String fingerprint : fingerprints) {
+            assertEquals(fingerprint, directory.getByFingerprint(fingerprint).getFingerprint());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testInsertAllSurvivesFailingListener(PGPainlessCertD directory) throws InterruptedException {
+        List<InputStream> items = new ArrayList<>();
+        // More failing items than may be in flight at once
+        for (int i = 0; i < 200; i++) {
+            items.add(new ByteArrayInputStream("ThisIsNotOpenPGPDataAtAllLol".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        BatchInsertResult result = directory.insertAll(items.iterator(), MergeCallbacks.mergeWithExisting(), 1,
+                new BatchInsertListener() {
+                    @Override
+                    public void onFailure(long index, Exception error) {
+                        throw new IllegalStateException("Listener failed.");
+                    }
+                });
+
+        assertEquals(0, result.getInserted());
+        assertEquals(200, result.getFailed());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testGroupCommit(PGPainlessCertD directory) throws Exception {
+        directory.enableGroupCommit(Durability.PER_BATCH, 4);
+        List<OpenPGPCertificate> certs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            certs.add(PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<Certificate>> inserts = new ArrayList<>();
+        // Insert each certificate several times concurrently to exercise coalescing
+        for (int i = 0; i < 4; i++) {
+            for (OpenPGPCertificate cert : certs) {
+                inserts.add(executor.submit(() -> directory.insert(
+                        new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting())));
+            }
+        }
+        for (Future<Certificate> insert : inserts) {
+            assertNotNull(insert.get());
+        }
+        executor.shutdown();
+
+        assertThrows(BadDataException.class, () -> directory.insert(
+                new ByteArrayInputStream("ThisIsNotOpenPGPDataAtAllLol".getBytes(StandardCharsets.UTF_8)),
+                dummyMerge));
+        assertThrows(IllegalStateException.class, () -> directory.enableGroupCommit(Durability.NONE));
+
+        for (OpenPGPCertificate cert : certs) {
+            String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+            assertEquals(fingerprint, directory.getByFingerprint(fingerprint).getFingerprint());
+            assertTrue(directory.getCertificateFingerprintsForSubkeyId(cert.getKeyIdentifier().getKeyId())
+                    .contains(fingerprint));
+        }
+
+        directory.close();
+        assertThrows(IOException.class, () -> directory.insert(
+                new ByteArrayInputStream(certs.get(0).getEncoded()), dummyMerge));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testGetByFingerprints(PGPainlessCertD directory)
+            throws IOException, InterruptedException, BadDataException {
+        List<String> requested = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate();
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), dummyMerge);
+            requested.add(OpenPgpFingerprint.of(cert).toString().toLowerCase());
+        }
+        String absent = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+        String malformed = "thisisnotafingerprint";
+        requested.add(1, absent);
+        requested.add(malformed);
+
+        BatchLookupResult result = directory.getByFingerprints(requested, 3);
+
+        assertFalse(result.isComplete());
+        assertEquals(Collections.singletonList(absent), result.getMissing());
+        assertEquals(Collections.singleton(malformed), result.getFailed().keySet());
+        List<String> found = new ArrayList<>(requested);
+        found.removeAll(Arrays.asList(absent, malformed));
+        assertEquals(found, new ArrayList<>(result.getCertificates().keySet()));
+        for (String fingerprint : found) {
+            assertEquals(fingerprint, result.get(fingerprint).getFingerprint());
+        }
+
+        // Differently cased duplicates are only looked up once
+        List<String> duplicated = new ArrayList<>(found);
+        duplicated.add(found.get(0).toUpperCase());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BatchLookupResult deduplicated = directory.getByFingerprints(duplicated, 2, executor);
+            assertTrue(deduplicated.isComplete());
+            assertEquals(found, new ArrayList<>(deduplicated.getCertificates().keySet()));
+            assertEquals(found.get(0), deduplicated.get(found.get(0).toUpperCase()).getFingerprint());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testGetIfChanged(PGPainlessCertD directory)
+            throws IOException, InterruptedException, BadDataException, BadNameException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+        assertEquals(ConditionalGetResult.Status.MISSING, directory.getIfChanged(fingerprint, null).getStatus());
+
+        directory.insert(new ByteArrayInputStream(cert.getEncoded()), dummyMerge);
+        ConditionalGetResult fetched = directory.getIfChanged(fingerprint, null);
+        assertTrue(fetched.isChanged());
+        assertEquals(fingerprint, fetched.getCertificate().getFingerprint());
+        Long tag = fetched.getTag();
+        assertNotNull(tag);
+        assertEquals(tag, directory.getTag(fingerprint));
+
+        ConditionalGetResult revalidated = directory.getIfChanged(fingerprint, tag);
+        assertEquals(ConditionalGetResult.Status.UNCHANGED, revalidated.getStatus());
+        assertNull(revalidated.getCertificate());
+        assertEquals(tag, revalidated.getTag());
+
+        assertTrue(directory.getIfChanged(fingerprint, tag + 1).isChanged());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testExport(PGPainlessCertD directory)
+            throws IOException, InterruptedException, BadDataException {
+        Map<String, byte[]> encodings = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate();
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), dummyMerge);
+            encodings.put(OpenPgpFingerprint.of(cert).toString().toLowerCase(), cert.getEncoded());
+        }
+        long totalLength = 0;
+        for (byte[] encoding : encodings.values()) {
+            totalLength += encoding.length;
+        }
+
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        assertEquals(5, directory.export(serial, true, 1).getExported());
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        ExportResult result = directory.export(parallel, true, 3);
+        assertEquals(5, result.getExported());
+        assertEquals(totalLength, result.getBytes());
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+
+        ByteArrayOutputStream unordered = new ByteArrayOutputStream();
+        assertEquals(5, directory.export(unordered, false, 3).getExported());
+        assertEquals(totalLength, unordered.size());
+
+        List<String> fingerprints = new ArrayList<>(encodings.keySet());
+        String absent = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+        ByteArrayOutputStream filtered = new ByteArrayOutputStream();
+        ExportResult filteredResult = directory.export(
+                Arrays.asList(fingerprints.get(1), absent, fingerprints.get(0)), filtered, true, 2);
+        assertEquals(2, filteredResult.getExported());
+        assertEquals(Collections.singletonList(absent), filteredResult.getMissing());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(encodings.get(fingerprints.get(1)));
+        expected.write(encodings.get(fingerprints.get(0)));
+        assertArrayEquals(expected.toByteArray(), filtered.toByteArray());
+    }
+
+    @Test
+    public void testValidatedFingerprintsSkipMismatchingFiles()
+            throws IOException, InterruptedException, BadDataException, NotAStoreException {
+        File baseDirectory = tempDir();
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new InMemorySubkeyLookupFactory());
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+        directory.insert(new ByteArrayInputStream(cert.getEncoded()), dummyMerge);
+
+        // Certificate stored under the wrong name, and garbage
+        String misplaced = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+        File misplacedDirectory = new File(baseDirectory, "eb");
+        misplacedDirectory.mkdirs();
+        Files.write(new File(misplacedDirectory, misplaced.substring(2)).toPath(), cert.getEncoded());
+        String garbage = "0b85bb5fa33a75e15e944e63f231550c4f47e38e";
+        File garbageDirectory = new File(baseDirectory, "0b");
+        garbageDirectory.mkdirs();
+        Files.write(new File(garbageDirectory, garbage.substring(2)).toPath(),
+                "ThisIsNotOpenPGPDataAtAllLol".getBytes(StandardCharsets.UTF_8));
+
+        Set<String> listed = new HashSet<>();
+        directory.fingerprints().forEachRemaining(listed::add);
+        assertEquals(new HashSet<>(Arrays.asList(fingerprint, misplaced, garbage)), listed);
+
+        Set<String> validated = new HashSet<>();
+        directory.fingerprints(true).forEachRemaining(validated::add);
+        assertEquals(Collections.singleton(fingerprint), validated);
+    }
+
+    @Test
+    public void testReinsertUnchangedCertificateDoesNotRewriteFile()
+            throws IOException, InterruptedException, BadDataException, BadNameException, NotAStoreException {
+        File baseDirectory = tempDir();
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new InMemorySubkeyLookupFactory());
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+
+        directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+        File certFile = new File(new File(baseDirectory, fingerprint.substring(0, 2)), fingerprint.substring(2));
+        assertTrue(certFile.setLastModified(1000L));
+        Long tag = directory.getByFingerprint(fingerprint).getTag();
+
+        Certificate reinserted = directory.insert(
+                new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+
+        assertEquals(fingerprint, reinserted.getFingerprint());
+        assertEquals(1000L, certFile.lastModified());
+        assertEquals(tag, directory.getByFingerprint(fingerprint).getTag());
+    }
 }
@@ -0,0 +1,153 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AsyncInserterTest {
+
+    @Test
+    public void insertConcurrently()
+            throws IOException, InterruptedException, ExecutionException, BadDataException, BadNameException {
+        List<OpenPGPCertificate> certs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            certs.add(PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate());
+        }
+
+        PGPainlessCertD directory = PGPainlessCertD.inMemory();
+        List<CompletableFuture<Certificate>> inserts = new ArrayList<>();
+        try (AsyncInserter inserter = directory.asyncInserter(3, 2)) {
+            // Every certificate is inserted multiple times
+            for (int i = 0; i < 4; i++) {
+                for (OpenPGPCertificate cert : certs) {
+                    inserts.add(inserter.submit(new ByteArrayInputStream(cert.getEncoded()),
+                            MergeCallbacks.mergeWithExisting()));
+                }
+            }
+        }
+
+        for (CompletableFuture<Certificate> insert : inserts) {
+            assertNotNull(insert.get());
+        }
+        for (OpenPGPCertificate cert : certs) {
+            String fingerprint = OpenPgpFingerprint.of(cert).toString().toLowerCase();
+            assertEquals(fingerprint, directory.getByFingerprint(fingerprint).getFingerprint());
+        }
+    }
+
+    @Test
+    public void submittersFeelBackpressure() throws IOException, InterruptedException, ExecutionException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        byte[] encoded = cert.getEncoded();
+        CountDownLatch mergesMayProceed = new CountDownLatch(1);
+
+        AsyncInserter inserter = PGPainlessCertD.inMemory().asyncInserter(2, 1);
+        List<CompletableFuture<Certificate>> inserts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            inserts.add(inserter.submit(new ByteArrayInputStream(encoded), (data, existing) -> {
+                try {
+                    mergesMayProceed.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return MergeCallbacks.mergeWithExisting().merge(data, existing);
+            }));
+        }
+
+        // The queue is full
+        assertEquals(2, inserter.getPendingCount());
+        assertNull(inserter.trySubmit(new ByteArrayInputStream(encoded), MergeCallbacks.mergeWithExisting()));
+        assertNull(inserter.trySubmit(new ByteArrayInputStream(encoded), MergeCallbacks.mergeWithExisting(),
+                50, TimeUnit.MILLISECONDS));
+
+        mergesMayProceed.countDown();
+        for (CompletableFuture<Certificate> insert : inserts) {
+            assertNotNull(insert.get());
+        }
+        CompletableFuture<Certificate> accepted = inserter.trySubmit(new ByteArrayInputStream(encoded),
+                MergeCallbacks.mergeWithExisting(), 10, TimeUnit.SECONDS);
+        assertNotNull(accepted);
+        assertNotNull(accepted.get());
+
+        inserter.close();
+        assertEquals(0, inserter.getPendingCount());
+        assertThrows(IOException.class, () -> inserter.submit(new ByteArrayInputStream(encoded),
+                MergeCallbacks.mergeWithExisting()));
+    }
+
+    @Test
+    public void failuresOnlyFailTheirOwnInsert() throws IOException, InterruptedException, ExecutionException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+
+        try (AsyncInserter inserter = PGPainlessCertD.inMemory().asyncInserter(10, 2)) {
+            CompletableFuture<Certificate> badData = inserter.submit(
+                    new ByteArrayInputStream("Not OpenPGP".getBytes(StandardCharsets.UTF_8)),
+                    MergeCallbacks.mergeWithExisting());
+            CompletableFuture<Certificate> badMerge = inserter.submit(
+                    new ByteArrayInputStream(cert.getEncoded()), (data, existing) -> {
+                        throw new IOException("Merge failed.");
+                    });
+            CompletableFuture<Certificate> good = inserter.submit(
+                    new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+
+            ExecutionException e = assertThrows(ExecutionException.class, badData::get);
+            assertInstanceOf(BadDataException.class, e.getCause());
+            e = assertThrows(ExecutionException.class, badMerge::get);
+            assertEquals("Merge failed.", e.getCause().getMessage());
+            assertNotNull(good.get());
+        }
+    }
+
+    @Test
+    public void errorsOnlyFailTheirOwnInsert() throws IOException, InterruptedException, ExecutionException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+
+        try (AsyncInserter inserter = PGPainlessCertD.inMemory().asyncInserter(1, 1)) {
+            CompletableFuture<Certificate> error = inserter.submit(
+                    new ByteArrayInputStream(cert.getEncoded()), (data, existing) -> {
+                        throw new AssertionError("Merge failed.");
+                    });
+            ExecutionException e = assertThrows(ExecutionException.class, error::get);
+            assertInstanceOf(AssertionError.class, e.getCause());
+
+            // The permit was released and the worker is still alive
+            CompletableFuture<Certificate> good = inserter.trySubmit(new ByteArrayInputStream(cert.getEncoded()),
+                    MergeCallbacks.mergeWithExisting(), 10, TimeUnit.SECONDS);
+            assertNotNull(good);
+            assertNotNull(good.get());
+        }
+    }
+}
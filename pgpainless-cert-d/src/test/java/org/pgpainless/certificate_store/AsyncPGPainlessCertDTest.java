@@ -0,0 +1,103 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class AsyncPGPainlessCertDTest {
+
+    @Test
+    public void getInsertAndFind() throws IOException, ExecutionException, InterruptedException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice")
+                .toCertificate();
+        OpenPgpFingerprint fingerprint = OpenPgpFingerprint.of(cert);
+        String hex = fingerprint.toString().toLowerCase();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AsyncPGPainlessCertD async = new AsyncPGPainlessCertD(PGPainlessCertD.inMemory(), executor);
+        Certificate inserted = async.insert(new ByteArrayInputStream(cert.getEncoded()),
+                MergeCallbacks.mergeWithExisting()).get();
+        assertEquals(hex, inserted.getFingerprint());
+        assertEquals(hex, async.get(hex).get().getFingerprint());
+        assertTrue(async.find(fingerprint.getKeyId()).get().contains(hex));
+
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> async.get("eb85bb5fa33a75e15e944e63f231550c4f47e38e").get());
+        assertInstanceOf(NoSuchElementException.class, missing.getCause());
+        ExecutionException badData = assertThrows(ExecutionException.class, () -> async.insert(
+                new ByteArrayInputStream("Not OpenPGP".getBytes(StandardCharsets.UTF_8)),
+                MergeCallbacks.mergeWithExisting()).get());
+        assertInstanceOf(BadDataException.class, badData.getCause());
+
+        // The executor was passed in, so it is not shut down by the facade
+        async.close();
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void concurrentInsertsOnVirtualThreads()
+            throws IOException, ExecutionException, InterruptedException, NotAStoreException {
+        assumeTrue(AsyncPGPainlessCertD.supportsVirtualThreads(), "Virtual threads require Java 21");
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-async-").toFile();
+        baseDirectory.deleteOnExit();
+
+        List<OpenPGPCertificate> certs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            certs.add(PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                    .modernKeyRing("Alice")
+                    .toCertificate());
+        }
+
+        try (PGPainlessCertD directory = PGPainlessCertD.fileBasedWithSubkeyIndex(
+                baseDirectory, null, StoreMetrics.NOOP);
+             AsyncPGPainlessCertD async = AsyncPGPainlessCertD.withVirtualThreads(directory)) {
+            List<CompletableFuture<Certificate>> inserts = new ArrayList<>();
+            // Every certificate is inserted twice concurrently
+            for (int i = 0; i < 2; i++) {
+                for (OpenPGPCertificate cert : certs) {
+                    inserts.add(async.insert(new ByteArrayInputStream(cert.getEncoded()),
+                            MergeCallbacks.mergeWithExisting()));
+                }
+            }
+            CompletableFuture.allOf(inserts.toArray(new CompletableFuture[0])).get();
+
+            for (OpenPGPCertificate cert : certs) {
+                OpenPgpFingerprint fingerprint = OpenPgpFingerprint.of(cert);
+                String hex = fingerprint.toString().toLowerCase();
+                assertEquals(hex, async.get(hex).get().getFingerprint());
+                assertTrue(async.find(fingerprint.getKeyId()).get().contains(hex));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.junit.jupiter.api.Test;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CertificateCacheTest {
+
+    private static final String FINGERPRINT_A = "b21aabbf15df0fda37424de9ad008384ad0a064c";
+    private static final String FINGERPRINT_B = "8e0fc503d081002a2bc860a11cfc3439106d1dd1";
+    private static final String FINGERPRINT_C = "650928669aab8befeb3fb341a003596ab6c0b97d";
+
+    private static Certificate certificate(String fingerprint, int length, Long tag) {
+        return new Certificate(new byte[length], fingerprint, Collections.emptyList(), tag);
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        CertificateCache cache = new CertificateCache(1024);
+        Certificate certificate = certificate(FINGERPRINT_A, 100, 1L);
+
+        assertNull(cache.get(FINGERPRINT_A, 1L));
+        cache.put(certificate);
+        assertSame(certificate, cache.get(FINGERPRINT_A, 1L));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getWeight());
+    }
+
+    @Test
+    public void testChangedTagInvalidatesEntry() {
+        CertificateCache cache = new CertificateCache(1024);
+        cache.put(certificate(FINGERPRINT_A, 100, 1L));
+
+        assertNull(cache.get(FINGERPRINT_A, 2L));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertNull(cache.get(FINGERPRINT_A, 1L));
+    }
+
+    @Test
+    public void testCertificateWithoutTagIsNotCached() {
+        CertificateCache cache = new CertificateCache(1024);
+        cache.put(certificate(FINGERPRINT_A, 100, null));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        CertificateCache cache = new CertificateCache(250);
+        cache.put(certificate(FINGERPRINT_A, 100, 1L));
+        cache.put(certificate(FINGERPRINT_B, 100, 1L));
+
+        // Access A, so that B becomes the least recently used entry
+        cache.get(FINGERPRINT_A, 1L);
+        cache.put(certificate(FINGERPRINT_C, 100, 1L));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(FINGERPRINT_B, 1L));
+        assertEquals(FINGERPRINT_A, cache.get(FINGERPRINT_A, 1L).getFingerprint());
+        assertEquals(FINGERPRINT_C, cache.get(FINGERPRINT_C, 1L).getFingerprint());
+    }
+
+    @Test
+    public void testOversizedCertificateIsNotCached() {
+        CertificateCache cache = new CertificateCache(50);
+        cache.put(certificate(FINGERPRINT_A, 100, 1L));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testInvalidate() {
+        CertificateCache cache = new CertificateCache(1024);
+        cache.put(certificate(FINGERPRINT_A, 100, 1L));
+        cache.put(certificate(FINGERPRINT_B, 100, 1L));
+
+        cache.invalidate(FINGERPRINT_A);
+        assertNull(cache.get(FINGERPRINT_A, 1L));
+        assertEquals(100, cache.getWeight());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+}
@@ -0,0 +1,65 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookupFactory;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CertificateWatcherTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void watcherReportsInsertedAndDeletedCertificates(boolean scanning)
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-watch-").toFile();
+        baseDirectory.deleteOnExit();
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new InMemorySubkeyLookupFactory());
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate();
+        String fingerprint = OpenPgpFingerprint.of(cert).getFingerprint().toLowerCase();
+
+        BlockingQueue<Set<String>> batches = new LinkedBlockingQueue<>();
+        CertificateChangeListener listener = batches::add;
+        try (CertificateWatcher watcher = scanning ?
+                directory.watchByScanning(listener, 50) :
+                directory.watch(listener, 50, 50)) {
+            if (scanning) {
+                assertEquals(CertificateWatcher.Mode.SCAN, watcher.getMode());
+            }
+
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+            assertEquals(Collections.singleton(fingerprint), batches.poll(10, TimeUnit.SECONDS));
+
+            // Writing the file might have been observed in several steps
+            Thread.sleep(500);
+            batches.clear();
+
+            File certFile = new File(new File(baseDirectory, fingerprint.substring(0, 2)), fingerprint.substring(2));
+            assertTrue(certFile.delete());
+            assertEquals(Collections.singleton(fingerprint), batches.poll(10, TimeUnit.SECONDS));
+        }
+    }
+}
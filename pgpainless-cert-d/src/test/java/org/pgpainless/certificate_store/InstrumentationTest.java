@@ -0,0 +1,124 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstrumentationTest {
+
+    @Test
+    public void disabledInstrumentationReturnsComponentsAsIs() {
+        KeyMaterialReader reader = new KeyMaterialReader();
+        PGPCertificateDirectory.Backend backend = new InMemoryCertificateDirectoryBackend(reader);
+        SubkeyLookup subkeyLookup = new InMemorySubkeyLookup();
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting();
+
+        assertSame(backend, Instrumentation.backend(backend, StoreMetrics.NOOP));
+        assertSame(subkeyLookup, Instrumentation.subkeyLookup(subkeyLookup, StoreMetrics.NOOP));
+        assertSame(reader, Instrumentation.reader(reader, StoreMetrics.NOOP));
+        assertSame(merger, Instrumentation.merger(merger, StoreMetrics.NOOP));
+        assertSame(backend.getLock(), Instrumentation.lock(backend.getLock(), StoreMetrics.NOOP));
+    }
+
+    @Test
+    public void instrumentedDirectoryRecordsMetrics()
+            throws IOException, InterruptedException, BadDataException, BadNameException {
+        HistogramStoreMetrics metrics = new HistogramStoreMetrics();
+        PGPainlessCertD directory = PGPainlessCertD.inMemory(metrics);
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate();
+
+        String fingerprint = directory.insert(new ByteArrayInputStream(cert.getEncoded()),
+                MergeCallbacks.mergeWithExisting()).getFingerprint();
+        directory.getByFingerprint(fingerprint);
+
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.INSERT));
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.WRITE));
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.LOCK_WAIT));
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.GET));
+        assertTrue(metrics.getCount(StoreMetrics.Operation.PARSE) >= 1);
+        assertEquals(cert.getEncoded().length, metrics.getBytes(StoreMetrics.Transfer.WRITTEN));
+        assertEquals(cert.getEncoded().length, metrics.getBytes(StoreMetrics.Transfer.READ));
+    }
+
+    @Test
+    public void unchangedInsertsAreNotCountedAsWrites()
+            throws IOException, InterruptedException, BadDataException, NotAStoreException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-metrics-").toFile();
+        baseDirectory.deleteOnExit();
+        HistogramStoreMetrics metrics = new HistogramStoreMetrics();
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(
+                baseDirectory, new PrimitiveSubkeyLookupFactory(), null, metrics);
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate();
+
+        for (int i = 0; i < 2; i++) {
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+        }
+
+        assertEquals(2, metrics.getCount(StoreMetrics.Operation.INSERT));
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.WRITE));
+        assertEquals(cert.getEncoded().length, metrics.getBytes(StoreMetrics.Transfer.WRITTEN));
+    }
+
+    @Test
+    public void prefixLockWaitIsRecorded()
+            throws IOException, InterruptedException, BadDataException, NotAStoreException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-metrics-").toFile();
+        baseDirectory.deleteOnExit();
+        HistogramStoreMetrics metrics = new HistogramStoreMetrics();
+        PGPainlessCertD directory = PGPainlessCertD.fileBasedWithStripedLocking(
+                baseDirectory, new PrimitiveSubkeyLookupFactory(), null, metrics);
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate();
+
+        directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.WRITE));
+        assertEquals(1, metrics.getCount(StoreMetrics.Operation.LOCK_WAIT));
+        assertTrue(new File(baseDirectory, StripedDirectoryLock.DIRECTORY_NAME).isDirectory());
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        HistogramStoreMetrics metrics = new HistogramStoreMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.recordLatency(StoreMetrics.Operation.GET, 1000, true);
+        }
+        metrics.recordLatency(StoreMetrics.Operation.GET, 1_000_000, false);
+
+        assertEquals(100, metrics.getCount(StoreMetrics.Operation.GET));
+        assertEquals(1, metrics.getFailureCount(StoreMetrics.Operation.GET));
+        assertEquals(1_000_000, metrics.getMaxNanos(StoreMetrics.Operation.GET));
+        // 1000ns fall into the bucket [512, 1024)
+        assertEquals(1023, metrics.getPercentileNanos(StoreMetrics.Operation.GET, 50));
+        assertEquals(1023, metrics.getPercentileNanos(StoreMetrics.Operation.GET, 99));
+        assertEquals(1_000_000, metrics.getPercentileNanos(StoreMetrics.Operation.GET, 100));
+        assertEquals(0, metrics.getPercentileNanos(StoreMetrics.Operation.MERGE, 50));
+    }
+}
@@ -4,23 +4,34 @@
 
 package org.pgpainless.certificate_store;
 
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.bouncycastle.util.io.Streams;
 import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
 import pgp.certificate_store.certificate.Certificate;
 import pgp.certificate_store.certificate.Key;
 import pgp.certificate_store.certificate.KeyMaterial;
 import pgp.certificate_store.exception.BadDataException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class KeyMaterialReaderTest {
 
@@ -131,4 +142,84 @@ public class KeyMaterialReaderTest {
         assertNull(certificate.getTag());
         assertSame(certificate, certificate.asCertificate());
     }
+
+    @Test
+    public void readCertLazilyTest() throws BadDataException, IOException {
+        KeyMaterial keyMaterial = reader.read(new ByteArrayInputStream(CERT.getBytes(UTF8)), 7L);
+        assertInstanceOf(LazyCertificate.class, keyMaterial);
+        LazyCertificate certificate = (LazyCertificate) keyMaterial;
+        assertEquals("b21aabbf15df0fda37424de9ad008384ad0a064c", certificate.getFingerprint());
+        assertEquals(7L, certificate.getTag());
+        assertFalse(certificate.isEvaluated());
+
+        OpenPGPCertificate parsed = PGPainless.getInstance().readKey().parseCertificate(CERT);
+        Certificate eager = CertificateFactory.certificateFromOpenPGPCertificate(parsed, 7L);
+        assertEquals(eager.getSubkeyIds(), certificate.getSubkeyIds());
+        assertTrue(certificate.isEvaluated());
+    }
+
+    @Test
+    public void readCertWithValidKeyExtractionTest() throws BadDataException, IOException {
+        KeyMaterialReader validating = new KeyMaterialReader(SubkeyIdExtraction.VALID_KEYS);
+        LazyCertificate certificate = (LazyCertificate) validating.read(
+                new ByteArrayInputStream(CERT.getBytes(UTF8)), null);
+
+        OpenPGPCertificate parsed = PGPainless.getInstance().readKey().parseCertificate(CERT);
+        assertEquals(CertificateFactory.subkeyIds(parsed, SubkeyIdExtraction.VALID_KEYS),
+                certificate.getSubkeyIds());
+        assertEquals(certificate.getSubkeyIds(), certificate.getValidSubkeyIds());
+
+        LazyCertificate scanned = (LazyCertificate) reader.read(new ByteArrayInputStream(CERT.getBytes(UTF8)), null);
+        assertEquals(CertificateFactory.subkeyIds(parsed, SubkeyIdExtraction.ALL_KEYS), scanned.getSubkeyIds());
+        assertEquals(certificate.getSubkeyIds(), scanned.getValidSubkeyIds());
+    }
+
+    @Test
+    public void readCertLazilyDropsMarkerPacketsTest() throws BadDataException, IOException {
+        byte[] binary = Streams.readAll(PGPUtil.getDecoderStream(new ByteArrayInputStream(CERT.getBytes(UTF8))));
+        ByteArrayOutputStream withMarker = new ByteArrayOutputStream();
+        // Marker packet (tag 10) with body "PGP"
+        withMarker.write(new byte[] {(byte) 0xca, 0x03, 'P', 'G', 'P'});
+        withMarker.write(binary);
+
+        KeyMaterial keyMaterial = reader.read(new ByteArrayInputStream(withMarker.toByteArray()), null);
+        assertInstanceOf(LazyCertificate.class, keyMaterial);
+        assertArrayEquals(binary, Streams.readAll(keyMaterial.getInputStream()));
+    }
+
+    @Test
+    public void readCertWithUnboundSubkeyIsParsedTest() throws IOException {
+        byte[] binary = Streams.readAll(PGPUtil.getDecoderStream(new ByteArrayInputStream(CERT.getBytes(UTF8))));
+        List<byte[]> packets = new ArrayList<>();
+        ByteArrayInputStream in = new ByteArrayInputStream(binary);
+        RawPacket packet;
+        while ((packet = RawPacket.read(in, binary.length)) != null) {
+            packets.add(packet.getEncoding());
+        }
+        // Strip the binding signature of the last subkey
+        ByteArrayOutputStream unbound = new ByteArrayOutputStream();
+        for (byte[] encoding : packets.subList(0, packets.size() - 1)) {
+            unbound.write(encoding);
+        }
+
+        try {
+            KeyMaterial keyMaterial = reader.read(new ByteArrayInputStream(unbound.toByteArray()), null);
+            assertFalse(keyMaterial instanceof LazyCertificate);
+        } catch (BadDataException e) {
+            // Rejected by the parser
+        }
+    }
+
+    @Test
+    public void parsedKeyMaterialIsNotParsedAgain() throws IOException, BadDataException {
+        byte[] encoding = CERT.getBytes(UTF8);
+        KeyMaterial parsed = reader.read(new ByteArrayInputStream(encoding), null);
+
+        assertSame(parsed, reader.read(new ParsedKeyMaterialStream(encoding, parsed, reader), null));
+        // Readers extracting other subkey-ids parse the data themselves
+        KeyMaterial reparsed = new KeyMaterialReader(SubkeyIdExtraction.VALID_KEYS)
+                .read(new ParsedKeyMaterialStream(encoding, parsed, reader), null);
+        assertNotSame(parsed, reparsed);
+        assertEquals(parsed.getFingerprint(), reparsed.getFingerprint());
+    }
 }
@@ -0,0 +1,138 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.bouncycastle.openpgp.api.OpenPGPKey;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KeyMaterialSplitterTest {
+
+    private static final OpenPGPKey KEY = PGPainless.getInstance()
+            .generateKey(OpenPGPKeyVersion.v4)
+            .modernKeyRing("Alice <alice@pgpainless.org>");
+    private static final OpenPGPCertificate CERT_1 = PGPainless.getInstance()
+            .generateKey(OpenPGPKeyVersion.v4)
+            .modernKeyRing("Bob <bob@pgpainless.org>")
+            .toCertificate();
+    private static final OpenPGPCertificate CERT_2 = PGPainless.getInstance()
+            .generateKey(OpenPGPKeyVersion.v6)
+            .modernKeyRing("Charlie <charlie@pgpainless.org>")
+            .toCertificate();
+
+    @Test
+    public void splitBinaryKeyring() throws IOException {
+        ByteArrayOutputStream keyring = new ByteArrayOutputStream();
+        keyring.write(KEY.getEncoded());
+        keyring.write(CERT_1.getEncoded());
+        keyring.write(CERT_2.getEncoded());
+
+        List<byte[]> items = split(keyring.toByteArray());
+        assertEquals(3, items.size());
+        assertArrayEquals(KEY.getEncoded(), items.get(0));
+        assertArrayEquals(CERT_1.getEncoded(), items.get(1));
+        assertArrayEquals(CERT_2.getEncoded(), items.get(2));
+    }
+
+    @Test
+    public void splitConcatenatedArmoredBlocks() throws IOException {
+        String armored = CERT_1.toAsciiArmoredString() + "\n" +
+                "Some text between armored blocks\n" +
+                CERT_2.toAsciiArmoredString();
+
+        List<byte[]> items = split(armored.getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, items.size());
+        assertArrayEquals(CERT_1.getEncoded(), items.get(0));
+        assertArrayEquals(CERT_2.getEncoded(), items.get(1));
+    }
+
+    @Test
+    public void splitArmoredKeyring() throws IOException {
+        ByteArrayOutputStream armored = new ByteArrayOutputStream();
+        ArmoredOutputStream armorOut = new ArmoredOutputStream(armored);
+        armorOut.write(CERT_1.getEncoded());
+        armorOut.write(CERT_2.getEncoded());
+        armorOut.close();
+
+        List<byte[]> items = split(armored.toByteArray());
+        assertEquals(2, items.size());
+        assertArrayEquals(CERT_1.getEncoded(), items.get(0));
+        assertArrayEquals(CERT_2.getEncoded(), items.get(1));
+    }
+
+    @Test
+    public void oversizedItemsAreSkipped() throws IOException {
+        ByteArrayOutputStream keyring = new ByteArrayOutputStream();
+        keyring.write(KEY.getEncoded());
+        keyring.write(CERT_1.getEncoded());
+
+        // Secret key is larger than the certificate
+        KeyMaterialSplitter splitter = new KeyMaterialSplitter(
+                new ByteArrayInputStream(keyring.toByteArray()), CERT_1.getEncoded().length);
+        List<byte[]> items = splitter.stream().collect(Collectors.toList());
+
+        assertEquals(1, items.size());
+        assertArrayEquals(CERT_1.getEncoded(), items.get(0));
+        assertEquals(1, splitter.getSkippedCount());
+    }
+
+    @Test
+    public void itemsWithOversizedPacketsAreSkipped() throws IOException {
+        int maxItemSize = Math.max(CERT_1.getEncoded().length, CERT_2.getEncoded().length) + 10;
+        int bodyLength = maxItemSize + 1;
+        ByteArrayOutputStream keyring = new ByteArrayOutputStream();
+        keyring.write(CERT_1.getEncoded());
+        // User-id packet (tag 13) with five octet body length, which exceeds the maximum item size on its own
+        keyring.write(new byte[] {(byte) 0xcd, (byte) 0xff,
+                (byte) (bodyLength >> 24), (byte) (bodyLength >> 16), (byte) (bodyLength >> 8), (byte) bodyLength});
+        keyring.write(new byte[bodyLength]);
+        keyring.write(CERT_2.getEncoded());
+
+        KeyMaterialSplitter splitter = new KeyMaterialSplitter(
+                new ByteArrayInputStream(keyring.toByteArray()), maxItemSize);
+        List<byte[]> items = splitter.stream().collect(Collectors.toList());
+
+        assertEquals(1, items.size());
+        assertArrayEquals(CERT_2.getEncoded(), items.get(0));
+        assertEquals(1, splitter.getSkippedCount());
+    }
+
+    @Test
+    public void emptyInput() {
+        assertFalse(new KeyMaterialSplitter(new ByteArrayInputStream(new byte[0])).hasNext());
+    }
+
+    @Test
+    public void truncatedInputThrows() throws IOException {
+        byte[] encoding = CERT_1.getEncoded();
+        byte[] truncated = new byte[encoding.length - 10];
+        System.arraycopy(encoding, 0, truncated, 0, truncated.length);
+
+        KeyMaterialSplitter splitter = new KeyMaterialSplitter(new ByteArrayInputStream(truncated));
+        assertThrows(UncheckedIOException.class, splitter::hasNext);
+    }
+
+    private static List<byte[]> split(byte[] input) {
+        return new KeyMaterialSplitter(new ByteArrayInputStream(input))
+                .stream()
+                .collect(Collectors.toList());
+    }
+}
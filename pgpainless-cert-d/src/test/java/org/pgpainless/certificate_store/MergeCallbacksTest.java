@@ -14,10 +14,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MergeCallbacksTest {
 
@@ -228,6 +234,68 @@ public class MergeCallbacksTest {
         assertEncodingEquals(expected, merger.merge(update, existing));
     }
 
+    @Test
+    public void testMergeIdenticalCertReturnsExisting() throws BadDataException, IOException {
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting();
+        KeyMaterial existing = parse(CERT);
+        KeyMaterial update = parse(CERT);
+
+        assertSame(existing, merger.merge(update, existing));
+    }
+
+    @Test
+    public void testMergeSubsetCertReturnsExisting() throws BadDataException, IOException {
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting();
+        KeyMaterial existing = parse(CERT_WITH_SIG);
+        KeyMaterial update = parse(CERT);
+
+        assertSame(existing, merger.merge(update, existing));
+    }
+
+    @Test
+    public void testMergeSupersetCertIsNotShortCircuited() throws BadDataException, IOException {
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting();
+        KeyMaterial existing = parse(CERT);
+        KeyMaterial update = parse(CERT_WITH_SIG);
+
+        KeyMaterial merged = merger.merge(update, existing);
+        assertNotSame(existing, merged);
+        assertEncodingEquals(update, merged);
+    }
+
+    @Test
+    public void testMergeListenerReportsNewSignature() throws BadDataException, IOException {
+        List<MergeResult> results = new ArrayList<>();
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting(results::add);
+        KeyMaterial existing = parse(CERT);
+        KeyMaterial update = parse(CERT_WITH_SIG);
+
+        merger.merge(update, existing);
+
+        assertEquals(1, results.size());
+        MergeResult result = results.get(0);
+        assertEquals("8e0fc503d081002a2bc860a11cfc3439106d1dd1", result.getFingerprint());
+        assertEquals(1, result.getNewSignatures());
+        assertEquals(0, result.getNewUserIds());
+        assertEquals(0, result.getNewSubkeys());
+        assertTrue(result.isChanged());
+        assertEquals("Certificate 8e0fc503d081002a2bc860a11cfc3439106d1dd1 has 1 new signatures", result.toString());
+    }
+
+    @Test
+    public void testMergeListenerReportsUnchanged() throws BadDataException, IOException {
+        List<MergeResult> results = new ArrayList<>();
+        KeyMaterialMerger merger = MergeCallbacks.mergeWithExisting(results::add);
+        KeyMaterial existing = parse(CERT_WITH_SIG);
+        KeyMaterial update = parse(CERT);
+
+        merger.merge(update, existing);
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isChanged());
+        assertEquals(0, results.get(0).getNewSignatures());
+    }
+
     private static KeyMaterial parse(String encoding) throws BadDataException, IOException {
         return reader.read(new ByteArrayInputStream(encoding.getBytes(StandardCharsets.UTF_8)), null);
     }
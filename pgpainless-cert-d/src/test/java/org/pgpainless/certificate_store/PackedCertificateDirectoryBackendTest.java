@@ -0,0 +1,209 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.bouncycastle.util.io.Streams;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackedCertificateDirectoryBackendTest {
+
+    private static final long SMALL_SEGMENT_SIZE = 4096;
+
+    private static File tempDir() throws IOException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d-packed-").toFile();
+        tempDir.deleteOnExit();
+        return tempDir;
+    }
+
+    private static OpenPGPCertificate generateCert(String userId) {
+        return PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing(userId)
+                .toCertificate();
+    }
+
+    @Test
+    public void certificatesSurviveReopening()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        File directory = tempDir();
+        OpenPGPCertificate cert = generateCert("Alice <alice@pgpainless.org>");
+        String fingerprint;
+        Long tag;
+
+        try (PackedCertificateDirectoryBackend backend =
+                     new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader())) {
+            fingerprint = backend.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                    MergeCallbacks.mergeWithExisting()).getFingerprint();
+            tag = backend.getTagForFingerprint(fingerprint);
+        }
+
+        try (PackedCertificateDirectoryBackend backend =
+                     new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader())) {
+            Certificate read = backend.readByFingerprint(fingerprint);
+            assertArrayEquals(cert.getEncoded(), Streams.readAll(read.getInputStream()));
+            assertEquals(tag, read.getTag());
+
+            ByteBuffer encoding = backend.readEncoding(fingerprint);
+            assertTrue(encoding.isReadOnly());
+            assertEquals(cert.getEncoded().length, encoding.remaining());
+        }
+    }
+
+    @Test
+    public void readsFailAfterClosing()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        OpenPGPCertificate cert = generateCert("Alice <alice@pgpainless.org>");
+        PackedCertificateDirectoryBackend backend =
+                new PackedCertificateDirectoryBackend(tempDir(), new KeyMaterialReader());
+        String fingerprint = backend.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                MergeCallbacks.mergeWithExisting()).getFingerprint();
+        backend.close();
+
+        assertThrows(IllegalStateException.class, () -> backend.readEncoding(fingerprint));
+        assertThrows(IllegalStateException.class, () -> backend.readByFingerprint(fingerprint));
+    }
+
+    @Test
+    public void storeCannotBeOpenedTwice() throws IOException, NotAStoreException {
+        File directory = tempDir();
+        try (PackedCertificateDirectoryBackend ignored =
+                     new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader())) {
+            assertThrows(NotAStoreException.class,
+                    () -> new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader()));
+        }
+
+        // Closing releases the lock
+        new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader()).close();
+    }
+
+    @Test
+    public void recordsAppendedAfterMappingAreRead()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        try (PackedCertificateDirectoryBackend backend =
+                     new PackedCertificateDirectoryBackend(tempDir(), new KeyMaterialReader())) {
+            for (int i = 0; i < 5; i++) {
+                OpenPGPCertificate cert = generateCert("User " + i + " <user" + i + "@pgpainless.org>");
+                String fingerprint = backend.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                        MergeCallbacks.mergeWithExisting()).getFingerprint();
+                assertArrayEquals(cert.getEncoded(),
+                        Streams.readAll(backend.readByFingerprint(fingerprint).getInputStream()));
+            }
+        }
+    }
+
+    @Test
+    public void corruptRecordsAreSkipped()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        File directory = tempDir();
+        List<String> fingerprints = new ArrayList<>();
+        try (PackedCertificateDirectoryBackend backend = new PackedCertificateDirectoryBackend(
+                directory, new KeyMaterialReader(), PackedCertificateDirectoryBackend.DEFAULT_MAX_SEGMENT_SIZE,
+                Durability.NONE)) {
+            for (int i = 0; i < 3; i++) {
+                OpenPGPCertificate cert = generateCert("User " + i + " <user" + i + "@pgpainless.org>");
+                fingerprints.add(backend.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                        MergeCallbacks.mergeWithExisting()).getFingerprint());
+            }
+            assertEquals(1, backend.getSegmentCount());
+        }
+
+        // Flip a bit in the data of the first record
+        File segment = new File(directory, "00000001.pack");
+        byte[] bytes = Files.readAllBytes(segment.toPath());
+        bytes[4 + 8 + 2 + 40 + 4 + 10] ^= 1;
+        Files.write(segment.toPath(), bytes);
+
+        try (PackedCertificateDirectoryBackend backend =
+                     new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader())) {
+            assertThrows(NoSuchElementException.class, () -> backend.readByFingerprint(fingerprints.get(0)));
+            assertEquals(fingerprints.get(1), backend.readByFingerprint(fingerprints.get(1)).getFingerprint());
+            assertEquals(fingerprints.get(2), backend.readByFingerprint(fingerprints.get(2)).getFingerprint());
+        }
+    }
+
+    @Test
+    public void compactionKeepsLiveCertificatesAndTags()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        File directory = tempDir();
+        try (PackedCertificateDirectoryBackend backend =
+                     new PackedCertificateDirectoryBackend(directory, new KeyMaterialReader(), SMALL_SEGMENT_SIZE)) {
+            List<OpenPGPCertificate> certs = new ArrayList<>();
+            List<String> fingerprints = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                OpenPGPCertificate cert = generateCert("User " + i + " <user" + i + "@pgpainless.org>");
+                certs.add(cert);
+                fingerprints.add(backend.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                        MergeCallbacks.mergeWithExisting()).getFingerprint());
+            }
+            // Rewrite the first certificates to leave dead records behind
+            for (int i = 0; i < 5; i++) {
+                backend.doInsert(new ByteArrayInputStream(certs.get(i).getEncoded()),
+                        MergeCallbacks.overrideExisting());
+            }
+
+            List<Long> tags = new ArrayList<>();
+            for (String fingerprint : fingerprints) {
+                tags.add(backend.getTagForFingerprint(fingerprint));
+            }
+            int segmentsBefore = backend.getSegmentCount();
+
+            assertTrue(backend.compact(1.0) > 0);
+            assertTrue(backend.getSegmentCount() < segmentsBefore);
+            assertEquals(backend.getLiveBytes(), backend.getTotalBytes());
+
+            for (int i = 0; i < fingerprints.size(); i++) {
+                assertEquals(tags.get(i), backend.getTagForFingerprint(fingerprints.get(i)));
+                assertEquals(fingerprints.get(i), backend.readByFingerprint(fingerprints.get(i)).getFingerprint());
+            }
+        }
+    }
+
+    @Test
+    public void exportAndImportStandardLayout()
+            throws IOException, NotAStoreException, BadDataException, BadNameException {
+        OpenPGPCertificate cert = generateCert("Bob <bob@pgpainless.org>");
+        File certD = tempDir();
+
+        String fingerprint;
+        try (PackedCertificateDirectoryBackend packed =
+                     new PackedCertificateDirectoryBackend(tempDir(), new KeyMaterialReader())) {
+            fingerprint = packed.doInsert(new ByteArrayInputStream(cert.getEncoded()),
+                    MergeCallbacks.mergeWithExisting()).getFingerprint();
+            assertEquals(1, packed.exportTo(certD));
+        }
+
+        FileBasedCertificateDirectoryBackend fileBased =
+                new FileBasedCertificateDirectoryBackend(certD, new KeyMaterialReader());
+        assertArrayEquals(cert.getEncoded(), Streams.readAll(fileBased.readByFingerprint(fingerprint).getInputStream()));
+
+        try (PackedCertificateDirectoryBackend imported =
+                     new PackedCertificateDirectoryBackend(tempDir(), new KeyMaterialReader())) {
+            assertThrows(NoSuchElementException.class, () -> imported.readByFingerprint(fingerprint));
+            assertEquals(1, imported.importFrom(certD, MergeCallbacks.mergeWithExisting()));
+            assertArrayEquals(cert.getEncoded(), Streams.readAll(imported.readByFingerprint(fingerprint).getInputStream()));
+        }
+    }
+}
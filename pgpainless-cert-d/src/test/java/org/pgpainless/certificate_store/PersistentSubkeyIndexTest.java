@@ -0,0 +1,185 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentSubkeyIndexTest {
+
+    private static File tempDir() throws IOException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d-index-").toFile();
+        tempDir.deleteOnExit();
+        return tempDir;
+    }
+
+    private static OpenPGPCertificate insertCertificate(PGPCertificateDirectory.Backend backend, String userId)
+            throws IOException, BadDataException {
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing(userId)
+                .toCertificate();
+        backend.doInsert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+        return cert;
+    }
+
+    private static long subkeyId(OpenPGPCertificate cert) {
+        return cert.getKeys().get(1).getKeyIdentifier().getKeyId();
+    }
+
+    private static String fingerprint(OpenPGPCertificate cert) {
+        return OpenPgpFingerprint.of(cert).getFingerprint().toLowerCase();
+    }
+
+    @Test
+    public void catchUpOnlyIndexesChangedCertificates()
+            throws IOException, NotAStoreException, BadDataException {
+        File baseDirectory = tempDir();
+        File indexDirectory = new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME);
+        PGPCertificateDirectory.Backend backend =
+                new FileBasedCertificateDirectoryBackend(baseDirectory, new KeyMaterialReader());
+        OpenPGPCertificate alice = insertCertificate(backend, "Alice <alice@pgpainless.org>");
+        OpenPGPCertificate bob = insertCertificate(backend, "Bob <bob@pgpainless.org>");
+
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend)) {
+            assertEquals(2, index.catchUp(DirectoryLayout.fingerprints(baseDirectory)));
+            assertNotNull(index.getIndexedTag(fingerprint(alice)));
+        }
+
+        OpenPGPCertificate carol = insertCertificate(backend, "Carol <carol@pgpainless.org>");
+        String bobFingerprint = fingerprint(bob);
+        assertTrue(new File(new File(baseDirectory, bobFingerprint.substring(0, 2)),
+                bobFingerprint.substring(2)).delete());
+
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend)) {
+            // Alice is unchanged, only Carol needs to be read
+            assertEquals(1, index.catchUp(DirectoryLayout.fingerprints(baseDirectory)));
+            assertEquals(2, index.getCertificateCount());
+            assertEquals(Collections.singleton(fingerprint(alice)),
+                    index.getCertificateFingerprintsForSubkeyId(subkeyId(alice)));
+            assertEquals(Collections.singleton(fingerprint(carol)),
+                    index.getCertificateFingerprintsForSubkeyId(subkeyId(carol)));
+            assertEquals(Collections.emptySet(), index.getCertificateFingerprintsForSubkeyId(subkeyId(bob)));
+        }
+    }
+
+    @Test
+    public void incompleteBatchIsDiscarded()
+            throws IOException, NotAStoreException, BadDataException {
+        File baseDirectory = tempDir();
+        File indexDirectory = new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME);
+        PGPCertificateDirectory.Backend backend =
+                new FileBasedCertificateDirectoryBackend(baseDirectory, new KeyMaterialReader());
+        OpenPGPCertificate alice = insertCertificate(backend, "Alice <alice@pgpainless.org>");
+
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend)) {
+            index.catchUp(DirectoryLayout.fingerprints(baseDirectory));
+        }
+
+        File journal = new File(indexDirectory, "journal");
+        long committedLength = journal.length();
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            // Header of a batch whose payload never made it to disk
+            out.write(new byte[] {0x42, 0x41, 0x54, 0x43, 0, 0, 0, 1, 0, 0, 0, 64, 1, 2, 3});
+        }
+
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend)) {
+            assertEquals(committedLength, journal.length());
+            assertEquals(0, index.catchUp(DirectoryLayout.fingerprints(baseDirectory)));
+            assertEquals(Collections.singleton(fingerprint(alice)),
+                    index.getCertificateFingerprintsForSubkeyId(subkeyId(alice)));
+        }
+    }
+
+    @Test
+    public void batchesSurviveRewriteByAnotherIndex()
+            throws IOException, NotAStoreException, BadDataException {
+        File baseDirectory = tempDir();
+        File indexDirectory = new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME);
+        PGPCertificateDirectory.Backend backend =
+                new FileBasedCertificateDirectoryBackend(baseDirectory, new KeyMaterialReader());
+        OpenPGPCertificate alice = insertCertificate(backend, "Alice <alice@pgpainless.org>");
+
+        // Fill the journal with outdated records
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend, 1)) {
+            for (int i = 0; i < 5; i++) {
+                index.storeCertificateSubkeyIds(fingerprint(alice), Collections.singletonList(subkeyId(alice)));
+            }
+        }
+
+        try (PersistentSubkeyIndex index = new PersistentSubkeyIndex(indexDirectory, backend)) {
+            // Opening another index rewrites the journal, while the first one is still open
+            new PersistentSubkeyIndex(indexDirectory, backend, 1).close();
+
+            OpenPGPCertificate bob = insertCertificate(backend, "Bob <bob@pgpainless.org>");
+            index.storeCertificateSubkeyIds(fingerprint(bob), Collections.singletonList(subkeyId(bob)));
+            index.flush();
+
+            try (PersistentSubkeyIndex reopened = new PersistentSubkeyIndex(indexDirectory, backend)) {
+                assertEquals(Collections.singleton(fingerprint(bob)),
+                        reopened.getCertificateFingerprintsForSubkeyId(subkeyId(bob)));
+                assertEquals(Collections.singleton(fingerprint(alice)),
+                        reopened.getCertificateFingerprintsForSubkeyId(subkeyId(alice)));
+            }
+        }
+    }
+
+    @Test
+    public void lazySubkeyIndexIsOpenedOnLookup()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File baseDirectory = tempDir();
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Erin <erin@pgpainless.org>")
+                .toCertificate();
+
+        try (PGPainlessCertD directory = PGPainlessCertD.fileBasedWithLazySubkeyIndex(
+                baseDirectory, null, StoreMetrics.NOOP)) {
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+            assertFalse(new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME).exists());
+
+            assertEquals(Collections.singleton(fingerprint(cert)),
+                    directory.getCertificateFingerprintsForSubkeyId(subkeyId(cert)));
+            assertTrue(new File(baseDirectory, PersistentSubkeyIndex.DIRECTORY_NAME).isDirectory());
+        }
+    }
+
+    @Test
+    public void directoryWithSubkeyIndex()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File baseDirectory = tempDir();
+        OpenPGPCertificate cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Dora <dora@pgpainless.org>")
+                .toCertificate();
+
+        try (PGPainlessCertD directory = PGPainlessCertD.fileBasedWithSubkeyIndex(
+                baseDirectory, null, StoreMetrics.NOOP)) {
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+        }
+
+        try (PGPainlessCertD directory = PGPainlessCertD.fileBasedWithSubkeyIndex(
+                baseDirectory, null, StoreMetrics.NOOP)) {
+            assertEquals(Collections.singleton(fingerprint(cert)),
+                    directory.getCertificateFingerprintsForSubkeyId(subkeyId(cert)));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PrimitiveSubkeyLookupTest {
+
+    private static final String V4_FINGERPRINT = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String V6_FINGERPRINT = "cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9";
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void storeAndLookup(boolean offHeap) {
+        PrimitiveSubkeyLookup lookup = new PrimitiveSubkeyLookup(0, offHeap);
+        lookup.storeCertificateSubkeyIds(V4_FINGERPRINT, Arrays.asList(1L, 2L));
+        lookup.storeCertificateSubkeyIds(V6_FINGERPRINT, new long[] {2L, 3L});
+        // Storing the same pairs again does not add entries
+        lookup.storeCertificateSubkeyIds(V4_FINGERPRINT.toUpperCase(), Arrays.asList(1L, 2L));
+
+        assertEquals(Collections.singleton(V4_FINGERPRINT), lookup.getCertificateFingerprintsForSubkeyId(1L));
+        assertEquals(new HashSet<>(Arrays.asList(V4_FINGERPRINT, V6_FINGERPRINT)),
+                lookup.getCertificateFingerprintsForSubkeyId(2L));
+        assertEquals(Collections.singleton(V6_FINGERPRINT), lookup.getCertificateFingerprintsForSubkeyId(3L));
+        assertEquals(Collections.emptySet(), lookup.getCertificateFingerprintsForSubkeyId(4L));
+        assertEquals(4, lookup.size());
+        assertEquals(2, lookup.getFingerprintCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void growBeyondInitialCapacity(boolean offHeap) {
+        PrimitiveSubkeyLookup lookup = new PrimitiveSubkeyLookup(0, offHeap);
+        Map<Long, Set<String>> expected = new HashMap<>();
+        Random random = new Random(42);
+        byte[] fingerprint = new byte[20];
+        for (int i = 0; i < 10000; i++) {
+            random.nextBytes(fingerprint);
+            String hex = Hex.toHexString(fingerprint);
+            List<Long> subkeyIds = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                // Small id range to provoke subkey-ids shared between certificates
+                long subkeyId = random.nextInt(5000);
+                subkeyIds.add(subkeyId);
+                expected.computeIfAbsent(subkeyId, id -> new HashSet<>()).add(hex);
+            }
+            lookup.storeCertificateSubkeyIds(hex, subkeyIds);
+        }
+
+        for (Map.Entry<Long, Set<String>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), lookup.getCertificateFingerprintsForSubkeyId(entry.getKey()));
+        }
+        assertEquals(10000, lookup.getFingerprintCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "not a fingerprint", V6_FINGERPRINT + "00"})
+    public void rejectInvalidFingerprint(String fingerprint) {
+        PrimitiveSubkeyLookup lookup = new PrimitiveSubkeyLookup();
+        assertThrows(IllegalArgumentException.class,
+                () -> lookup.storeCertificateSubkeyIds(fingerprint, Collections.singletonList(1L)));
+    }
+}
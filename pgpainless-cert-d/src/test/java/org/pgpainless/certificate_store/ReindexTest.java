@@ -0,0 +1,106 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import org.pgpainless.key.OpenPgpFingerprint;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReindexTest {
+
+    private static OpenPGPCertificate generateCert(OpenPGPKeyVersion version, String userId) {
+        return PGPainless.getInstance().generateKey(version)
+                .modernKeyRing(userId)
+                .toCertificate();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OpenPGPKeyVersion.class, names = {"v4", "v6"})
+    public void scanKeyIdsMatchesParsedKeys(OpenPGPKeyVersion version) throws IOException {
+        OpenPGPCertificate cert = generateCert(version, "Alice <alice@pgpainless.org>");
+        long[] expected = cert.getKeys().stream()
+                .mapToLong(key -> key.getKeyIdentifier().getKeyId())
+                .toArray();
+
+        assertArrayEquals(expected, CertificateFactory.scanKeyIds(cert.getEncoded()));
+        assertEquals(OpenPgpFingerprint.of(cert).getFingerprint().toLowerCase(),
+                CertificateFactory.scanFingerprint(new ByteArrayInputStream(cert.getEncoded())));
+    }
+
+    @Test
+    public void reindexRestoresLostSubkeyLookup()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-reindex-").toFile();
+        baseDirectory.deleteOnExit();
+        OpenPGPCertificate alice = generateCert(OpenPGPKeyVersion.v4, "Alice <alice@pgpainless.org>");
+        OpenPGPCertificate bob = generateCert(OpenPGPKeyVersion.v6, "Bob <bob@pgpainless.org>");
+
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new PrimitiveSubkeyLookupFactory());
+        for (OpenPGPCertificate cert : Arrays.asList(alice, bob)) {
+            directory.insert(new ByteArrayInputStream(cert.getEncoded()), MergeCallbacks.mergeWithExisting());
+        }
+
+        // Fresh, empty subkey lookup
+        directory = PGPainlessCertD.fileBased(baseDirectory, new PrimitiveSubkeyLookupFactory());
+        long subkeyId = alice.getKeys().get(1).getKeyIdentifier().getKeyId();
+        assertEquals(Collections.emptySet(), directory.getCertificateFingerprintsForSubkeyId(subkeyId));
+
+        ReindexResult verification = directory.verifySubkeyLookup(2);
+        assertFalse(verification.isConsistent());
+        assertEquals(alice.getKeys().size() + bob.getKeys().size(), verification.getMissing().size());
+        assertEquals(Collections.emptySet(), directory.getCertificateFingerprintsForSubkeyId(subkeyId));
+
+        ReindexResult reindex = directory.reindex(2);
+        assertEquals(2, reindex.getCertificates());
+        assertEquals(0, reindex.getFailed());
+        assertEquals(Collections.singleton(OpenPgpFingerprint.of(alice).getFingerprint().toLowerCase()),
+                directory.getCertificateFingerprintsForSubkeyId(subkeyId));
+
+        assertTrue(directory.verifySubkeyLookup(2).isConsistent());
+    }
+
+    @Test
+    public void unscannableCertificatesAreNotReportedAsStale()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-reindex-").toFile();
+        baseDirectory.deleteOnExit();
+        OpenPGPCertificate alice = generateCert(OpenPGPKeyVersion.v4, "Alice <alice@pgpainless.org>");
+        PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory, new PrimitiveSubkeyLookupFactory());
+        Certificate inserted = directory.insert(new ByteArrayInputStream(alice.getEncoded()),
+                MergeCallbacks.mergeWithExisting());
+
+        // Certificate whose key-ids cannot be determined, but which shares a subkey-id with alice in the lookup
+        String brokenFingerprint = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+        long subkeyId = alice.getKeys().get(1).getKeyIdentifier().getKeyId();
+        directory.storeCertificateSubkeyIds(brokenFingerprint, Collections.singletonList(subkeyId));
+        LazyCertificate broken = new LazyCertificate(new byte[] {1, 2, 3}, brokenFingerprint, null);
+
+        ReindexResult verification = new SubkeyIndexer(directory, 2)
+                .run(Arrays.asList(inserted, broken).iterator(), true);
+        assertEquals(1, verification.getCertificates());
+        assertEquals(1, verification.getFailed());
+        assertEquals(Collections.emptyList(), verification.getStale());
+        assertEquals(Collections.emptyList(), verification.getMissing());
+    }
+}
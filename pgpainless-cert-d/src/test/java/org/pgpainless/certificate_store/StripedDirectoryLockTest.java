@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StripedDirectoryLockTest {
+
+    private static final String FINGERPRINT_A = "aa85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String FINGERPRINT_A2 = "aa3f2c7a5d9e8b1c4f6a0e2d7b9c5a1e3f8d2b6c";
+    private static final String FINGERPRINT_B = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+
+    @Test
+    public void prefixesAreLockedIndependently()
+            throws IOException, InterruptedException, ExecutionException {
+        File baseDirectory = Files.createTempDirectory("pgp.cert.d-lock-").toFile();
+        baseDirectory.deleteOnExit();
+        StripedDirectoryLock lock = new StripedDirectoryLock(baseDirectory);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        lock.lockPrefix(FINGERPRINT_A);
+        // Another prefix can be locked, the same prefix cannot, and neither can the whole directory
+        Future<Boolean> otherPrefix = executor.submit(() -> {
+            lock.lockPrefix(FINGERPRINT_B);
+            lock.releasePrefix(FINGERPRINT_B);
+            return true;
+        });
+        assertTrue(otherPrefix.get());
+        assertFalse(executor.submit(lock::tryLockDirectory).get());
+        Future<Boolean> samePrefix = executor.submit(() -> {
+            lock.lockPrefix(FINGERPRINT_A2);
+            lock.releasePrefix(FINGERPRINT_A2);
+            return true;
+        });
+        Thread.sleep(100);
+        assertFalse(samePrefix.isDone());
+        lock.releasePrefix(FINGERPRINT_A);
+        assertTrue(samePrefix.get());
+
+        assertTrue(lock.tryLockDirectory());
+        assertTrue(lock.isLocked());
+        Future<Boolean> prefix = executor.submit(() -> {
+            lock.lockPrefix(FINGERPRINT_B);
+            lock.releasePrefix(FINGERPRINT_B);
+            return true;
+        });
+        Thread.sleep(100);
+        assertFalse(prefix.isDone());
+        lock.releaseDirectory();
+        assertTrue(prefix.get());
+        assertTrue(new File(new File(baseDirectory, StripedDirectoryLock.DIRECTORY_NAME), "aa").exists());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,178 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.pgpainless.certificate_store;
+
+import org.bouncycastle.bcpg.sig.KeyFlags;
+import org.bouncycastle.openpgp.api.OpenPGPCertificate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pgpainless.PGPainless;
+import org.pgpainless.algorithm.OpenPGPKeyVersion;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ValiditySummaryCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static OpenPGPCertificate cert;
+
+    @BeforeAll
+    public static void generate() {
+        cert = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Alice <alice@pgpainless.org>")
+                .toCertificate();
+    }
+
+    private static File tempDir() throws IOException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d-validity-").toFile();
+        tempDir.deleteOnExit();
+        return tempDir;
+    }
+
+    @Test
+    public void summaryMatchesEvaluation() throws IOException {
+        Date now = new Date();
+        ValiditySummary summary = new ValiditySummaryCache(tempDir(), HOUR)
+                .get(CertificateFactory.certificateFromOpenPGPCertificate(cert, 1L), now);
+
+        assertEquals(CertificateFactory.validSubkeyIds(cert), summary.getValidSubkeyIds());
+        assertEquals("Alice <alice@pgpainless.org>", summary.getPrimaryUserId());
+        assertFalse(summary.isRevoked());
+        assertEquals(1, summary.getValidKeys().stream()
+                .filter(key -> key.hasFlags(KeyFlags.SIGN_DATA))
+                .count());
+        assertTrue(summary.isApplicableAt(now));
+        assertTrue(summary.isApplicableAt(new Date(now.getTime() + HOUR - 1)));
+        assertFalse(summary.isApplicableAt(new Date(now.getTime() + HOUR)));
+    }
+
+    @Test
+    public void unchangedCertificateIsServedFromSidecar() throws IOException {
+        File directory = tempDir();
+        Certificate certificate = CertificateFactory.certificateFromOpenPGPCertificate(cert, 1L);
+        Date now = new Date();
+
+        ValiditySummaryCache cache = new ValiditySummaryCache(directory, HOUR);
+        ValiditySummary evaluated = cache.get(certificate, now);
+        ValiditySummary cached = cache.get(certificate, new Date(now.getTime() + 1000));
+        assertEquals(evaluated.getValidSubkeyIds(), cached.getValidSubkeyIds());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Summaries survive restarts
+        ValiditySummaryCache reopened = new ValiditySummaryCache(directory, HOUR);
+        ValiditySummary persisted = reopened.get(certificate, new Date(now.getTime() + 2000));
+        assertEquals(1, reopened.getHitCount());
+        assertEquals(evaluated.getValidSubkeyIds(), persisted.getValidSubkeyIds());
+        assertEquals(evaluated.getPrimaryUserId(), persisted.getPrimaryUserId());
+        assertEquals(evaluated.getWindowEnd(), persisted.getWindowEnd());
+    }
+
+    @Test
+    public void evictedSummariesAreServedFromSidecar() throws IOException {
+        OpenPGPCertificate bob = PGPainless.getInstance().generateKey(OpenPGPKeyVersion.v4)
+                .modernKeyRing("Bob <bob@pgpainless.org>")
+                .toCertificate();
+        Certificate alice = CertificateFactory.certificateFromOpenPGPCertificate(cert, 1L);
+        Certificate other = CertificateFactory.certificateFromOpenPGPCertificate(bob, 1L);
+        Date now = new Date();
+
+        ValiditySummaryCache cache = new ValiditySummaryCache(tempDir(), HOUR, 1);
+        ValiditySummary evaluated = cache.get(alice, now);
+        cache.get(other, now);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getMissCount());
+
+        ValiditySummary persisted = cache.get(alice, new Date(now.getTime() + 1000));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertEquals(evaluated.getValidSubkeyIds(), persisted.getValidSubkeyIds());
+    }
+
+    @Test
+    public void changedCertificateOrReferenceTimeIsEvaluatedAgain() throws IOException {
+        ValiditySummaryCache cache = new ValiditySummaryCache(tempDir(), HOUR);
+        Date now = new Date();
+        cache.get(CertificateFactory.certificateFromOpenPGPCertificate(cert, 1L), now);
+
+        // Changed tag
+        ValiditySummary changed = cache.get(CertificateFactory.certificateFromOpenPGPCertificate(cert, 2L), now);
+        assertEquals(2L, changed.getTag());
+        assertEquals(0, cache.getHitCount());
+
+        // Outside the time window
+        Date later = new Date(now.getTime() + 2 * HOUR);
+        ValiditySummary reevaluated = cache.get(CertificateFactory.certificateFromOpenPGPCertificate(cert, 2L), later);
+        assertEquals(later, reevaluated.getReferenceTime());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        // Certificates without tag are never cached
+        Certificate untagged = CertificateFactory.certificateFromOpenPGPCertificate(cert, null);
+        cache.get(untagged, now);
+        cache.get(untagged, now);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void corruptSidecarIsEvaluatedAgain() throws IOException {
+        File directory = tempDir();
+        Certificate certificate = CertificateFactory.certificateFromOpenPGPCertificate(cert, 1L);
+        Date now = new Date();
+        new ValiditySummaryCache(directory, HOUR).get(certificate, now);
+
+        // Overwrite the length of the user-id with a huge value
+        String fingerprint = certificate.getFingerprint();
+        File file = new File(new File(directory, fingerprint.substring(0, 2)), fingerprint.substring(2));
+        byte[] encoded = Files.readAllBytes(file.toPath());
+        int userIdLengthOffset = 4 + 2 + fingerprint.length() + 1 + 8 + 8 + 8 + 1 + 8;
+        ByteBuffer.wrap(encoded).putInt(userIdLengthOffset, Integer.MAX_VALUE);
+        Files.write(file.toPath(), encoded);
+
+        ValiditySummaryCache reopened = new ValiditySummaryCache(directory, HOUR);
+        ValiditySummary summary = reopened.get(certificate, now);
+        assertEquals("Alice <alice@pgpainless.org>", summary.getPrimaryUserId());
+        assertEquals(0, reopened.getHitCount());
+        assertEquals(1, reopened.getMissCount());
+    }
+
+    @Test
+    public void directoryServesSummaries()
+            throws IOException, InterruptedException, BadDataException, BadNameException, NotAStoreException {
+        File baseDirectory = tempDir();
+        try (PGPainlessCertD directory = PGPainlessCertD.fileBased(baseDirectory,
+                new PrimitiveSubkeyLookupFactory())) {
+            ValiditySummaryCache cache = new ValiditySummaryCache(
+                    new File(baseDirectory, ValiditySummaryCache.DIRECTORY_NAME));
+            directory.enableValiditySummaryCache(cache);
+            Certificate inserted = directory.insert(new ByteArrayInputStream(cert.getEncoded()),
+                    MergeCallbacks.mergeWithExisting());
+
+            ValiditySummary summary = directory.getValiditySummary(inserted.getFingerprint());
+            assertEquals(CertificateFactory.validSubkeyIds(cert), summary.getValidSubkeyIds());
+            directory.getValiditySummary(inserted.getFingerprint());
+            assertEquals(1, cache.getHitCount());
+            // The sidecar does not show up as a certificate
+            Iterator<String> fingerprints = directory.fingerprints(true);
+            assertEquals(inserted.getFingerprint(), fingerprints.next());
+            assertFalse(fingerprints.hasNext());
+        }
+    }
+}